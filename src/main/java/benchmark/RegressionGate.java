@@ -0,0 +1,288 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.math3.stat.descriptive.rank.Median;
+import org.apache.commons.math3.stat.inference.MannWhitneyUTest;
+import org.apache.commons.math3.stat.inference.TTest;
+
+import benchmark.ScalabilitySweep.Run;
+
+/**
+ * A comparison of sweep runs (see {@link ScalabilitySweep}) against those of a
+ * baseline, by solver and configuration (numbers of agents and tasks), which
+ * detects two kinds of regressions:
+ *
+ * <ul>
+ * <li>slowdowns: the computational times are greater than those of the
+ * baseline, multiplied by 1 + timeTolerance, according to a Mann-Whitney U
+ * test, since times are skewed;</li>
+ * <li>losses of completed tasks: the completed task percentages, paired by
+ * instance (seed), are lower than those of the baseline minus
+ * completionTolerance, according to a t-test of the differences.</li>
+ * </ul>
+ *
+ * A difference is a regression only if it exceeds the tolerance in the
+ * direction of the test, and the test is significant, so that the noise of
+ * timings and random coalition values is not reported.
+ *
+ * Timings are comparable only if the baseline was recorded on the same machine
+ * and JVM.
+ *
+ * @author lcpz
+ */
+public class RegressionGate {
+
+	public static final double DEFAULT_TIME_TOLERANCE = 0.25, DEFAULT_COMPLETION_TOLERANCE = 0.02,
+			DEFAULT_SIGNIFICANCE = 0.01;
+
+	/* The comparison of a solver on a configuration */
+	public static class Comparison {
+		private final String solver;
+		private final int agents, tasks;
+		private double baselineMillis, currentMillis, timeP = 1;
+		private double baselineCompleted, currentCompleted, completedP = 1;
+		private boolean slower, lessCompleted, missing;
+
+		Comparison(String solver, int agents, int tasks) {
+			this.solver = solver;
+			this.agents = agents;
+			this.tasks = tasks;
+		}
+
+		public String getSolver() {
+			return solver;
+		}
+
+		public int getAgents() {
+			return agents;
+		}
+
+		public int getTasks() {
+			return tasks;
+		}
+
+		/**
+		 * @return The median computational times, in ms.
+		 */
+		public double getBaselineMillis() {
+			return baselineMillis;
+		}
+
+		public double getCurrentMillis() {
+			return currentMillis;
+		}
+
+		/**
+		 * @return The mean completed task percentages.
+		 */
+		public double getBaselineCompleted() {
+			return baselineCompleted;
+		}
+
+		public double getCurrentCompleted() {
+			return currentCompleted;
+		}
+
+		public boolean isSlower() {
+			return slower;
+		}
+
+		public boolean isLessCompleted() {
+			return lessCompleted;
+		}
+
+		/**
+		 * @return Whether the configuration of the baseline was not run.
+		 */
+		public boolean isMissing() {
+			return missing;
+		}
+
+		public boolean isRegression() {
+			return slower || lessCompleted || missing;
+		}
+
+		@Override
+		public String toString() {
+			if (missing)
+				return String.format("%-8s %6d %6d   not run", solver, agents, tasks);
+
+			String status = slower && lessCompleted ? "SLOWER, LESS COMPLETED"
+					: slower ? "SLOWER" : lessCompleted ? "LESS COMPLETED" : "ok";
+			return String.format(Locale.ROOT, "%-8s %6d %6d %10.2f %10.2f %+8.1f%% %7.4f %8.2f %8.2f %+8.2f %7.4f  %s",
+					solver, agents, tasks, baselineMillis, currentMillis,
+					(currentMillis / baselineMillis - 1) * 100, timeP, baselineCompleted * 100,
+					currentCompleted * 100, (currentCompleted - baselineCompleted) * 100, completedP, status);
+		}
+	}
+
+	private final double timeTolerance, completionTolerance, significance;
+
+	public RegressionGate() {
+		this(DEFAULT_TIME_TOLERANCE, DEFAULT_COMPLETION_TOLERANCE, DEFAULT_SIGNIFICANCE);
+	}
+
+	/**
+	 * @param timeTolerance       The tolerated relative increase of computational
+	 *                            times (e.g., 0.25 for 25%).
+	 * @param completionTolerance The tolerated decrease of completed task
+	 *                            percentages (e.g., 0.02 for 2 points).
+	 * @param significance        The significance level of the tests.
+	 */
+	public RegressionGate(double timeTolerance, double completionTolerance, double significance) {
+		this.timeTolerance = timeTolerance;
+		this.completionTolerance = completionTolerance;
+		this.significance = significance;
+	}
+
+	/* Group runs by solver and configuration, in order of appearance */
+	private static Map<String, List<Run>> group(List<Run> runs) {
+		Map<String, List<Run>> groups = new LinkedHashMap<>();
+		for (Run r : runs) {
+			String key = r.getSolver() + " " + r.getAgents() + " " + r.getTasks();
+			List<Run> g = groups.get(key);
+			if (g == null) {
+				g = new ArrayList<>();
+				groups.put(key, g);
+			}
+			g.add(r);
+		}
+		return groups;
+	}
+
+	/**
+	 * Compare runs with those of a baseline.
+	 *
+	 * @param baseline The runs of the baseline.
+	 * @param current  The current runs.
+	 *
+	 * @return A comparison for each solver and configuration of the baseline, in
+	 *         its order.
+	 */
+	public List<Comparison> compare(List<Run> baseline, List<Run> current) {
+		Map<String, List<Run>> currentGroups = group(current);
+		List<Comparison> comparisons = new ArrayList<>();
+
+		for (Map.Entry<String, List<Run>> e : group(baseline).entrySet()) {
+			List<Run> b = e.getValue(), c = currentGroups.get(e.getKey());
+			Comparison cmp = new Comparison(b.get(0).getSolver(), b.get(0).getAgents(), b.get(0).getTasks());
+			comparisons.add(cmp);
+
+			if (c == null) {
+				cmp.missing = true;
+				continue;
+			}
+
+			compareTimes(cmp, b, c);
+			compareCompleted(cmp, b, c);
+		}
+
+		return comparisons;
+	}
+
+	private void compareTimes(Comparison cmp, List<Run> baseline, List<Run> current) {
+		double[] b = new double[baseline.size()], scaled = new double[b.length], c = new double[current.size()];
+		for (int i = 0; i < b.length; i++) {
+			b[i] = baseline.get(i).getMillis();
+			scaled[i] = b[i] * (1 + timeTolerance);
+		}
+		for (int i = 0; i < c.length; i++)
+			c[i] = current.get(i).getMillis();
+
+		Median median = new Median();
+		cmp.baselineMillis = median.evaluate(b);
+		cmp.currentMillis = median.evaluate(c);
+
+		/* slower than the tolerated times: test against the scaled baseline */
+		if (cmp.currentMillis > median.evaluate(scaled)) {
+			cmp.timeP = new MannWhitneyUTest().mannWhitneyUTest(scaled, c);
+			cmp.slower = cmp.timeP < significance;
+		}
+	}
+
+	private void compareCompleted(Comparison cmp, List<Run> baseline, List<Run> current) {
+		Map<Long, Float> completedBySeed = new HashMap<>();
+		for (Run r : baseline)
+			completedBySeed.put(r.getSeed(), r.getCompletedTaskPercentage());
+
+		/* differences on the instances run by both */
+		List<Double> differences = new ArrayList<>();
+		double b = 0, c = 0;
+		for (Run r : current) {
+			Float completed = completedBySeed.get(r.getSeed());
+			if (completed != null) {
+				differences.add((double) r.getCompletedTaskPercentage() - completed);
+				b += completed;
+				c += r.getCompletedTaskPercentage();
+			}
+		}
+
+		int n = differences.size();
+		if (n == 0)
+			return;
+
+		cmp.baselineCompleted = b / n;
+		cmp.currentCompleted = c / n;
+
+		double[] d = new double[n];
+		double mean = 0, var = 0;
+		for (int i = 0; i < n; i++) {
+			d[i] = differences.get(i);
+			mean += d[i];
+		}
+		mean /= n;
+		for (double x : d)
+			var += (x - mean) * (x - mean);
+
+		if (mean >= -completionTolerance)
+			return;
+
+		/* no variance (e.g., deterministic solvers): the difference is exact */
+		if (n < 2 || var == 0)
+			cmp.completedP = 0;
+		else
+			cmp.completedP = new TTest().tTest(-completionTolerance, d);
+		cmp.lessCompleted = cmp.completedP < significance;
+	}
+
+	/**
+	 * @param comparisons The comparisons of {@link #compare(List, List)}.
+	 *
+	 * @return Whether any is a regression.
+	 */
+	public static boolean hasRegressions(List<Comparison> comparisons) {
+		for (Comparison c : comparisons)
+			if (c.isRegression())
+				return true;
+		return false;
+	}
+
+	/**
+	 * @param comparisons The comparisons of {@link #compare(List, List)}.
+	 *
+	 * @return A table of the comparisons, with a line per solver and
+	 *         configuration, and the number of regressions.
+	 */
+	public static String format(List<Comparison> comparisons) {
+		StringBuilder sb = new StringBuilder(String.format("%-8s %6s %6s %10s %10s %9s %7s %8s %8s %8s %7s  %s%n",
+				"Solver", "Agents", "Tasks", "Base ms", "Now ms", "Change", "p", "Base %", "Now %", "Change", "p",
+				"Status"));
+
+		int regressions = 0;
+		for (Comparison c : comparisons) {
+			sb.append(c).append(System.lineSeparator());
+			if (c.isRegression())
+				regressions++;
+		}
+
+		sb.append(String.format("%d regressions in %d configurations%n", regressions, comparisons.size()));
+		return sb.toString();
+	}
+
+}
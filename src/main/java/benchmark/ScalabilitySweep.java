@@ -0,0 +1,489 @@
+package benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.math3.distribution.TDistribution;
+
+import model.GridProblem;
+import model.InstanceGenerator;
+import solvers.Portfolio;
+import solvers.Solver;
+
+/**
+ * A sweep of solvers over numbers of agents and tasks, as in the experimental
+ * setup of (Ramchurn et al., 2010): for each configuration, the solvers run on
+ * the same generated instances, whose seeds are seed, seed + 1, ...
+ *
+ * Configurations run in parallel, by instance; the solvers of an instance run
+ * sequentially. Each run is measured separately, so that the raw numbers can
+ * be written and read back (see {@link #writeCsv(List, Writer)}), along with
+ * their summaries in the format of <code>results/ramchurns-benchmark.txt</code>
+ * (see {@link #writeText(List, int, Writer)}) and in JSON, with confidence
+ * intervals of the computational times.
+ *
+ * @author lcpz
+ */
+public class ScalabilitySweep {
+
+	public static final String[] DEFAULT_SOLVERS = { "EDF", "CFLA", "CFLA2", "CTS" };
+
+	/* The configurations of results/ramchurns-benchmark.txt */
+	public static final int[] DEFAULT_AGENTS = { 2, 4, 6, 8, 10, 12, 14, 16, 18, 20, 25, 30, 35, 40 };
+	public static final int DEFAULT_TASKS = 300, DEFAULT_INSTANCES = 100;
+
+	/* The confidence level of the intervals of the means */
+	public static final double CONFIDENCE = 0.95;
+
+	/* The measures of a solver on an instance */
+	public static class Run {
+		private final String solver;
+		private final int agents, tasks, timeSteps;
+		private final long seed, nanos;
+		private final float completedTaskPercentage, avgTravelTime, avgCompletionTime;
+
+		Run(String solver, int agents, int tasks, long seed, Solver s, long nanos) {
+			this.solver = solver;
+			this.agents = agents;
+			this.tasks = tasks;
+			this.seed = seed;
+			this.nanos = nanos;
+			timeSteps = s.getCurrentTime();
+			completedTaskPercentage = s.getResults().getCompletedTaskPercentage();
+			avgTravelTime = s.getResults().getAvgTravelTime();
+			avgCompletionTime = s.getResults().getAvgCompletionTime();
+		}
+
+		Run(String solver, int agents, int tasks, long seed, float completedTaskPercentage, float avgTravelTime,
+				float avgCompletionTime, int timeSteps, long nanos) {
+			this.solver = solver;
+			this.agents = agents;
+			this.tasks = tasks;
+			this.seed = seed;
+			this.completedTaskPercentage = completedTaskPercentage;
+			this.avgTravelTime = avgTravelTime;
+			this.avgCompletionTime = avgCompletionTime;
+			this.timeSteps = timeSteps;
+			this.nanos = nanos;
+		}
+
+		public String getSolver() {
+			return solver;
+		}
+
+		public int getAgents() {
+			return agents;
+		}
+
+		public int getTasks() {
+			return tasks;
+		}
+
+		public long getSeed() {
+			return seed;
+		}
+
+		public float getCompletedTaskPercentage() {
+			return completedTaskPercentage;
+		}
+
+		public float getAvgTravelTime() {
+			return avgTravelTime;
+		}
+
+		public float getAvgCompletionTime() {
+			return avgCompletionTime;
+		}
+
+		public int getTimeSteps() {
+			return timeSteps;
+		}
+
+		public double getMillis() {
+			return nanos / 1e6;
+		}
+	}
+
+	/* The mean, minimum, maximum and standard deviation of a sample */
+	public static class Statistics {
+		private final int n;
+		private double mean, min = Double.MAX_VALUE, max = -Double.MAX_VALUE, sd;
+
+		Statistics(double[] sample) {
+			n = sample.length;
+			for (double x : sample) {
+				mean += x;
+				min = Math.min(min, x);
+				max = Math.max(max, x);
+			}
+			mean /= n;
+
+			for (double x : sample)
+				sd += (x - mean) * (x - mean);
+			sd = n > 1 ? Math.sqrt(sd / (n - 1)) : 0;
+		}
+
+		public double getMean() {
+			return mean;
+		}
+
+		public double getMin() {
+			return min;
+		}
+
+		public double getMax() {
+			return max;
+		}
+
+		public double getStandardDeviation() {
+			return sd;
+		}
+
+		/**
+		 * @return The half-width of the confidence interval of the mean (see
+		 *         {@link ScalabilitySweep#CONFIDENCE}), with Student's t
+		 *         distribution; 0 with a single value.
+		 */
+		public double getConfidenceInterval() {
+			if (n < 2)
+				return 0;
+			double t = new TDistribution(n - 1).inverseCumulativeProbability(1 - (1 - CONFIDENCE) / 2);
+			return t * sd / Math.sqrt(n);
+		}
+	}
+
+	/* The measures of a solver on the instances of a configuration */
+	public static class Summary {
+		private final String solver;
+		private final int agents, tasks, instances;
+		private final Statistics completedTaskPercentage, avgTravelTime, avgCompletionTime, timeSteps, millis;
+
+		Summary(String solver, int agents, int tasks, List<Run> runs) {
+			this.solver = solver;
+			this.agents = agents;
+			this.tasks = tasks;
+			instances = runs.size();
+
+			double[][] samples = new double[5][instances];
+			for (int i = 0; i < instances; i++) {
+				Run r = runs.get(i);
+				samples[0][i] = r.completedTaskPercentage;
+				samples[1][i] = r.avgTravelTime;
+				samples[2][i] = r.avgCompletionTime;
+				samples[3][i] = r.timeSteps;
+				samples[4][i] = r.getMillis();
+			}
+
+			completedTaskPercentage = new Statistics(samples[0]);
+			avgTravelTime = new Statistics(samples[1]);
+			avgCompletionTime = new Statistics(samples[2]);
+			timeSteps = new Statistics(samples[3]);
+			millis = new Statistics(samples[4]);
+		}
+
+		public String getSolver() {
+			return solver;
+		}
+
+		public int getAgents() {
+			return agents;
+		}
+
+		public int getTasks() {
+			return tasks;
+		}
+
+		public int getInstances() {
+			return instances;
+		}
+
+		public Statistics getCompletedTaskPercentage() {
+			return completedTaskPercentage;
+		}
+
+		public Statistics getAvgTravelTime() {
+			return avgTravelTime;
+		}
+
+		public Statistics getAvgCompletionTime() {
+			return avgCompletionTime;
+		}
+
+		public Statistics getTimeSteps() {
+			return timeSteps;
+		}
+
+		public Statistics getMillis() {
+			return millis;
+		}
+	}
+
+	private final String[] solverIds;
+
+	private final int[] agents, tasks;
+
+	private final InstanceGenerator generator;
+
+	private final int instances, jobs;
+
+	private final long seed;
+
+	/**
+	 * @param solverIds The solvers (see {@link Portfolio#newSolver(String, model.CFSTP)}).
+	 * @param agents    The numbers of agents.
+	 * @param tasks     The numbers of tasks.
+	 * @param generator The generator of the instances.
+	 * @param instances The number of instances per configuration.
+	 * @param seed      The seed of the first instance of each configuration.
+	 * @param jobs      The number of instances solved in parallel: with more than
+	 *                  one, computational times include the interference of the
+	 *                  other jobs.
+	 */
+	public ScalabilitySweep(String[] solverIds, int[] agents, int[] tasks, InstanceGenerator generator, int instances,
+			long seed, int jobs) {
+		this.solverIds = solverIds;
+		this.agents = agents;
+		this.tasks = tasks;
+		this.generator = generator;
+		this.instances = instances;
+		this.seed = seed;
+		this.jobs = jobs;
+	}
+
+	/**
+	 * Run the sweep.
+	 *
+	 * @return The runs, ordered by number of tasks, number of agents, instance
+	 *         and solver.
+	 */
+	public List<Run> run() {
+		List<Callable<Run[]>> calls = new ArrayList<>();
+
+		for (final int v : tasks)
+			for (final int a : agents)
+				for (int k = 0; k < instances; k++) {
+					final long s = seed + k;
+					calls.add(new Callable<Run[]>() {
+						@Override
+						public Run[] call() {
+							return solve(a, v, s);
+						}
+					});
+				}
+
+		List<Run> runs = new ArrayList<>();
+		ExecutorService executor = Executors.newFixedThreadPool(jobs);
+		try {
+			for (Future<Run[]> f : executor.invokeAll(calls))
+				for (Run r : f.get())
+					runs.add(r);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("sweep interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		return runs;
+	}
+
+	/* Solve an instance with every solver */
+	private Run[] solve(int a, int v, long s) {
+		GridProblem problem = generator.generate(a, v, s);
+		Run[] runs = new Run[solverIds.length];
+
+		for (int i = 0; i < solverIds.length; i++) {
+			Solver solver = Portfolio.newSolver(solverIds[i], problem);
+			long t = System.nanoTime();
+			solver.solve();
+			runs[i] = new Run(solverIds[i], a, v, s, solver, System.nanoTime() - t);
+		}
+
+		return runs;
+	}
+
+	/**
+	 * @param runs The runs of {@link #run()}.
+	 *
+	 * @return The summaries of each solver and configuration, in the order of
+	 *         runs.
+	 */
+	public static List<Summary> summarise(List<Run> runs) {
+		List<Summary> summaries = new ArrayList<>();
+		List<String> keys = new ArrayList<>();
+		List<List<Run>> groups = new ArrayList<>();
+
+		for (Run r : runs) {
+			String key = r.solver + " " + r.agents + " " + r.tasks;
+			int i = keys.indexOf(key);
+			if (i < 0) {
+				keys.add(key);
+				groups.add(new ArrayList<Run>());
+				i = keys.size() - 1;
+			}
+			groups.get(i).add(r);
+		}
+
+		for (List<Run> g : groups)
+			summaries.add(new Summary(g.get(0).solver, g.get(0).agents, g.get(0).tasks, g));
+
+		return summaries;
+	}
+
+	private static String nf(double d) {
+		return String.format(Locale.ROOT, "%.2f", d);
+	}
+
+	/* mean \u00B1 [mean - min, max - mean] */
+	private static String format(Statistics s, double scale, String unit) {
+		double mean = s.getMean() * scale;
+		return String.format("%s%s \u00B1 [%s, %s]", nf(mean), unit, nf(mean - s.getMin() * scale),
+				nf(s.getMax() * scale - mean));
+	}
+
+	/**
+	 * Write summaries in the format of <code>results/ramchurns-benchmark.txt</code>,
+	 * with a section per number of tasks.
+	 *
+	 * @param summaries The summaries.
+	 * @param worldDim  The side of the grid of the instances.
+	 * @param out       The output, which is not closed.
+	 *
+	 * @throws IOException If out cannot be written.
+	 */
+	public static void writeText(List<Summary> summaries, int worldDim, Writer out) throws IOException {
+		int tasks = -1, agents = -1;
+
+		for (Summary s : summaries) {
+			if (s.tasks != tasks) {
+				if (tasks != -1)
+					out.write("\n");
+				out.write(String.format("[%d random CFSTP instances, %d tasks, %d world_dim]\n", s.instances, s.tasks,
+						worldDim));
+				out.write("avg(completed tasks, agent travel time, task completion time, problem completion time, computational time)\n");
+				tasks = s.tasks;
+				agents = -1;
+			}
+
+			if (s.agents != agents) {
+				out.write(String.format("\n[%d agents]\n\n", s.agents));
+				agents = s.agents;
+			}
+
+			out.write(String.format("%6s = (%s, %s, %s, %s, %s)\n", s.solver,
+					format(s.completedTaskPercentage, 100, "%"), format(s.avgTravelTime, 1, ""),
+					format(s.avgCompletionTime, 1, ""), format(s.timeSteps, 1, ""), format(s.millis, 1, " ms")));
+		}
+	}
+
+	/**
+	 * Write runs as CSV, with a header line.
+	 *
+	 * @param runs The runs.
+	 * @param out  The output, which is not closed.
+	 *
+	 * @throws IOException If out cannot be written.
+	 */
+	public static void writeCsv(List<Run> runs, Writer out) throws IOException {
+		out.write("solver,agents,tasks,seed,completed,travel_time,completion_time,time_steps,time_ms\n");
+		for (Run r : runs)
+			out.write(String.format(Locale.ROOT, "%s,%d,%d,%d,%.4f,%.4f,%.4f,%d,%.3f\n", r.solver, r.agents, r.tasks,
+					r.seed, r.completedTaskPercentage, r.avgTravelTime, r.avgCompletionTime, r.timeSteps,
+					r.getMillis()));
+	}
+
+	/**
+	 * Read runs written by {@link #writeCsv(List, Writer)}.
+	 *
+	 * @param in The input, which is not closed.
+	 *
+	 * @return The runs.
+	 *
+	 * @throws IOException If in cannot be read, or it is not in that format.
+	 */
+	public static List<Run> readCsv(Reader in) throws IOException {
+		BufferedReader reader = new BufferedReader(in);
+		List<Run> runs = new ArrayList<>();
+		String line = reader.readLine();
+
+		if (line == null || !line.startsWith("solver,"))
+			throw new IOException("missing CSV header");
+
+		int n = 1;
+		while ((line = reader.readLine()) != null) {
+			n++;
+			if (line.isEmpty())
+				continue;
+
+			String[] f = line.split(",");
+			if (f.length != 9)
+				throw new IOException(String.format("line %d: expected 9 fields, found %d", n, f.length));
+
+			try {
+				runs.add(new Run(f[0], Integer.parseInt(f[1]), Integer.parseInt(f[2]), Long.parseLong(f[3]),
+						Float.parseFloat(f[4]), Float.parseFloat(f[5]), Float.parseFloat(f[6]), Integer.parseInt(f[7]),
+						Math.round(Double.parseDouble(f[8]) * 1e6)));
+			} catch (NumberFormatException e) {
+				throw new IOException(String.format("line %d: %s", n, e.getMessage()));
+			}
+		}
+
+		return runs;
+	}
+
+	private static String toJson(Statistics s) {
+		return String.format(Locale.ROOT, "{\"mean\": %.4f, \"min\": %.4f, \"max\": %.4f, \"sd\": %.4f, \"ci\": %.4f}",
+				s.getMean(), s.getMin(), s.getMax(), s.getStandardDeviation(), s.getConfidenceInterval());
+	}
+
+	/**
+	 * Write summaries and runs as a JSON object, with the fields "confidence",
+	 * "summaries" and "runs". The statistics of a summary have the fields "mean",
+	 * "min", "max", "sd" and "ci" (the half-width of the confidence interval).
+	 *
+	 * @param summaries The summaries.
+	 * @param runs      The runs.
+	 * @param out       The output, which is not closed.
+	 *
+	 * @throws IOException If out cannot be written.
+	 */
+	public static void writeJson(List<Summary> summaries, List<Run> runs, Writer out) throws IOException {
+		out.write(String.format(Locale.ROOT, "{\n  \"confidence\": %.2f,\n  \"summaries\": [", CONFIDENCE));
+		for (int i = 0; i < summaries.size(); i++) {
+			Summary s = summaries.get(i);
+			out.write(i == 0 ? "\n" : ",\n");
+			out.write(String.format(
+					"    {\"solver\": \"%s\", \"agents\": %d, \"tasks\": %d, \"instances\": %d,\n"
+							+ "     \"completed\": %s,\n     \"travel_time\": %s,\n     \"completion_time\": %s,\n"
+							+ "     \"time_steps\": %s,\n     \"time_ms\": %s}",
+					s.solver, s.agents, s.tasks, s.instances, toJson(s.completedTaskPercentage),
+					toJson(s.avgTravelTime), toJson(s.avgCompletionTime), toJson(s.timeSteps), toJson(s.millis)));
+		}
+		out.write("\n  ],\n  \"runs\": [");
+		for (int i = 0; i < runs.size(); i++) {
+			Run r = runs.get(i);
+			out.write(i == 0 ? "\n" : ",\n");
+			out.write(String.format(Locale.ROOT,
+					"    {\"solver\": \"%s\", \"agents\": %d, \"tasks\": %d, \"seed\": %d, \"completed\": %.4f, "
+							+ "\"travel_time\": %.4f, \"completion_time\": %.4f, \"time_steps\": %d, \"time_ms\": %.3f}",
+					r.solver, r.agents, r.tasks, r.seed, r.completedTaskPercentage, r.avgTravelTime,
+					r.avgCompletionTime, r.timeSteps, r.getMillis()));
+		}
+		out.write("\n  ]\n}\n");
+	}
+
+}
@@ -0,0 +1,375 @@
+package cli;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import benchmark.ScalabilitySweep;
+import distributed.LocalCluster;
+import model.Allocation;
+import model.CFSTP;
+import model.GridProblem;
+import model.InstanceGenerator;
+import model.InstanceGenerator.Layout;
+import model.Results;
+import model.XCSP3Importer;
+import service.SolverService;
+import solvers.DistributedCTS;
+import solvers.Portfolio;
+import solvers.Solver;
+
+/**
+ * Command-line entry point, with the subcommands:
+ *
+ * <pre>
+ * generate --agents N --tasks M [--world D] [--seed S] [--layout L] [--clusters K] [--threads T] [--output FILE]
+ * solve    --solver ID [--schedule] FILE
+ * sweep    [--solvers ID,...] [--agents N,...] [--tasks M,...] [--world D] [--seed S] [--layout L] [--repetitions R] [--jobs J] [--output PREFIX]
+ * serve    [--port P] [--workers W] [--queue Q] [--timeout MS]
+ * distributed --owners W,... FILE
+ * </pre>
+ *
+ * Instances are in the format of {@link GridProblem}, or in XCSP3 if their
+ * names end with .xml or .xml.gz (see {@link XCSP3Importer}). They are
+ * generated by {@link InstanceGenerator}, with a layout among uniform (default)
+ * and clustered. Solver identifiers are those of
+ * {@link Portfolio#newSolver(String, CFSTP)}. sweep runs a
+ * {@link ScalabilitySweep}, by default with the configurations of
+ * <code>results/ramchurns-benchmark.txt</code>; with --output, it also writes
+ * PREFIX.txt (in the format of that file), PREFIX.json and PREFIX.csv. The
+ * service started by serve is described in {@link SolverService}; distributed
+ * solves an instance with {@link DistributedCTS}, with task owners in child
+ * JVMs. Solver debug output is disabled, unless
+ * <code>-Dcfstp.debug=true</code> is given.
+ *
+ * @author lcpz
+ */
+public class Main {
+
+	public static final int OK = 0, ERROR = 1, USAGE = 2;
+
+	public static final int DEFAULT_WORLD_DIM = 50, DEFAULT_REPETITIONS = 1;
+
+	public static final long DEFAULT_SEED = 0;
+
+	static final String USAGE_TEXT = String.join(System.lineSeparator(),
+			"Usage: cfstp <command> [options]",
+			"  generate --agents N --tasks M [--world D] [--seed S] [--layout L] [--clusters K] [--threads T] [--output FILE]",
+			"  solve    --solver ID [--schedule] FILE",
+			"  sweep    [--solvers ID,...] [--agents N,...] [--tasks M,...] [--world D] [--seed S] [--layout L] [--repetitions R] [--jobs J] [--output PREFIX]",
+			"  serve    [--port P] [--workers W] [--queue Q] [--timeout MS]",
+			"  distributed --owners W,... FILE",
+			"Layouts: uniform, clustered",
+			"Solver identifiers: EDF, CFLA, CFLA2, CTS, BNB");
+
+	/* Options without value */
+	private static final String[] FLAGS = { "--schedule" };
+
+	public static void main(String[] args) {
+		/* before any solver class is initialised */
+		if (System.getProperty("cfstp.debug") == null)
+			System.setProperty("cfstp.debug", "false");
+
+		System.exit(run(args, System.out));
+	}
+
+	/**
+	 * Run a subcommand.
+	 *
+	 * @param args The subcommand and its options.
+	 * @param out  Where to print the output.
+	 *
+	 * @return The exit status: {@link #OK}, {@link #ERROR} if the subcommand
+	 *         failed, or {@link #USAGE} if the arguments are not valid.
+	 */
+	public static int run(String[] args, PrintStream out) {
+		if (args.length == 0) {
+			out.println(USAGE_TEXT);
+			return USAGE;
+		}
+
+		Map<String, String> options = new HashMap<>();
+		List<String> operands = new ArrayList<>();
+
+		try {
+			parse(args, options, operands);
+
+			switch (args[0]) {
+			case "generate":
+				return generate(options, out);
+			case "solve":
+				if (operands.size() != 1)
+					throw new IllegalArgumentException("solve requires exactly one instance file");
+				return solve(options, operands.get(0), out);
+			case "sweep":
+				return sweep(options, out);
+			case "serve":
+				return serve(options, out);
+			case "distributed":
+				if (operands.size() != 1)
+					throw new IllegalArgumentException("distributed requires exactly one instance file");
+				return distributed(options, operands.get(0), out);
+			case "help":
+			case "--help":
+				out.println(USAGE_TEXT);
+				return OK;
+			default:
+				throw new IllegalArgumentException(String.format("unknown command \"%s\"", args[0]));
+			}
+		} catch (IllegalArgumentException e) {
+			out.println("cfstp: " + e.getMessage());
+			out.println(USAGE_TEXT);
+			return USAGE;
+		} catch (IOException e) {
+			out.println("cfstp: " + e.getMessage());
+			return ERROR;
+		}
+	}
+
+	private static void parse(String[] args, Map<String, String> options, List<String> operands) {
+		for (int i = 1; i < args.length; i++) {
+			if (!args[i].startsWith("--")) {
+				operands.add(args[i]);
+				continue;
+			}
+
+			boolean flag = false;
+			for (String f : FLAGS)
+				if (f.equals(args[i]))
+					flag = true;
+
+			if (flag)
+				options.put(args[i], "true");
+			else if (i + 1 < args.length)
+				options.put(args[i], args[++i]);
+			else
+				throw new IllegalArgumentException(String.format("option %s requires a value", args[i]));
+		}
+	}
+
+	private static String getOption(Map<String, String> options, String name, String defaultValue) {
+		String value = options.get(name);
+		if (value == null) {
+			if (defaultValue == null)
+				throw new IllegalArgumentException(String.format("option %s is required", name));
+			return defaultValue;
+		}
+		return value;
+	}
+
+	private static int[] parseInts(String s, String name) {
+		String[] tokens = s.split(",");
+		int[] ints = new int[tokens.length];
+		for (int i = 0; i < tokens.length; i++) {
+			try {
+				ints[i] = Integer.parseInt(tokens[i].trim());
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException(String.format("option %s: \"%s\" is not an integer", name, tokens[i]));
+			}
+			if (ints[i] <= 0)
+				throw new IllegalArgumentException(String.format("option %s: %d is not positive", name, ints[i]));
+		}
+		return ints;
+	}
+
+	private static int parseInt(Map<String, String> options, String name, String defaultValue) {
+		int[] ints = parseInts(getOption(options, name, defaultValue), name);
+		if (ints.length != 1)
+			throw new IllegalArgumentException(String.format("option %s requires a single value", name));
+		return ints[0];
+	}
+
+	private static long parseSeed(Map<String, String> options) {
+		String seed = getOption(options, "--seed", String.valueOf(DEFAULT_SEED));
+		try {
+			return Long.parseLong(seed);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(String.format("option --seed: \"%s\" is not an integer", seed));
+		}
+	}
+
+	private static InstanceGenerator newGenerator(Map<String, String> options) {
+		String layout = getOption(options, "--layout", Layout.UNIFORM.name());
+		Layout l;
+		try {
+			l = Layout.valueOf(layout.toUpperCase());
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException(String.format("option --layout: unknown layout \"%s\"", layout));
+		}
+
+		return new InstanceGenerator(parseInt(options, "--world", String.valueOf(DEFAULT_WORLD_DIM)), l,
+				parseInt(options, "--clusters", String.valueOf(InstanceGenerator.DEFAULT_CLUSTERS)),
+				parseInt(options, "--threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+	}
+
+	private static Solver newSolver(String solverId, CFSTP problem) {
+		/* Portfolio.newSolver throws IllegalArgumentException on unknown identifiers */
+		return Portfolio.newSolver(solverId, problem);
+	}
+
+	static int generate(Map<String, String> options, PrintStream out) throws IOException {
+		GridProblem problem = newGenerator(options).generate(parseInt(options, "--agents", null),
+				parseInt(options, "--tasks", null), parseSeed(options));
+
+		String output = options.get("--output");
+		if (output == null) {
+			Writer w = new OutputStreamWriter(out);
+			GridProblem.write(problem, w);
+		} else
+			try (Writer w = new FileWriter(output)) {
+				GridProblem.write(problem, w);
+			}
+
+		return OK;
+	}
+
+	private static GridProblem read(String file) throws IOException {
+		if (file.endsWith(".xml") || file.endsWith(".xml.gz"))
+			return XCSP3Importer.read(new File(file));
+
+		try (Reader r = new FileReader(new File(file))) {
+			return GridProblem.read(r);
+		}
+	}
+
+	static int solve(Map<String, String> options, String file, PrintStream out) throws IOException {
+		String solverId = getOption(options, "--solver", null);
+		GridProblem problem = read(file);
+
+		Solver s = newSolver(solverId, problem);
+		long t = System.currentTimeMillis();
+		s.solve();
+		t = System.currentTimeMillis() - t;
+
+		Results r = s.getResults();
+		out.println(String.format("%s: completed %.2f%%, avg. travel time %.2f, avg. completion time %.2f, %d time steps, %d ms",
+				solverId, r.getCompletedTaskPercentage() * 100, r.getAvgTravelTime(), r.getAvgCompletionTime(),
+				s.getCurrentTime(), t));
+		out.println("step decision times: " + s.getStepLatencies());
+
+		if (options.containsKey("--schedule"))
+			for (Allocation a : s.getSchedule())
+				out.println(a);
+
+		return OK;
+	}
+
+	private static String join(int[] ints) {
+		StringBuilder sb = new StringBuilder();
+		for (int i : ints)
+			sb.append(sb.length() > 0 ? "," : "").append(i);
+		return sb.toString();
+	}
+
+	static int sweep(Map<String, String> options, PrintStream out) throws IOException {
+		String[] solverIds = getOption(options, "--solvers", String.join(",", ScalabilitySweep.DEFAULT_SOLVERS))
+				.split(",");
+		int[] agents = parseInts(getOption(options, "--agents", join(ScalabilitySweep.DEFAULT_AGENTS)), "--agents");
+		int[] tasks = parseInts(getOption(options, "--tasks", String.valueOf(ScalabilitySweep.DEFAULT_TASKS)),
+				"--tasks");
+		int world = parseInt(options, "--world", String.valueOf(DEFAULT_WORLD_DIM));
+		int repetitions = parseInt(options, "--repetitions", String.valueOf(DEFAULT_REPETITIONS));
+		int jobs = parseInt(options, "--jobs", "1");
+		long seed = parseSeed(options);
+		String output = options.get("--output");
+
+		/* validate the identifiers before solving anything */
+		GridProblem empty = GridProblem.generate(1, 1, 1, seed);
+		for (String id : solverIds)
+			newSolver(id, empty);
+
+		ScalabilitySweep sweep = new ScalabilitySweep(solverIds, agents, tasks, newGenerator(options), repetitions,
+				seed, jobs);
+		List<ScalabilitySweep.Run> runs = sweep.run();
+		List<ScalabilitySweep.Summary> summaries = ScalabilitySweep.summarise(runs);
+
+		out.println(String.format("%-8s %6s %6s %12s %12s %12s %10s %10s", "Solver", "Agents", "Tasks", "Completed %",
+				"Travel time", "Time steps", "Time (ms)", "95% CI"));
+
+		for (ScalabilitySweep.Summary s : summaries)
+			out.println(String.format("%-8s %6d %6d %12.2f %12.2f %12.1f %10.1f %10.1f", s.getSolver(), s.getAgents(),
+					s.getTasks(), s.getCompletedTaskPercentage().getMean() * 100, s.getAvgTravelTime().getMean(),
+					s.getTimeSteps().getMean(), s.getMillis().getMean(), s.getMillis().getConfidenceInterval()));
+
+		if (output != null) {
+			try (Writer w = new OutputStreamWriter(new FileOutputStream(output + ".txt"), StandardCharsets.UTF_8)) {
+				ScalabilitySweep.writeText(summaries, world, w);
+			}
+			try (Writer w = new OutputStreamWriter(new FileOutputStream(output + ".json"), StandardCharsets.UTF_8)) {
+				ScalabilitySweep.writeJson(summaries, runs, w);
+			}
+			try (Writer w = new OutputStreamWriter(new FileOutputStream(output + ".csv"), StandardCharsets.UTF_8)) {
+				ScalabilitySweep.writeCsv(runs, w);
+			}
+			out.println(String.format("wrote %s.txt, %s.json and %s.csv", output, output, output));
+		}
+
+		return OK;
+	}
+
+	static int serve(Map<String, String> options, PrintStream out) throws IOException {
+		final SolverService service = new SolverService(
+				parseInt(options, "--port", String.valueOf(SolverService.DEFAULT_PORT)),
+				parseInt(options, "--workers", String.valueOf(Runtime.getRuntime().availableProcessors())),
+				parseInt(options, "--queue", String.valueOf(SolverService.DEFAULT_QUEUE_CAPACITY)),
+				SolverService.DEFAULT_BATCH_SIZE, SolverService.DEFAULT_SMALL_SIZE,
+				parseInt(options, "--timeout", String.valueOf(SolverService.DEFAULT_TIMEOUT)));
+
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				service.stop();
+			}
+		});
+
+		service.start();
+		out.println(String.format("listening on http://localhost:%d%s", service.getPort(), SolverService.PATH));
+
+		try {
+			service.join();
+		} catch (InterruptedException e) {
+			service.stop();
+		}
+
+		return OK;
+	}
+
+	static int distributed(Map<String, String> options, String file, PrintStream out) throws IOException {
+		int[] owners = parseInts(getOption(options, "--owners", null), "--owners");
+		GridProblem problem = read(file);
+
+		out.println(String.format("%6s %12s %10s %12s %10s %10s %10s", "Owners", "Completed %", "Time steps",
+				"Msgs/step", "KB/step", "Time (ms)", "Efficiency"));
+
+		/* the efficiency is relative to the first number of owners */
+		float baseline = 0;
+		for (int w : owners)
+			try (LocalCluster cluster = new LocalCluster(w)) {
+				DistributedCTS s = new DistributedCTS(problem, cluster.getAddresses());
+				long t = System.currentTimeMillis();
+				s.solve();
+				t = Math.max(1, System.currentTimeMillis() - t);
+
+				if (baseline == 0)
+					baseline = t * w;
+
+				out.println(String.format("%6d %12.2f %10d %12.1f %10.2f %10d %10.2f", w,
+						s.getResults().getCompletedTaskPercentage() * 100, s.getNumberOfSteps(),
+						s.getMessagesPerStep(), s.getBytesPerStep() / 1024, t, baseline / (t * w)));
+			}
+
+		return OK;
+	}
+
+}
@@ -0,0 +1,81 @@
+package distributed;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Task owners (see {@link TaskOwner}) running in child JVMs on this machine,
+ * with the class path of this one.
+ *
+ * @author lcpz
+ */
+public class LocalCluster implements Closeable {
+
+	private final List<Process> processes = new ArrayList<>();
+
+	private final List<InetSocketAddress> addresses = new ArrayList<>();
+
+	/**
+	 * Launch task owners, and wait until they listen.
+	 *
+	 * @param owners   The number of owners.
+	 * @param jvmFlags Flags of the child JVMs (e.g., "-Xmx1g").
+	 *
+	 * @throws IOException If an owner cannot be launched.
+	 */
+	public LocalCluster(int owners, String... jvmFlags) throws IOException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+
+		try {
+			for (int i = 0; i < owners; i++) {
+				List<String> command = new ArrayList<>();
+				command.add(java);
+				for (String flag : jvmFlags)
+					command.add(flag);
+				command.add("-cp");
+				command.add(System.getProperty("java.class.path"));
+				command.add(TaskOwner.class.getName());
+
+				processes.add(new ProcessBuilder(command).redirectErrorStream(true).start());
+			}
+
+			/* each owner prints its port when it listens */
+			for (Process p : processes) {
+				BufferedReader r = new BufferedReader(
+						new InputStreamReader(p.getInputStream(), StandardCharsets.US_ASCII));
+				String line = r.readLine();
+				if (line == null || !line.startsWith(Protocol.READY + " "))
+					throw new IOException(String.format("task owner failed to start: %s", line));
+				addresses.add(new InetSocketAddress("localhost",
+						Integer.parseInt(line.substring(Protocol.READY.length() + 1))));
+			}
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return The addresses of the owners.
+	 */
+	public List<InetSocketAddress> getAddresses() {
+		return addresses;
+	}
+
+	/**
+	 * Terminate the owners.
+	 */
+	@Override
+	public void close() {
+		for (Process p : processes)
+			p.destroy();
+	}
+
+}
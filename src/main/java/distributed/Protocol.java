@@ -0,0 +1,56 @@
+package distributed;
+
+/**
+ * The binary protocol between a coordinator ({@link solvers.DistributedCTS})
+ * and the task owners ({@link TaskOwner}), over TCP. Each message is an opcode
+ * followed by big-endian ints (see {@link java.io.DataOutput}); each request,
+ * except {@link #END}, gets a reply.
+ *
+ * <pre>
+ * INIT  owner owners agents n (task x y deadline workload)*n  ->  n
+ * QUERY time n (agent x y)*n                                  ->  (task deadline arrival)*2n
+ * CLAIM time n (agent task)*n                                 ->  accepted*n (byte)
+ * STEP  time n (agent task)*n                                 ->  m (task agent)*m
+ *                                                                 k (task completionTime w agent*w)*k
+ * END
+ * </pre>
+ *
+ * QUERY returns, for each agent, the best unallocated and the best allocated
+ * task of the owner that the agent can reach by its deadline, or -1 (see
+ * {@link solvers.CTS#getTaskAllocableToAgent(int)}). CLAIM accepts the first
+ * claim of each task per time step. STEP gives the agents that arrived at their
+ * tasks, and returns the allocations and the completions of the time step.
+ *
+ * @author lcpz
+ */
+public final class Protocol {
+
+	public static final byte INIT = 1, QUERY = 2, CLAIM = 3, STEP = 4, END = 5;
+
+	/* Printed by a task owner process when it listens, followed by its port */
+	public static final String READY = "ready";
+
+	private Protocol() {
+	}
+
+	/**
+	 * @param task   A task identifier.
+	 * @param owners The number of owners.
+	 *
+	 * @return The owner of the task: tasks are split by identifier.
+	 */
+	public static int getOwner(int task, int owners) {
+		return task % owners;
+	}
+
+	/**
+	 * @param task   A task identifier.
+	 * @param owners The number of owners.
+	 *
+	 * @return The index of the task among those of its owner.
+	 */
+	public static int getLocalIndex(int task, int owners) {
+		return task / owners;
+	}
+
+}
@@ -0,0 +1,257 @@
+package distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+
+import model.GridProblem;
+import toolkit.Coalition;
+
+/**
+ * A process owning a subset of the tasks of a distributed CTS (see
+ * {@link solvers.DistributedCTS}): it keeps their status, workloads and
+ * coalitions, and answers the requests of a coordinator (see
+ * {@link Protocol}), one connection at a time.
+ *
+ * Travel times and coalition values are those of {@link GridProblem}.
+ *
+ * Usage: <code>java distributed.TaskOwner [port]</code>. It prints
+ * {@link Protocol#READY} and its port when it listens.
+ *
+ * @author lcpz
+ */
+public class TaskOwner implements Closeable {
+
+	private static final byte NOT_COMPLETED = 0, ALLOCATED = 1, COMPLETED = 2;
+
+	private final ServerSocket server;
+
+	/* The state of the tasks of a coordinator */
+	private static class Session {
+		int owners;
+
+		/* The owned tasks, by local index */
+		GridProblem problem;
+		int[] ids, deadlines, completionTime;
+		float[] workloads;
+		byte[] status;
+		Coalition[] working;
+
+		/* The time step of the last claim of each task, and its agent */
+		int[] claimTime, claimant;
+
+		void init(DataInputStream in, DataOutputStream out) throws IOException {
+			in.readInt(); // owner index: the task identifiers are sent
+			owners = in.readInt();
+			int agents = in.readInt(), n = in.readInt();
+
+			ids = new int[n];
+			int[] x = new int[n], y = new int[n], w = new int[n];
+			deadlines = new int[n];
+			for (int l = 0; l < n; l++) {
+				ids[l] = in.readInt();
+				x[l] = in.readInt();
+				y[l] = in.readInt();
+				deadlines[l] = in.readInt();
+				w[l] = in.readInt();
+			}
+
+			problem = new GridProblem(new int[0], new int[0], x, y, deadlines, w);
+			completionTime = new int[n];
+			workloads = new float[n];
+			status = new byte[n];
+			working = new Coalition[n];
+			claimTime = new int[n];
+			claimant = new int[n];
+
+			for (int l = 0; l < n; l++) {
+				workloads[l] = w[l];
+				working[l] = new Coalition(agents);
+			}
+			Arrays.fill(status, NOT_COMPLETED);
+			Arrays.fill(claimTime, -1);
+
+			out.writeInt(n);
+		}
+
+		boolean isAllocable(int l, int time) {
+			return status[l] != COMPLETED && claimTime[l] != time;
+		}
+
+		/* As CTS.getTaskAllocableToAgent, for the owned tasks */
+		void query(DataInputStream in, DataOutputStream out) throws IOException {
+			int time = in.readInt(), n = in.readInt();
+			int[] bestTask = new int[2], bestDeadline = new int[2], bestArrivalTime = new int[2];
+
+			for (int i = 0; i < n; i++) {
+				int a = in.readInt(), x = in.readInt(), y = in.readInt();
+				Arrays.fill(bestTask, -1);
+				Arrays.fill(bestDeadline, Integer.MAX_VALUE);
+				Arrays.fill(bestArrivalTime, Integer.MAX_VALUE);
+
+				for (int l = 0; l < ids.length; l++)
+					if (isAllocable(l, time)) {
+						int idx = status[l] == ALLOCATED ? 1 : 0;
+						int arrivalTime = time + problem.getAgentTravelTime(a, x, y, l);
+						if (arrivalTime <= deadlines[l] && deadlines[l] < bestDeadline[idx]
+								&& arrivalTime < bestArrivalTime[idx]) {
+							bestDeadline[idx] = deadlines[l];
+							bestArrivalTime[idx] = arrivalTime;
+							bestTask[idx] = ids[l];
+						}
+					}
+
+				for (int idx = 0; idx < 2; idx++) {
+					out.writeInt(bestTask[idx]);
+					out.writeInt(bestDeadline[idx]);
+					out.writeInt(bestArrivalTime[idx]);
+				}
+			}
+		}
+
+		void claim(DataInputStream in, DataOutputStream out) throws IOException {
+			int time = in.readInt(), n = in.readInt();
+
+			for (int i = 0; i < n; i++) {
+				int a = in.readInt(), l = Protocol.getLocalIndex(in.readInt(), owners);
+
+				boolean accepted = isAllocable(l, time);
+				if (accepted) {
+					claimTime[l] = time;
+					claimant[l] = a;
+				}
+				out.writeByte(accepted ? 1 : 0);
+			}
+		}
+
+		/* As the task phase of CTS, for the owned tasks */
+		void step(DataInputStream in, DataOutputStream out) throws IOException {
+			int time = in.readInt(), n = in.readInt();
+
+			for (int i = 0; i < n; i++) {
+				int a = in.readInt(), l = Protocol.getLocalIndex(in.readInt(), owners);
+				if (status[l] != COMPLETED)
+					working[l].add(a);
+			}
+
+			/* allocations: a claimed task is allocated to its claimant */
+			int m = 0;
+			for (int l = 0; l < ids.length; l++)
+				if (claimTime[l] == time)
+					m++;
+
+			out.writeInt(m);
+			for (int l = 0; l < ids.length; l++)
+				if (claimTime[l] == time) {
+					status[l] = ALLOCATED;
+					out.writeInt(ids[l]);
+					out.writeInt(claimant[l]);
+				}
+
+			/* completions */
+			int k = 0;
+			int[][] completed = new int[ids.length][];
+			for (int l = 0; l < ids.length; l++)
+				if (status[l] == ALLOCATED && !working[l].isEmpty()) {
+					int[] workers = working[l].toArray();
+					workloads[l] -= problem.getCoalitionValue(l, workers);
+					completionTime[l]++;
+
+					if (workloads[l] <= 0) {
+						status[l] = COMPLETED;
+						working[l].clear();
+						completed[l] = workers;
+						k++;
+					}
+				}
+
+			out.writeInt(k);
+			for (int l = 0; l < ids.length; l++)
+				if (completed[l] != null) {
+					out.writeInt(ids[l]);
+					out.writeInt(completionTime[l]);
+					out.writeInt(completed[l].length);
+					for (int a : completed[l])
+						out.writeInt(a);
+				}
+		}
+	}
+
+	/**
+	 * @param port The port, or 0 for any free one (see {@link #getPort()}).
+	 *
+	 * @throws IOException If the port cannot be bound.
+	 */
+	public TaskOwner(int port) throws IOException {
+		server = new ServerSocket(port, 1, InetAddress.getLoopbackAddress());
+	}
+
+	public int getPort() {
+		return server.getLocalPort();
+	}
+
+	/**
+	 * Serve coordinators, one at a time, until closed.
+	 */
+	public void serve() {
+		while (!server.isClosed())
+			try (Socket socket = server.accept()) {
+				socket.setTcpNoDelay(true);
+				serve(new DataInputStream(new BufferedInputStream(socket.getInputStream())),
+						new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())));
+			} catch (EOFException e) {
+				/* the coordinator closed the connection */
+			} catch (IOException e) {
+				if (!server.isClosed())
+					e.printStackTrace();
+			}
+	}
+
+	private void serve(DataInputStream in, DataOutputStream out) throws IOException {
+		Session session = new Session();
+
+		while (true) {
+			byte opcode = in.readByte();
+			switch (opcode) {
+			case Protocol.INIT:
+				session.init(in, out);
+				break;
+			case Protocol.QUERY:
+				session.query(in, out);
+				break;
+			case Protocol.CLAIM:
+				session.claim(in, out);
+				break;
+			case Protocol.STEP:
+				session.step(in, out);
+				break;
+			case Protocol.END:
+				return;
+			default:
+				throw new IOException(String.format("unknown opcode %d", opcode));
+			}
+			out.flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		server.close();
+	}
+
+	public static void main(String[] args) throws IOException {
+		TaskOwner owner = new TaskOwner(args.length > 0 ? Integer.parseInt(args[0]) : 0);
+		System.out.println(Protocol.READY + " " + owner.getPort());
+		System.out.flush();
+		owner.serve();
+	}
+
+}
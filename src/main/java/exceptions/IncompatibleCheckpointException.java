@@ -0,0 +1,11 @@
+package exceptions;
+
+public class IncompatibleCheckpointException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	public IncompatibleCheckpointException(String msg) {
+		super(msg);
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,21 @@
+package exceptions;
+
+import java.io.IOException;
+
+public class ServiceException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	/* The HTTP status code of the response */
+	private final int status;
+
+	public ServiceException(int status, String msg) {
+		super(String.format("%d %s", status, msg));
+		this.status = status;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+}
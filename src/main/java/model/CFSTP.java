@@ -13,7 +13,12 @@ public abstract class CFSTP {
 	/* Tasks and agents are uniquely identified by integers */
 	protected int[] tasks, agents;
 
-	/* Task locations (static) are 2-dimensional points: [taskId][x,y] */
+	/*
+	 * Task locations (static) are 2-dimensional points: [taskId][x,y]
+	 *
+	 * Built lazily by getTaskLocations() when the problem is given in flat
+	 * layout.
+	 */
 	protected int[][] taskLocations;
 
 	/* Likewise, initial agent locations are 2-dimensional points: [agentId][x,y] */
@@ -26,42 +31,104 @@ public abstract class CFSTP {
 	 */
 	protected int[][] demands;
 
+	/*
+	 * The same data in flat layout (structure of arrays), one contiguous array per
+	 * coordinate and demand, indexed like tasks and agents. Solvers scan these.
+	 */
+	protected int[] taskX, taskY, initialAgentX, initialAgentY, deadlines, workloads;
+
 	/* Some useful data */
 	protected int maxTaskDeadline, minTaskDeadline, maxTaskWorkload, minTaskWorkload;
 
+	/* Travel times from the initial agent locations, computed on demand and shared by the solvers */
+	private int[][] initialAgentTravelTimes;
+
 	public CFSTP(int[] agents, int[] tasks, int[][] initialAgentLocations, int[][] taskLocations, int[][] demands) {
 		this.agents = agents;
 		this.tasks = tasks;
 		this.taskLocations = taskLocations;
 		this.demands = demands;
 
+		/* setting initial agent locations */
+		this.initialAgentLocations = initialAgentLocations;
+
+		/* setting flat layout */
+		taskX = new int[taskLocations.length];
+		taskY = new int[taskLocations.length];
+		for (int i = 0; i < taskLocations.length; i++) {
+			taskX[i] = taskLocations[i][0];
+			taskY[i] = taskLocations[i][1];
+		}
+
+		initialAgentX = new int[initialAgentLocations.length];
+		initialAgentY = new int[initialAgentLocations.length];
+		for (int i = 0; i < initialAgentLocations.length; i++) {
+			initialAgentX[i] = initialAgentLocations[i][0];
+			initialAgentY[i] = initialAgentLocations[i][1];
+		}
+
+		deadlines = new int[demands.length];
+		workloads = new int[demands.length];
+		for (int i = 0; i < demands.length; i++) {
+			deadlines[i] = demands[i][0];
+			workloads[i] = demands[i][1];
+		}
+
+		setDemandBounds();
+	}
+
+	/**
+	 * Build a problem in flat layout: each array is indexed like
+	 * <code>agents</code> or <code>tasks</code>. The 2-dimensional arrays returned
+	 * by {@link #getTaskLocations()}, {@link #getInitialAgentLocations()} and
+	 * {@link #getDemands()} are only built if requested.
+	 */
+	public CFSTP(int[] agents, int[] tasks, int[] initialAgentX, int[] initialAgentY, int[] taskX, int[] taskY,
+			int[] deadlines, int[] workloads) {
+		this.agents = agents;
+		this.tasks = tasks;
+		this.initialAgentX = initialAgentX;
+		this.initialAgentY = initialAgentY;
+		this.taskX = taskX;
+		this.taskY = taskY;
+		this.deadlines = deadlines;
+		this.workloads = workloads;
+
+		setDemandBounds();
+	}
+
+	private void setDemandBounds() {
 		minTaskDeadline = Integer.MAX_VALUE;
 		minTaskWorkload = Integer.MAX_VALUE;
 
 		try {
-			for (int i = 0; i < demands.length; i++) {
-				if (demands[i][0] < 0)
-					throw new NegativeDeadlineException(String.format("task %d has deadline = %d", i, demands[i][0]));
-				if (demands[i][1] <= 0)
-					throw new NegativeWorkloadException(String.format("task %d has workload = %d", i, demands[i][1]));
-
-				if (demands[i][0] > maxTaskDeadline)
-					maxTaskDeadline = demands[i][0];
-				if (demands[i][0] < minTaskDeadline)
-					minTaskDeadline = demands[i][0];
-
-				if (demands[i][1] > maxTaskWorkload)
-					maxTaskWorkload = demands[i][1];
-				if (demands[i][1] < minTaskWorkload)
-					minTaskWorkload = demands[i][1];
+			for (int i = 0; i < deadlines.length; i++) {
+				if (deadlines[i] < 0)
+					throw new NegativeDeadlineException(String.format("task %d has deadline = %d", i, deadlines[i]));
+				if (workloads[i] <= 0)
+					throw new NegativeWorkloadException(String.format("task %d has workload = %d", i, workloads[i]));
+
+				if (deadlines[i] > maxTaskDeadline)
+					maxTaskDeadline = deadlines[i];
+				if (deadlines[i] < minTaskDeadline)
+					minTaskDeadline = deadlines[i];
+
+				if (workloads[i] > maxTaskWorkload)
+					maxTaskWorkload = workloads[i];
+				if (workloads[i] < minTaskWorkload)
+					minTaskWorkload = workloads[i];
 
 			}
 		} catch (NegativeDeadlineException | NegativeWorkloadException e) {
 			e.printStackTrace();
 		}
+	}
 
-		/* setting initial agent locations */
-		this.initialAgentLocations = initialAgentLocations;
+	private static int[][] toRows(int[] x, int[] y) {
+		int[][] rows = new int[x.length][];
+		for (int i = 0; i < x.length; i++)
+			rows[i] = new int[] { x[i], y[i] };
+		return rows;
 	}
 
 	/**
@@ -79,6 +146,66 @@ public abstract class CFSTP {
 	 */
 	public abstract int getAgentTravelTime(int agentId, int[] agentLocation, int[] taskLocation);
 
+	/**
+	 * Index-based version of
+	 * {@link #getAgentTravelTime(int, int[], int[])}, used by the solvers.
+	 *
+	 * By default, it wraps the coordinates into arrays and calls the above method:
+	 * override it to read {@link #taskX} and {@link #taskY} directly.
+	 *
+	 * @param agentId The agent's identifier.
+	 * @param agentX  The x coordinate of the agent's current location.
+	 * @param agentY  The y coordinate of the agent's current location.
+	 * @param task    The index of a given task.
+	 *
+	 * @return The time steps required by agentId to travel from (agentX, agentY)
+	 *         to the location of task.
+	 */
+	public int getAgentTravelTime(int agentId, int agentX, int agentY, int task) {
+		return getAgentTravelTime(agentId, new int[] { agentX, agentY }, new int[] { taskX[task], taskY[task] });
+	}
+
+	/**
+	 * Bulk version of {@link #getAgentTravelTime(int, int, int, int)}: the time
+	 * taken for an agent to travel from its location to each task.
+	 *
+	 * By default, it calls the above method once per task. When travel times are
+	 * distances, override it with one of the kernels in
+	 * {@link toolkit.Mathematics}, which the JIT compiles to SIMD instructions.
+	 *
+	 * @param agentId     The agent's identifier.
+	 * @param agentX      The x coordinate of the agent's current location.
+	 * @param agentY      The y coordinate of the agent's current location.
+	 * @param travelTimes The output array, of length >= <code>tasks.length</code>.
+	 */
+	public void getAgentTravelTimes(int agentId, int agentX, int agentY, int[] travelTimes) {
+		for (int v = 0; v < tasks.length; v++)
+			travelTimes[v] = getAgentTravelTime(agentId, agentX, agentY, v);
+	}
+
+	/**
+	 * The travel times from the initial location of an agent to each task (see
+	 * {@link #getAgentTravelTimes(int, int, int, int[])}). They are computed at
+	 * the first call, and then shared by all the solvers of this problem (e.g.,
+	 * those of a portfolio), hence the row must not be written.
+	 *
+	 * @param a The agent index.
+	 *
+	 * @return The travel times, of length <code>tasks.length</code>.
+	 */
+	public synchronized int[] getInitialAgentTravelTimes(int a) {
+		if (initialAgentTravelTimes == null)
+			initialAgentTravelTimes = new int[agents.length][];
+
+		if (initialAgentTravelTimes[a] == null) {
+			int[] travelTimes = new int[tasks.length];
+			getAgentTravelTimes(agents[a], initialAgentX[a], initialAgentY[a], travelTimes);
+			initialAgentTravelTimes[a] = travelTimes;
+		}
+
+		return initialAgentTravelTimes[a];
+	}
+
 	/**
 	 * Given task $v$ and coalition $C \in 2^A$, the coalition value of $C$ $u(C)$
 	 * determines the amount of workload that $C$ does in a time step.
@@ -102,17 +229,47 @@ public abstract class CFSTP {
 	}
 
 	public int[][] getTaskLocations() {
+		if (taskLocations == null)
+			taskLocations = toRows(taskX, taskY);
 		return taskLocations;
 	}
 
 	public int[][] getInitialAgentLocations() {
+		if (initialAgentLocations == null)
+			initialAgentLocations = toRows(initialAgentX, initialAgentY);
 		return initialAgentLocations;
 	}
 
 	public int[][] getDemands() {
+		if (demands == null)
+			demands = toRows(deadlines, workloads);
 		return demands;
 	}
 
+	public int[] getTaskX() {
+		return taskX;
+	}
+
+	public int[] getTaskY() {
+		return taskY;
+	}
+
+	public int[] getInitialAgentX() {
+		return initialAgentX;
+	}
+
+	public int[] getInitialAgentY() {
+		return initialAgentY;
+	}
+
+	public int[] getDeadlines() {
+		return deadlines;
+	}
+
+	public int[] getWorkloads() {
+		return workloads;
+	}
+
 	public int getMaxTaskDeadline() {
 		return maxTaskDeadline;
 	}
@@ -0,0 +1,84 @@
+package model;
+
+/**
+ * A change to a CFSTP while it is being solved: a task shows up or is
+ * cancelled, or an agent fails (i.e., drops out for the rest of the run).
+ *
+ * @author lcpz
+ */
+public class ChangeEvent {
+
+	public static enum Type {
+		TASK_INSERTION, TASK_CANCELLATION, AGENT_FAILURE;
+	}
+
+	private Type type;
+
+	/* The time step at the beginning of which the change is applied */
+	private int time;
+
+	/* The task cancelled, or the agent failed */
+	private int index;
+
+	/* The location and demands of the task inserted */
+	private int x, y, deadline, workload;
+
+	private ChangeEvent(Type type, int time, int index) {
+		this.type = type;
+		this.time = time;
+		this.index = index;
+	}
+
+	public static ChangeEvent taskInsertion(int time, int x, int y, int deadline, int workload) {
+		ChangeEvent e = new ChangeEvent(Type.TASK_INSERTION, time, -1);
+		e.x = x;
+		e.y = y;
+		e.deadline = deadline;
+		e.workload = workload;
+		return e;
+	}
+
+	public static ChangeEvent taskCancellation(int time, int task) {
+		return new ChangeEvent(Type.TASK_CANCELLATION, time, task);
+	}
+
+	public static ChangeEvent agentFailure(int time, int agent) {
+		return new ChangeEvent(Type.AGENT_FAILURE, time, agent);
+	}
+
+	@Override
+	public String toString() {
+		if (type == Type.TASK_INSERTION)
+			return String.format("%s at %d: (%d, %d) [%d, %d]", type, time, x, y, deadline, workload);
+		return String.format("%s at %d: %d", type, time, index);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public int getTime() {
+		return time;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public int getX() {
+		return x;
+	}
+
+	public int getY() {
+		return y;
+	}
+
+	public int getDeadline() {
+		return deadline;
+	}
+
+	public int getWorkload() {
+		return workload;
+	}
+
+}
@@ -0,0 +1,170 @@
+package model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.StringTokenizer;
+import java.util.concurrent.ThreadLocalRandom;
+
+import toolkit.Mathematics;
+
+/**
+ * The CFSTP of the experimental setup of (Ramchurn et al., 2010), as in
+ * <code>SolversTest</code>: agents move on a grid by one cell per time step
+ * (Manhattan distance), and the value of a coalition C is |C| * U(1, 2).
+ *
+ * Instances are stored in a compact text format:
+ *
+ * <pre>
+ * cfstp &lt;agents&gt; &lt;tasks&gt;
+ * &lt;x&gt; &lt;y&gt;                          (one line per agent)
+ * &lt;x&gt; &lt;y&gt; &lt;deadline&gt; &lt;workload&gt;  (one line per task)
+ * </pre>
+ *
+ * Empty lines and lines starting with '#' are ignored.
+ *
+ * @author lcpz
+ */
+public class GridProblem extends CFSTP {
+
+	public static final String HEADER = "cfstp";
+
+	/* Bounds of the uniform distributions of the experimental setup */
+	public static final int MIN_DEADLINE = 5, MAX_DEADLINE = 600, MIN_WORKLOAD = 10, MAX_WORKLOAD = 50;
+
+	public GridProblem(int[] initialAgentX, int[] initialAgentY, int[] taskX, int[] taskY, int[] deadlines,
+			int[] workloads) {
+		super(range(initialAgentX.length), range(taskX.length), initialAgentX, initialAgentY, taskX, taskY, deadlines,
+				workloads);
+	}
+
+	private static int[] range(int n) {
+		int[] r = new int[n];
+		for (int i = 0; i < n; i++)
+			r[i] = i;
+		return r;
+	}
+
+	/**
+	 * Generate an instance: locations are uniform in [0, worldDim)^2, deadlines in
+	 * [MIN_DEADLINE, MAX_DEADLINE], and workloads in [MIN_WORKLOAD, MAX_WORKLOAD]
+	 * (see {@link InstanceGenerator}).
+	 *
+	 * @param agents   The number of agents.
+	 * @param tasks    The number of tasks.
+	 * @param worldDim The side of the grid.
+	 * @param seed     The seed: the same seed gives the same instance.
+	 *
+	 * @return A new instance.
+	 */
+	public static GridProblem generate(int agents, int tasks, int worldDim, long seed) {
+		return new InstanceGenerator(worldDim).generate(agents, tasks, seed);
+	}
+
+	/**
+	 * Read an instance in the format of {@link #write(CFSTP, Writer)}.
+	 *
+	 * @param in The input, which is not closed.
+	 *
+	 * @return The instance.
+	 *
+	 * @throws IOException If in cannot be read, or it is not an instance.
+	 */
+	public static GridProblem read(Reader in) throws IOException {
+		BufferedReader reader = new BufferedReader(in);
+
+		int[] header = nextLine(reader, 3, HEADER);
+		int agents = header[0], tasks = header[1];
+		int[] agentX = new int[agents], agentY = new int[agents];
+		int[] taskX = new int[tasks], taskY = new int[tasks], deadlines = new int[tasks], workloads = new int[tasks];
+
+		for (int a = 0; a < agents; a++) {
+			int[] line = nextLine(reader, 2, null);
+			agentX[a] = line[0];
+			agentY[a] = line[1];
+		}
+
+		for (int v = 0; v < tasks; v++) {
+			int[] line = nextLine(reader, 4, null);
+			taskX[v] = line[0];
+			taskY[v] = line[1];
+			deadlines[v] = line[2];
+			workloads[v] = line[3];
+		}
+
+		return new GridProblem(agentX, agentY, taskX, taskY, deadlines, workloads);
+	}
+
+	/* the numbers of the next non-empty, non-comment line, which must have n tokens (the first being keyword, if any) */
+	private static int[] nextLine(BufferedReader reader, int n, String keyword) throws IOException {
+		String line;
+		do {
+			line = reader.readLine();
+			if (line == null)
+				throw new IOException("unexpected end of instance");
+			line = line.trim();
+		} while (line.isEmpty() || line.startsWith("#"));
+
+		/* not String.split, which compiles a regular expression per line */
+		StringTokenizer tokens = new StringTokenizer(line);
+		if (tokens.countTokens() != n || keyword != null && !tokens.nextToken().equals(keyword))
+			throw new IOException(String.format("malformed line \"%s\"", line));
+
+		int[] numbers = new int[keyword == null ? n : n - 1];
+		try {
+			for (int i = 0; i < numbers.length; i++)
+				numbers[i] = Integer.parseInt(tokens.nextToken());
+		} catch (NumberFormatException e) {
+			throw new IOException(String.format("malformed line \"%s\"", line), e);
+		}
+
+		return numbers;
+	}
+
+	/**
+	 * Write the locations and demands of an instance. Its travel times and
+	 * coalition values are not written: when read, they are those of this class.
+	 *
+	 * @param problem The instance.
+	 * @param out     The output, which is flushed but not closed.
+	 */
+	public static void write(CFSTP problem, Writer out) {
+		PrintWriter writer = new PrintWriter(out);
+		int[] agentX = problem.getInitialAgentX(), agentY = problem.getInitialAgentY();
+		int[] taskX = problem.getTaskX(), taskY = problem.getTaskY(), deadlines = problem.getDeadlines(),
+				workloads = problem.getWorkloads();
+
+		/* no format strings: parsing them dominates the time of short runs */
+		writer.println(HEADER + " " + agentX.length + " " + taskX.length);
+		for (int a = 0; a < agentX.length; a++)
+			writer.println(agentX[a] + " " + agentY[a]);
+		for (int v = 0; v < taskX.length; v++)
+			writer.println(taskX[v] + " " + taskY[v] + " " + deadlines[v] + " " + workloads[v]);
+		writer.flush();
+	}
+
+	@Override
+	public int getAgentTravelTime(int agentId, int[] agentLocation, int[] taskLocation) {
+		/* Manhattan distance, or l_1 norm; 1 grid per time step */
+		return Math.abs(taskLocation[0] - agentLocation[0]) + Math.abs(taskLocation[1] - agentLocation[1]);
+	}
+
+	@Override
+	public int getAgentTravelTime(int agentId, int agentX, int agentY, int task) {
+		return Math.abs(taskX[task] - agentX) + Math.abs(taskY[task] - agentY);
+	}
+
+	@Override
+	public void getAgentTravelTimes(int agentId, int agentX, int agentY, int[] travelTimes) {
+		Mathematics.getManhattanDistances(agentX, agentY, taskX, taskY, travelTimes);
+	}
+
+	@Override
+	public float getCoalitionValue(int task, int[] coalition) {
+		/* u(C) = |C| * U(1, 2); ThreadLocalRandom, since solvers can run in parallel */
+		return (float) (coalition.length * ThreadLocalRandom.current().nextDouble(1, 2));
+	}
+
+}
@@ -0,0 +1,170 @@
+package model;
+
+import java.util.SplittableRandom;
+
+/**
+ * A generator of {@link GridProblem} instances, with the distributions of the
+ * experimental setup of (Ramchurn et al., 2010): deadlines are uniform in
+ * [MIN_DEADLINE, MAX_DEADLINE], workloads in [MIN_WORKLOAD, MAX_WORKLOAD], and
+ * agent locations in [0, worldDim)^2. Task locations are either uniform, or
+ * clustered: normally distributed around uniform cluster centres.
+ *
+ * Agents and tasks are generated in chunks of {@link #CHUNK_SIZE}, each with
+ * its own {@link SplittableRandom}, split from that of the seed in chunk
+ * order. Hence, chunks can be filled by several threads, and the instance only
+ * depends on the seed, not on the number of threads.
+ *
+ * @author lcpz
+ */
+public class InstanceGenerator {
+
+	/* The spatial distribution of the tasks */
+	public enum Layout {
+		UNIFORM, CLUSTERED
+	}
+
+	/* The number of agents or tasks generated with the same random generator */
+	public static final int CHUNK_SIZE = 1 << 12;
+
+	public static final int DEFAULT_CLUSTERS = 8;
+
+	/* The standard deviation of task locations around their cluster centre, relative to worldDim */
+	public static final double CLUSTER_SPREAD = 0.05;
+
+	private final int worldDim, clusters, threads;
+
+	private final Layout layout;
+
+	/**
+	 * A single-threaded generator of uniform instances.
+	 *
+	 * @param worldDim The side of the grid.
+	 */
+	public InstanceGenerator(int worldDim) {
+		this(worldDim, Layout.UNIFORM, DEFAULT_CLUSTERS, 1);
+	}
+
+	/**
+	 * @param worldDim The side of the grid.
+	 * @param layout   The spatial distribution of the tasks.
+	 * @param clusters The number of clusters, if layout is
+	 *                 {@link Layout#CLUSTERED}.
+	 * @param threads  The number of threads filling the chunks.
+	 */
+	public InstanceGenerator(int worldDim, Layout layout, int clusters, int threads) {
+		if (worldDim <= 0 || clusters <= 0 || threads <= 0)
+			throw new IllegalArgumentException("worldDim, clusters and threads must be positive");
+
+		this.worldDim = worldDim;
+		this.layout = layout;
+		this.clusters = clusters;
+		this.threads = threads;
+	}
+
+	/**
+	 * Generate an instance.
+	 *
+	 * @param agents The number of agents.
+	 * @param tasks  The number of tasks.
+	 * @param seed   The seed: the same seed gives the same instance.
+	 *
+	 * @return A new instance.
+	 */
+	public GridProblem generate(int agents, int tasks, long seed) {
+		final int[] agentX = new int[agents], agentY = new int[agents];
+		final int[] taskX = new int[tasks], taskY = new int[tasks], deadlines = new int[tasks],
+				workloads = new int[tasks];
+
+		SplittableRandom root = new SplittableRandom(seed);
+
+		final int[] centreX = new int[clusters], centreY = new int[clusters];
+		if (layout == Layout.CLUSTERED)
+			for (int k = 0; k < clusters; k++) {
+				centreX[k] = root.nextInt(worldDim);
+				centreY[k] = root.nextInt(worldDim);
+			}
+
+		/* one generator per chunk, split in chunk order: tasks first, then agents */
+		final int taskChunks = getChunks(tasks), chunks = taskChunks + getChunks(agents);
+		final SplittableRandom[] randoms = new SplittableRandom[chunks];
+		for (int c = 0; c < chunks; c++)
+			randoms[c] = root.split();
+
+		Runnable[] workers = new Runnable[Math.min(threads, chunks)];
+		for (int i = 0; i < workers.length; i++) {
+			final int first = i;
+			workers[i] = new Runnable() {
+				@Override
+				public void run() {
+					for (int c = first; c < chunks; c += threads)
+						if (c < taskChunks)
+							fillTasks(randoms[c], c * CHUNK_SIZE, Math.min(tasks, (c + 1) * CHUNK_SIZE), centreX,
+									centreY, taskX, taskY, deadlines, workloads);
+						else
+							fillAgents(randoms[c], (c - taskChunks) * CHUNK_SIZE,
+									Math.min(agents, (c - taskChunks + 1) * CHUNK_SIZE), agentX, agentY);
+				}
+			};
+		}
+
+		run(workers);
+
+		return new GridProblem(agentX, agentY, taskX, taskY, deadlines, workloads);
+	}
+
+	private static int getChunks(int n) {
+		return (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+	}
+
+	/* Run the workers, the first in the calling thread */
+	private static void run(Runnable[] workers) {
+		Thread[] helpers = new Thread[Math.max(0, workers.length - 1)];
+		for (int i = 0; i < helpers.length; i++) {
+			helpers[i] = new Thread(workers[i + 1], "generator-" + (i + 1));
+			helpers[i].start();
+		}
+
+		if (workers.length > 0)
+			workers[0].run();
+
+		for (Thread h : helpers)
+			try {
+				h.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+	}
+
+	private void fillTasks(SplittableRandom r, int from, int to, int[] centreX, int[] centreY, int[] taskX,
+			int[] taskY, int[] deadlines, int[] workloads) {
+		for (int v = from; v < to; v++) {
+			if (layout == Layout.CLUSTERED) {
+				int k = r.nextInt(clusters);
+				double sd = CLUSTER_SPREAD * worldDim;
+
+				/* Box-Muller transform: two independent standard normal values */
+				double rho = Math.sqrt(-2 * Math.log(1 - r.nextDouble())), theta = 2 * Math.PI * r.nextDouble();
+				taskX[v] = clamp((int) Math.round(centreX[k] + sd * rho * Math.cos(theta)));
+				taskY[v] = clamp((int) Math.round(centreY[k] + sd * rho * Math.sin(theta)));
+			} else {
+				taskX[v] = r.nextInt(worldDim);
+				taskY[v] = r.nextInt(worldDim);
+			}
+
+			deadlines[v] = r.nextInt(GridProblem.MIN_DEADLINE, GridProblem.MAX_DEADLINE + 1);
+			workloads[v] = r.nextInt(GridProblem.MIN_WORKLOAD, GridProblem.MAX_WORKLOAD + 1);
+		}
+	}
+
+	private void fillAgents(SplittableRandom r, int from, int to, int[] agentX, int[] agentY) {
+		for (int a = from; a < to; a++) {
+			agentX[a] = r.nextInt(worldDim);
+			agentY[a] = r.nextInt(worldDim);
+		}
+	}
+
+	private int clamp(int c) {
+		return Math.max(0, Math.min(worldDim - 1, c));
+	}
+
+}
@@ -0,0 +1,106 @@
+package model;
+
+import toolkit.Coalition;
+import toolkit.LRUCache;
+
+/**
+ * A CFSTP whose coalition values are those of another CFSTP, memoized in a
+ * bounded LRU cache that can be shared by the threads of a parallel solve.
+ *
+ * It is opt-in, and correct only for value functions that are deterministic
+ * and depend on the set of agents in a coalition, not on their order: the cache
+ * is keyed by task and coalition bitmask.
+ *
+ * @author lcpz
+ */
+public class MemoizedCFSTP extends CFSTP {
+
+	/* The original problem */
+	protected CFSTP parent;
+
+	/* Coalition values, by task and coalition */
+	protected LRUCache<Key, Float> cache;
+
+	protected static class Key {
+		private final int task;
+		private final Coalition coalition;
+		private final int hash;
+
+		Key(int task, Coalition coalition) {
+			this.task = task;
+			this.coalition = coalition;
+			hash = 31 * task + coalition.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key))
+				return false;
+			Key k = (Key) o;
+			return task == k.task && coalition.equals(k.coalition);
+		}
+	}
+
+	/**
+	 * @param parent   The original problem.
+	 * @param capacity The maximum number of coalition values kept.
+	 */
+	public MemoizedCFSTP(CFSTP parent, int capacity) {
+		super(parent.getAgents(), parent.getTasks(), parent.getInitialAgentX(), parent.getInitialAgentY(),
+				parent.getTaskX(), parent.getTaskY(), parent.getDeadlines(), parent.getWorkloads());
+		this.parent = parent;
+		cache = new LRUCache<>(capacity);
+	}
+
+	@Override
+	public int getAgentTravelTime(int agentId, int[] agentLocation, int[] taskLocation) {
+		return parent.getAgentTravelTime(agentId, agentLocation, taskLocation);
+	}
+
+	@Override
+	public int getAgentTravelTime(int agentId, int agentX, int agentY, int task) {
+		return parent.getAgentTravelTime(agentId, agentX, agentY, task);
+	}
+
+	@Override
+	public void getAgentTravelTimes(int agentId, int agentX, int agentY, int[] travelTimes) {
+		parent.getAgentTravelTimes(agentId, agentX, agentY, travelTimes);
+	}
+
+	@Override
+	public int[] getInitialAgentTravelTimes(int a) {
+		/* shared with the solvers of the parent */
+		return parent.getInitialAgentTravelTimes(a);
+	}
+
+	@Override
+	public float getCoalitionValue(int task, int[] coalition) {
+		Key key = new Key(task, Coalition.of(agents.length, coalition));
+		Float value = cache.get(key);
+
+		/* computed outside the cache lock: concurrent misses may compute it twice */
+		if (value == null) {
+			value = parent.getCoalitionValue(task, coalition);
+			cache.put(key, value);
+		}
+
+		return value;
+	}
+
+	public CFSTP getParent() {
+		return parent;
+	}
+
+	/**
+	 * @return The cache, e.g. to get its statistics.
+	 */
+	public LRUCache<Key, Float> getCache() {
+		return cache;
+	}
+
+}
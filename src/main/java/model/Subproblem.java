@@ -0,0 +1,117 @@
+package model;
+
+/**
+ * A CFSTP restricted to a subset of the tasks and agents of another CFSTP.
+ *
+ * Tasks and agents are renumbered from 0, while travel times and coalition
+ * values are those of the original problem.
+ *
+ * Agents can start from other locations than their initial ones (e.g., those
+ * where they complete the tasks of another subproblem).
+ *
+ * @author lcpz
+ */
+public class Subproblem extends CFSTP {
+
+	/* The original problem */
+	protected CFSTP parent;
+
+	/* The indexes of the tasks and agents of this problem in the original one */
+	protected int[] parentTasks, parentAgents;
+
+	/**
+	 * @param parent       The original problem.
+	 * @param parentTasks  The indexes of the tasks to keep.
+	 * @param parentAgents The indexes of the agents to keep.
+	 */
+	public Subproblem(CFSTP parent, int[] parentTasks, int[] parentAgents) {
+		this(parent, parentTasks, parentAgents, parent.getInitialAgentX(), parent.getInitialAgentY());
+	}
+
+	/**
+	 * @param parent       The original problem.
+	 * @param parentTasks  The indexes of the tasks to keep.
+	 * @param parentAgents The indexes of the agents to keep.
+	 * @param agentX       The x coordinate of the starting location of each agent
+	 *                     of parent.
+	 * @param agentY       The y coordinate of the starting location of each agent
+	 *                     of parent.
+	 */
+	public Subproblem(CFSTP parent, int[] parentTasks, int[] parentAgents, int[] agentX, int[] agentY) {
+		super(range(parentAgents.length), range(parentTasks.length), select(agentX, parentAgents),
+				select(agentY, parentAgents), select(parent.getTaskX(), parentTasks),
+				select(parent.getTaskY(), parentTasks), select(parent.getDeadlines(), parentTasks),
+				select(parent.getWorkloads(), parentTasks));
+		this.parent = parent;
+		this.parentTasks = parentTasks;
+		this.parentAgents = parentAgents;
+	}
+
+	private static int[] range(int n) {
+		int[] r = new int[n];
+		for (int i = 0; i < n; i++)
+			r[i] = i;
+		return r;
+	}
+
+	private static int[] select(int[] a, int[] indexes) {
+		int[] b = new int[indexes.length];
+		for (int i = 0; i < indexes.length; i++)
+			b[i] = a[indexes[i]];
+		return b;
+	}
+
+	@Override
+	public int getAgentTravelTime(int agentId, int[] agentLocation, int[] taskLocation) {
+		return parent.getAgentTravelTime(parentAgents[agentId], agentLocation, taskLocation);
+	}
+
+	@Override
+	public int getAgentTravelTime(int agentId, int agentX, int agentY, int task) {
+		return parent.getAgentTravelTime(parentAgents[agentId], agentX, agentY, parentTasks[task]);
+	}
+
+	@Override
+	public float getCoalitionValue(int task, int[] coalition) {
+		return parent.getCoalitionValue(parentTasks[task], toParentAgents(coalition));
+	}
+
+	/**
+	 * @param agents Agents of this problem.
+	 *
+	 * @return The same agents, as indexes of the original problem.
+	 */
+	public int[] toParentAgents(int[] agents) {
+		return select(parentAgents, agents);
+	}
+
+	/**
+	 * @param allocation An allocation of tasks and agents of this problem.
+	 *
+	 * @return The same allocation, with tasks and agents of the original problem.
+	 */
+	public Allocation toParentAllocation(Allocation allocation) {
+		int task = parentTasks[allocation.getTask()];
+		int[] agents = toParentAgents(allocation.getAgents());
+
+		if (allocation instanceof FeasibleAllocation) {
+			FeasibleAllocation f = (FeasibleAllocation) allocation;
+			return new FeasibleAllocation(f.getAllocationTime(), task, agents, f.getArrivalTimes());
+		}
+
+		return new Allocation(task, agents, allocation.getTravelTime(), allocation.getCompletionTime());
+	}
+
+	public CFSTP getParent() {
+		return parent;
+	}
+
+	public int[] getParentTasks() {
+		return parentTasks;
+	}
+
+	public int[] getParentAgents() {
+		return parentAgents;
+	}
+
+}
@@ -0,0 +1,277 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * An importer of instances in <a href="http://xcsp.org">XCSP3</a>, which
+ * streams the file with StAX, without building a DOM: the tuples of the tables
+ * are parsed from the character buffers of the parser into flat arrays of
+ * primitives, without intermediate strings or objects per tuple.
+ *
+ * The data of the CFSTP are in two table (extension) constraints, identified by
+ * their id, whose tuples are rows:
+ *
+ * <pre>
+ * &lt;instance format="XCSP3" type="COP"&gt;
+ *   &lt;variables&gt; ... &lt;/variables&gt;
+ *   &lt;constraints&gt;
+ *     &lt;extension id="agents"&gt;
+ *       &lt;list&gt; a ax ay &lt;/list&gt;
+ *       &lt;supports&gt; (0,3,7)(1,10,2) ... &lt;/supports&gt;                (agent x y)
+ *     &lt;/extension&gt;
+ *     &lt;extension id="tasks"&gt;
+ *       &lt;list&gt; t tx ty td tw &lt;/list&gt;
+ *       &lt;supports&gt; (0,3,7,120,30)(1,4,4,88,12) ... &lt;/supports&gt;   (task x y deadline workload)
+ *     &lt;/extension&gt;
+ *   &lt;/constraints&gt;
+ * &lt;/instance&gt;
+ * </pre>
+ *
+ * Agents and tasks are identified by 0, 1, ..., in any order. The tables can
+ * be anywhere in the constraints (e.g., in blocks), and the other elements
+ * (variables, other constraints, objectives) are ignored: they are the DCOP
+ * model of the allocation, which the solvers do not need. Travel times and
+ * coalition values are those of {@link GridProblem}.
+ *
+ * DTDs and external entities are not resolved, hence files are read offline.
+ *
+ * @author lcpz
+ */
+public class XCSP3Importer {
+
+	/* The ids of the tables, and their arities */
+	public static final String AGENTS = "agents", TASKS = "tasks";
+	public static final int AGENT_ARITY = 3, TASK_ARITY = 5;
+
+	private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+
+	static {
+		FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		FACTORY.setProperty(XMLInputFactory.IS_COALESCING, false);
+	}
+
+	/* The tuples of a table, in row-major order, parsed across character chunks */
+	private static class Table {
+		final int arity;
+		int[] values = new int[1024];
+		int size;
+
+		/* The parsing state: in a tuple, its column, and the number being read */
+		boolean inTuple, inNumber, negative, afterValue;
+		int column;
+		long number;
+
+		Table(int arity) {
+			this.arity = arity;
+		}
+
+		int getRows() {
+			return size / arity;
+		}
+
+		void parse(char[] text, int start, int length, Location location) throws IOException {
+			for (int i = start; i < start + length; i++) {
+				char c = text[i];
+
+				if (c >= '0' && c <= '9') {
+					if (!inTuple || afterValue && !inNumber)
+						throw error(location, "missing separator");
+					number = number * 10 + (c - '0');
+					if (number > Integer.MAX_VALUE)
+						throw error(location, "value out of range");
+					inNumber = true;
+				} else if (c == '-' && inTuple && !afterValue && !inNumber && !negative)
+					negative = true;
+				else if (c == ',' || c == ')') {
+					if (inNumber)
+						add(location);
+					if (!afterValue || !inTuple)
+						throw error(location, "missing value");
+					afterValue = false;
+
+					if (c == ')') {
+						if (column != arity)
+							throw error(location, String.format("tuples of table must have %d values", arity));
+						inTuple = false;
+					}
+				} else if (Character.isWhitespace(c)) {
+					if (inNumber)
+						add(location);
+					else if (negative)
+						throw error(location, "missing value");
+				} else if (c == '(' && !inTuple) {
+					inTuple = true;
+					column = 0;
+				} else
+					throw error(location, String.format("unsupported character '%c' in tuples", c));
+			}
+		}
+
+		/* Add the number read to the current tuple */
+		private void add(Location location) throws IOException {
+			if (column == arity)
+				throw error(location, String.format("tuples of table must have %d values", arity));
+
+			if (size == values.length)
+				values = Arrays.copyOf(values, values.length * 2);
+			values[size++] = (int) (negative ? -number : number);
+
+			column++;
+			number = 0;
+			inNumber = negative = false;
+			afterValue = true;
+		}
+
+		void end(Location location) throws IOException {
+			if (inTuple || inNumber || negative)
+				throw error(location, "unterminated tuple");
+		}
+	}
+
+	private static IOException error(Location location, String message) {
+		return new IOException(
+				String.format("line %d: %s", location == null ? -1 : location.getLineNumber(), message));
+	}
+
+	/**
+	 * Read an instance from a file, which can be compressed with gzip (if its
+	 * name ends with ".gz").
+	 *
+	 * @param file The file.
+	 *
+	 * @return The instance.
+	 *
+	 * @throws IOException If file cannot be read, or it is not in the supported
+	 *                     encoding.
+	 */
+	public static GridProblem read(File file) throws IOException {
+		try (InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16)) {
+			return read(file.getName().endsWith(".gz") ? new GZIPInputStream(in, 1 << 16) : in);
+		}
+	}
+
+	/**
+	 * Read an instance.
+	 *
+	 * @param in The input, which is not closed.
+	 *
+	 * @return The instance.
+	 *
+	 * @throws IOException If in cannot be read, or it is not in the supported
+	 *                     encoding.
+	 */
+	public static GridProblem read(InputStream in) throws IOException {
+		Table agents = null, tasks = null, table = null;
+		XMLStreamReader r = null;
+
+		try {
+			r = FACTORY.createXMLStreamReader(in);
+			boolean root = true, inSupports = false;
+
+			while (r.hasNext()) {
+				switch (r.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					String name = r.getLocalName();
+
+					if (root) {
+						if (!"instance".equals(name) || !"XCSP3".equals(r.getAttributeValue(null, "format")))
+							throw error(r.getLocation(), "not an XCSP3 instance");
+						root = false;
+					} else if ("extension".equals(name)) {
+						String id = r.getAttributeValue(null, "id");
+						if (AGENTS.equals(id)) {
+							if (agents != null)
+								throw error(r.getLocation(), "duplicate table " + AGENTS);
+							table = agents = new Table(AGENT_ARITY);
+						} else if (TASKS.equals(id)) {
+							if (tasks != null)
+								throw error(r.getLocation(), "duplicate table " + TASKS);
+							table = tasks = new Table(TASK_ARITY);
+						}
+					} else if (table != null && "conflicts".equals(name))
+						throw error(r.getLocation(), "tables of agents and tasks must list supports");
+					else if (table != null && "supports".equals(name))
+						inSupports = true;
+					break;
+
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+					if (inSupports)
+						table.parse(r.getTextCharacters(), r.getTextStart(), r.getTextLength(), r.getLocation());
+					break;
+
+				case XMLStreamConstants.END_ELEMENT:
+					if (inSupports && "supports".equals(r.getLocalName())) {
+						table.end(r.getLocation());
+						inSupports = false;
+					} else if (table != null && "extension".equals(r.getLocalName()))
+						table = null;
+					break;
+
+				default:
+					break;
+				}
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException(e.getMessage(), e);
+		} finally {
+			if (r != null)
+				try {
+					r.close();
+				} catch (XMLStreamException e) {
+					/* the input is closed by the caller */
+				}
+		}
+
+		if (agents == null || tasks == null)
+			throw new IOException(String.format("missing table %s", agents == null ? AGENTS : TASKS));
+
+		int n = agents.getRows(), m = tasks.getRows();
+		int[] agentX = new int[n], agentY = new int[n];
+		int[] taskX = new int[m], taskY = new int[m], deadlines = new int[m], workloads = new int[m];
+
+		boolean[] seen = new boolean[n];
+		for (int i = 0; i < n; i++) {
+			int[] v = agents.values;
+			int a = getId(v[i * AGENT_ARITY], seen, AGENTS);
+			agentX[a] = v[i * AGENT_ARITY + 1];
+			agentY[a] = v[i * AGENT_ARITY + 2];
+		}
+
+		seen = new boolean[m];
+		for (int i = 0; i < m; i++) {
+			int[] v = tasks.values;
+			int t = getId(v[i * TASK_ARITY], seen, TASKS);
+			taskX[t] = v[i * TASK_ARITY + 1];
+			taskY[t] = v[i * TASK_ARITY + 2];
+			deadlines[t] = v[i * TASK_ARITY + 3];
+			workloads[t] = v[i * TASK_ARITY + 4];
+		}
+
+		return new GridProblem(agentX, agentY, taskX, taskY, deadlines, workloads);
+	}
+
+	/* Check that the identifiers of a table are 0, 1, ..., in any order */
+	private static int getId(int id, boolean[] seen, String table) throws IOException {
+		if (id < 0 || id >= seen.length)
+			throw new IOException(String.format("table %s: identifier %d out of [0, %d)", table, id, seen.length));
+		if (seen[id])
+			throw new IOException(String.format("table %s: duplicate identifier %d", table, id));
+		seen[id] = true;
+		return id;
+	}
+
+}
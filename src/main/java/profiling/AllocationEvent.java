@@ -0,0 +1,38 @@
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * An allocation committed to the schedule of a solver.
+ *
+ * @author lcpz
+ */
+@Name("cfstp.Allocation")
+@Label("Allocation")
+@Category({ "CFSTP", "Solver" })
+@Description("An allocation of a coalition to a task, committed to the schedule")
+@StackTrace(false)
+public class AllocationEvent extends Event {
+
+	@Label("Solver")
+	public String solver;
+
+	@Label("Task")
+	public int task;
+
+	@Label("Time")
+	public int time;
+
+	@Label("Coalition Size")
+	public int coalitionSize;
+
+	@Label("Completion Time")
+	@Description("The expected completion time, -1 if unknown (CTS)")
+	public int completionTime;
+
+}
@@ -0,0 +1,46 @@
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The computation of an Earliest-Completion-First (ECF) coalition.
+ *
+ * ECF is called up to |V| times per time step, hence only the calls longer than
+ * the threshold are recorded by default.
+ *
+ * @author lcpz
+ */
+@Name("cfstp.ECF")
+@Label("ECF")
+@Category({ "CFSTP", "Solver" })
+@Description("The computation of an Earliest-Completion-First coalition for a task")
+@StackTrace(false)
+@Threshold("1 ms")
+public class ECFEvent extends Event {
+
+	@Label("Solver")
+	public String solver;
+
+	@Label("Task")
+	public int task;
+
+	@Label("Time")
+	public int time;
+
+	@Label("Feasible Agents")
+	public int feasibleAgents;
+
+	@Label("Coalitions Visited")
+	public long coalitionsVisited;
+
+	@Label("Coalition Size")
+	@Description("The size of the coalition found, 0 if the task cannot be completed")
+	public int coalitionSize;
+
+}
@@ -0,0 +1,33 @@
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The computation of the degree of a task, in the look-ahead phase of CFLA.
+ *
+ * @author lcpz
+ */
+@Name("cfstp.LookAhead")
+@Label("Look-Ahead")
+@Category({ "CFSTP", "Solver" })
+@Description("The computation of the degree of a task, after its ECF allocation")
+@StackTrace(false)
+@Threshold("1 ms")
+public class LookAheadEvent extends Event {
+
+	@Label("Solver")
+	public String solver;
+
+	@Label("Task")
+	public int task;
+
+	@Label("Degree")
+	public int degree;
+
+}
@@ -0,0 +1,130 @@
+package profiling;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * A summary of a Java Flight Recorder (JFR) recording of solvers: for each
+ * solver and phase (i.e., event type of this package), the number of events
+ * and their total, mean and maximum duration. Garbage collections are
+ * summarised too, to compare their time with that of the phases.
+ *
+ * Usage: <code>java profiling.RecordingAnalyzer recording.jfr</code>, with a
+ * recording made, e.g., with <code>-XX:StartFlightRecording=filename=recording.jfr</code>.
+ *
+ * @author lcpz
+ */
+public class RecordingAnalyzer {
+
+	/* The prefix of the names of the events of this package */
+	public static final String PREFIX = "cfstp.";
+
+	/* The event summarised with the solver events */
+	public static final String GC_EVENT = "jdk.GarbageCollection";
+
+	/* Statistics of the events of a phase */
+	public static class Summary {
+		private long count;
+		private Duration total = Duration.ZERO, max = Duration.ZERO;
+
+		void add(Duration d) {
+			count++;
+			total = total.plus(d);
+			if (d.compareTo(max) > 0)
+				max = d;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public Duration getTotal() {
+			return total;
+		}
+
+		public Duration getMax() {
+			return max;
+		}
+
+		public Duration getMean() {
+			return count == 0 ? Duration.ZERO : total.dividedBy(count);
+		}
+	}
+
+	/**
+	 * @param recording A JFR recording.
+	 *
+	 * @return The statistics of each phase (by event name, without prefix), for
+	 *         each solver (by class name), sorted by name. Garbage collections are
+	 *         under solver "JVM".
+	 *
+	 * @throws IOException If the recording cannot be read.
+	 */
+	public static Map<String, Map<String, Summary>> analyze(Path recording) throws IOException {
+		Map<String, Map<String, Summary>> summaries = new TreeMap<>();
+
+		try (RecordingFile file = new RecordingFile(recording)) {
+			while (file.hasMoreEvents()) {
+				RecordedEvent event = file.readEvent();
+				String name = event.getEventType().getName(), solver;
+
+				if (name.startsWith(PREFIX)) {
+					solver = event.getString("solver");
+					name = name.substring(PREFIX.length());
+				} else if (name.equals(GC_EVENT))
+					solver = "JVM";
+				else
+					continue;
+
+				Map<String, Summary> phases = summaries.get(solver);
+				if (phases == null)
+					summaries.put(solver, phases = new TreeMap<>());
+
+				Summary summary = phases.get(name);
+				if (summary == null)
+					phases.put(name, summary = new Summary());
+
+				summary.add(event.getDuration());
+			}
+		}
+
+		return summaries;
+	}
+
+	/**
+	 * @param summaries The statistics returned by {@link #analyze(Path)}.
+	 *
+	 * @return A table, with a line per solver and phase.
+	 */
+	public static String format(Map<String, Map<String, Summary>> summaries) {
+		StringBuilder s = new StringBuilder(String.format("%-14s %-22s %10s %12s %12s %12s%n", "Solver", "Phase",
+				"Events", "Total (ms)", "Mean (us)", "Max (ms)"));
+
+		for (Map.Entry<String, Map<String, Summary>> solver : summaries.entrySet())
+			for (Map.Entry<String, Summary> phase : solver.getValue().entrySet()) {
+				Summary summary = phase.getValue();
+				s.append(String.format("%-14s %-22s %10d %12.3f %12.3f %12.3f%n", solver.getKey(), phase.getKey(),
+						summary.getCount(), summary.getTotal().toNanos() / 1e6, summary.getMean().toNanos() / 1e3,
+						summary.getMax().toNanos() / 1e6));
+			}
+
+		return s.toString();
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.err.println("Usage: java profiling.RecordingAnalyzer <recording.jfr>");
+			System.exit(1);
+		}
+
+		System.out.print(format(analyze(Paths.get(args[0]))));
+	}
+
+}
@@ -0,0 +1,35 @@
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The completion of a task in CTS, whose coalitions work until the workload is
+ * done.
+ *
+ * @author lcpz
+ */
+@Name("cfstp.TaskCompletion")
+@Label("Task Completion")
+@Category({ "CFSTP", "Solver" })
+@Description("The completion of a task by the agents working on it")
+@StackTrace(false)
+public class TaskCompletionEvent extends Event {
+
+	@Label("Solver")
+	public String solver;
+
+	@Label("Task")
+	public int task;
+
+	@Label("Time")
+	public int time;
+
+	@Label("Workers")
+	public int workers;
+
+}
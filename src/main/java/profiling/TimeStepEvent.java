@@ -0,0 +1,34 @@
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A time step of a solver, from its beginning to the end of its allocations.
+ *
+ * @author lcpz
+ */
+@Name("cfstp.TimeStep")
+@Label("Time Step")
+@Category({ "CFSTP", "Solver" })
+@Description("A time step of solve(), from its beginning to the end of its allocations")
+@StackTrace(false)
+@Threshold("0 ms")
+public class TimeStepEvent extends Event {
+
+	@Label("Solver")
+	public String solver;
+
+	@Label("Time")
+	public int time;
+
+	@Label("Allocated Tasks")
+	@Description("The number of tasks allocated (or completed, for CTS) so far")
+	public int allocatedTasks;
+
+}
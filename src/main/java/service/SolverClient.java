@@ -0,0 +1,203 @@
+package service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+
+import exceptions.ServiceException;
+import model.Allocation;
+import model.CFSTP;
+import model.GridProblem;
+import model.Results;
+
+/**
+ * A client of a {@link SolverService}.
+ *
+ * @author lcpz
+ */
+public class SolverClient {
+
+	/* The response to a solve request */
+	public static class Response {
+		private final String solverId;
+		private final Results results;
+		private final int timeSteps, batch;
+		private final long time;
+		private final boolean stopped;
+		private final List<Allocation> schedule;
+
+		Response(String solverId, Results results, int timeSteps, long time, boolean stopped, int batch,
+				List<Allocation> schedule) {
+			this.solverId = solverId;
+			this.results = results;
+			this.timeSteps = timeSteps;
+			this.time = time;
+			this.stopped = stopped;
+			this.batch = batch;
+			this.schedule = schedule;
+		}
+
+		public String getSolverId() {
+			return solverId;
+		}
+
+		public Results getResults() {
+			return results;
+		}
+
+		public int getTimeSteps() {
+			return timeSteps;
+		}
+
+		/**
+		 * @return The solving time (ms), without the time spent in the queue.
+		 */
+		public long getTime() {
+			return time;
+		}
+
+		/**
+		 * @return Whether the solver was stopped by the timeout.
+		 */
+		public boolean isStopped() {
+			return stopped;
+		}
+
+		/**
+		 * @return The number of instances solved in a row with this one.
+		 */
+		public int getBatch() {
+			return batch;
+		}
+
+		/**
+		 * @return The schedule, empty if it was not requested.
+		 */
+		public List<Allocation> getSchedule() {
+			return schedule;
+		}
+	}
+
+	private final String url;
+
+	public SolverClient(int port) {
+		this("localhost", port);
+	}
+
+	public SolverClient(String host, int port) {
+		url = String.format("http://%s:%d%s", host, port, SolverService.PATH);
+	}
+
+	/**
+	 * Solve an instance, waiting for the response.
+	 *
+	 * @param problem  The instance: only the data written by
+	 *                 {@link GridProblem#write(CFSTP, Writer)} are sent.
+	 * @param solverId A solver identifier.
+	 * @param timeout  The timeout (ms), or a non-positive value for the default
+	 *                 one of the service.
+	 * @param schedule Whether to receive the schedule.
+	 *
+	 * @return The response.
+	 *
+	 * @throws ServiceException If the service refused the request (e.g., status
+	 *                          503 if its queue is full).
+	 * @throws IOException      If the service cannot be reached.
+	 */
+	public Response solve(CFSTP problem, String solverId, long timeout, boolean schedule) throws IOException {
+		StringBuilder query = new StringBuilder(url).append("?solver=").append(solverId);
+		if (timeout > 0)
+			query.append("&timeout=").append(timeout);
+		if (schedule)
+			query.append("&schedule=true");
+
+		HttpURLConnection c = (HttpURLConnection) new URL(query.toString()).openConnection();
+		try {
+			c.setRequestMethod("POST");
+			c.setDoOutput(true);
+			c.setChunkedStreamingMode(0);
+
+			try (Writer w = new OutputStreamWriter(c.getOutputStream(), StandardCharsets.US_ASCII)) {
+				GridProblem.write(problem, w);
+			}
+
+			int status = c.getResponseCode();
+			if (status != HttpURLConnection.HTTP_OK)
+				throw new ServiceException(status, readMessage(c.getErrorStream()));
+
+			try (BufferedReader r = new BufferedReader(
+					new InputStreamReader(c.getInputStream(), StandardCharsets.US_ASCII))) {
+				return parse(r);
+			}
+		} finally {
+			c.disconnect();
+		}
+	}
+
+	private static String readMessage(InputStream in) throws IOException {
+		if (in == null)
+			return "";
+		try (BufferedReader r = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII))) {
+			String line = r.readLine();
+			return line == null ? "" : line;
+		}
+	}
+
+	/* See SolverService.formatResults and SolverService.formatAllocation */
+	static Response parse(BufferedReader r) throws IOException {
+		String line = r.readLine();
+		if (line == null)
+			throw new IOException("empty response");
+
+		Map<String, String> fields = new HashMap<>();
+		StringTokenizer tokens = new StringTokenizer(line);
+		while (tokens.hasMoreTokens()) {
+			String token = tokens.nextToken();
+			int i = token.indexOf('=');
+			if (i > 0)
+				fields.put(token.substring(0, i), token.substring(i + 1));
+		}
+
+		List<Allocation> schedule = new ArrayList<>();
+		try {
+			Results results = new Results(Float.parseFloat(fields.get("travelTime")),
+					Float.parseFloat(fields.get("completionTime")), Float.parseFloat(fields.get("completed")));
+
+			while ((line = r.readLine()) != null) {
+				tokens = new StringTokenizer(line);
+				int task = Integer.parseInt(tokens.nextToken());
+				String coalition = tokens.nextToken();
+				int[] agents;
+				if (coalition.equals("-"))
+					agents = new int[0];
+				else {
+					StringTokenizer members = new StringTokenizer(coalition, ",");
+					agents = new int[members.countTokens()];
+					for (int i = 0; i < agents.length; i++)
+						agents[i] = Integer.parseInt(members.nextToken());
+				}
+				schedule.add(new Allocation(task, agents, Integer.parseInt(tokens.nextToken()),
+						Integer.parseInt(tokens.nextToken())));
+			}
+
+			return new Response(fields.get("solver"), results, Integer.parseInt(fields.get("timeSteps")),
+					Long.parseLong(fields.get("time")), Boolean.parseBoolean(fields.get("stopped")),
+					Integer.parseInt(fields.get("batch")), schedule);
+		} catch (RuntimeException e) {
+			/* missing field or token, or not a number */
+			throw new IOException(String.format("malformed response \"%s\"", line), e);
+		}
+	}
+
+}
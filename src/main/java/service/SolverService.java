@@ -0,0 +1,432 @@
+package service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import model.Allocation;
+import model.CFSTP;
+import model.GridProblem;
+import model.Results;
+import solvers.Solver;
+import solvers.SolverPool;
+
+/**
+ * A local solver service, to solve many instances in a JVM whose solvers are
+ * already loaded and compiled.
+ *
+ * The service listens on the loopback interface for requests
+ * <code>POST /solve?solver=ID[&amp;timeout=MS][&amp;schedule=true]</code>, whose
+ * body is an instance in the format of {@link GridProblem}. Requests are
+ * queued, and solved by a fixed number of workers, each with its own
+ * {@link SolverPool}. A worker that takes a small instance also takes the small
+ * instances queued behind it, up to a batch size, and solves them in a row.
+ *
+ * Backpressure: if the queue is full, the request is refused with status 503
+ * and a <code>Retry-After</code> header, instead of being buffered.
+ *
+ * Timeouts: a request still queued when its timeout expires is dropped with
+ * status 504; a request being solved is stopped (see {@link Solver#stop()}),
+ * and answered with the results of the allocations done so far.
+ *
+ * The response is streamed: a line of results (see {@link SolverClient}), then,
+ * if requested, a line per allocation of the schedule.
+ *
+ * @author lcpz
+ */
+public class SolverService {
+
+	public static final String PATH = "/solve";
+
+	public static final int DEFAULT_PORT = 8642, DEFAULT_QUEUE_CAPACITY = 64, DEFAULT_BATCH_SIZE = 8;
+
+	/* Instances with at most this many agents times tasks are batched */
+	public static final int DEFAULT_SMALL_SIZE = 20 * 100;
+
+	public static final long DEFAULT_TIMEOUT = 60000; // ms
+
+	private final HttpServer server;
+
+	/* The threads handling the HTTP exchanges, which wait for the workers */
+	private final ExecutorService handlers;
+
+	private final Thread[] workers;
+
+	private final BlockingQueue<Job> queue;
+
+	/* Held by a worker while it takes a batch from the queue */
+	private final Object batchLock = new Object();
+
+	private final SolverPool solvers = new SolverPool();
+
+	private final int batchSize, smallSize;
+
+	private final long defaultTimeout;
+
+	private final LongAdder numberOfBatches = new LongAdder(), numberOfSolved = new LongAdder(),
+			numberOfRejected = new LongAdder(), numberOfTimeouts = new LongAdder();
+
+	/* A queued instance */
+	private class Job {
+		final CFSTP problem;
+		final String solverId;
+		final int size;
+
+		/* The solver of the job, while it is running */
+		private Solver solver;
+		private boolean cancelled;
+
+		final CountDownLatch done = new CountDownLatch(1);
+
+		/* Written by the worker before done is counted down */
+		Results results;
+		List<Allocation> schedule;
+		int timeSteps, batch;
+		long time;
+		boolean stopped;
+		RuntimeException error;
+
+		Job(CFSTP problem, String solverId) {
+			this.problem = problem;
+			this.solverId = solverId;
+			size = problem.getAgents().length * problem.getTasks().length;
+		}
+
+		boolean isSmall() {
+			return size <= smallSize;
+		}
+
+		void run(int batch) {
+			this.batch = batch;
+			try {
+				Solver s = solvers.get(solverId, problem);
+
+				synchronized (this) {
+					if (cancelled)
+						s.stop();
+					solver = s;
+				}
+
+				long t = System.currentTimeMillis();
+				s.solve();
+				time = System.currentTimeMillis() - t;
+
+				results = s.getResults();
+				schedule = s.getSchedule();
+				timeSteps = s.getCurrentTime();
+				stopped = s.isStopped();
+			} catch (RuntimeException e) {
+				error = e;
+			} finally {
+				/* the pooled solver may be reused by the next job: it must not be stopped */
+				synchronized (this) {
+					solver = null;
+				}
+				numberOfSolved.increment();
+				done.countDown();
+			}
+		}
+
+		synchronized void stop() {
+			cancelled = true;
+			if (solver != null)
+				solver.stop();
+		}
+	}
+
+	private class Worker implements Runnable {
+		@Override
+		public void run() {
+			List<Job> batch = new ArrayList<>(batchSize);
+			try {
+				while (true) {
+					takeBatch(batch);
+					numberOfBatches.increment();
+					for (Job job : batch)
+						job.run(batch.size());
+					batch.clear();
+				}
+			} catch (InterruptedException e) {
+				/* stopped */
+			} finally {
+				solvers.clear();
+			}
+		}
+	}
+
+	private class Handler implements HttpHandler {
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			try {
+				handleSolve(exchange);
+			} finally {
+				exchange.close();
+			}
+		}
+	}
+
+	/**
+	 * @param port           The port, or 0 for any free one (see
+	 *                       {@link #getPort()}).
+	 * @param workers        The number of solving threads.
+	 * @param queueCapacity  The maximum number of queued instances.
+	 * @param batchSize      The maximum number of small instances solved by a
+	 *                       worker in a row.
+	 * @param smallSize      The maximum number of agents times tasks of a small
+	 *                       instance.
+	 * @param defaultTimeout The timeout of requests without one (ms).
+	 *
+	 * @throws IOException If the port cannot be bound.
+	 */
+	public SolverService(int port, int workers, int queueCapacity, int batchSize, int smallSize, long defaultTimeout)
+			throws IOException {
+		this.batchSize = batchSize;
+		this.smallSize = smallSize;
+		this.defaultTimeout = defaultTimeout;
+
+		queue = new ArrayBlockingQueue<>(queueCapacity);
+
+		this.workers = new Thread[workers];
+		for (int i = 0; i < workers; i++) {
+			this.workers[i] = new Thread(new Worker(), "cfstp-worker-" + i);
+			this.workers[i].setDaemon(true);
+		}
+
+		handlers = Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "cfstp-handler");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext(PATH, new Handler());
+		server.setExecutor(handlers);
+	}
+
+	public SolverService(int port, int workers) throws IOException {
+		this(port, workers, DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_SMALL_SIZE, DEFAULT_TIMEOUT);
+	}
+
+	public void start() {
+		for (Thread w : workers)
+			w.start();
+		server.start();
+	}
+
+	/**
+	 * Stop accepting requests, and stop the workers. Queued requests are
+	 * answered with status 503.
+	 */
+	public void stop() {
+		server.stop(0);
+
+		for (Thread w : workers)
+			w.interrupt();
+
+		List<Job> jobs = new ArrayList<>();
+		queue.drainTo(jobs);
+		for (Job job : jobs) {
+			job.error = new IllegalStateException("service stopped");
+			job.done.countDown();
+		}
+
+		handlers.shutdown();
+	}
+
+	/**
+	 * Wait until the workers are stopped.
+	 *
+	 * @throws InterruptedException If the calling thread is interrupted.
+	 */
+	public void join() throws InterruptedException {
+		for (Thread w : workers)
+			w.join();
+	}
+
+	/* Take a job, and the small jobs queued behind it if it is small */
+	private void takeBatch(List<Job> batch) throws InterruptedException {
+		synchronized (batchLock) {
+			Job job = queue.take();
+			batch.add(job);
+
+			/* only workers take from the queue, and they hold batchLock: peek and poll see the same job */
+			if (job.isSmall())
+				while (batch.size() < batchSize && (job = queue.peek()) != null && job.isSmall())
+					batch.add(queue.poll());
+		}
+	}
+
+	private void handleSolve(HttpExchange exchange) throws IOException {
+		if (!"POST".equals(exchange.getRequestMethod())) {
+			send(exchange, 405, "use POST");
+			return;
+		}
+
+		Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+		String solverId = parameters.get("solver");
+		if (solverId == null) {
+			send(exchange, 400, "parameter solver is required");
+			return;
+		}
+
+		long timeout = defaultTimeout;
+		try {
+			if (parameters.containsKey("timeout"))
+				timeout = Long.parseLong(parameters.get("timeout"));
+		} catch (NumberFormatException e) {
+			send(exchange, 400, "parameter timeout is not an integer");
+			return;
+		}
+
+		CFSTP problem;
+		try (Reader r = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.US_ASCII)) {
+			problem = GridProblem.read(r);
+		} catch (IOException e) {
+			send(exchange, 400, e.getMessage());
+			return;
+		}
+
+		Job job = new Job(problem, solverId);
+
+		if (!queue.offer(job)) {
+			numberOfRejected.increment();
+			exchange.getResponseHeaders().set("Retry-After", "1");
+			send(exchange, 503, "queue full");
+			return;
+		}
+
+		try {
+			if (!job.done.await(timeout, TimeUnit.MILLISECONDS)) {
+				numberOfTimeouts.increment();
+
+				if (queue.remove(job)) {
+					send(exchange, 504, "timed out in queue");
+					return;
+				}
+
+				/* being solved: wait for the end of its current time step */
+				job.stop();
+				job.done.await();
+			}
+		} catch (InterruptedException e) {
+			job.stop();
+			send(exchange, 503, "service stopped");
+			return;
+		}
+
+		if (job.error instanceof IllegalArgumentException) {
+			send(exchange, 400, job.error.getMessage());
+			return;
+		}
+
+		if (job.error != null) {
+			send(exchange, job.error instanceof IllegalStateException ? 503 : 500, String.valueOf(job.error.getMessage()));
+			return;
+		}
+
+		/* chunked: the results first, then the schedule as it is written */
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=us-ascii");
+		exchange.sendResponseHeaders(200, 0);
+
+		Writer w = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.US_ASCII));
+		w.write(formatResults(solverId, job.results, job.timeSteps, job.time, job.stopped, job.batch));
+		w.write('\n');
+		w.flush();
+
+		if (Boolean.parseBoolean(parameters.get("schedule")))
+			for (Allocation a : job.schedule) {
+				w.write(formatAllocation(a));
+				w.write('\n');
+			}
+
+		w.flush();
+	}
+
+	private static void send(HttpExchange exchange, int status, String message) throws IOException {
+		byte[] body = (message + "\n").getBytes(StandardCharsets.US_ASCII);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=us-ascii");
+		exchange.sendResponseHeaders(status, body.length);
+		exchange.getResponseBody().write(body);
+	}
+
+	static Map<String, String> parseQuery(String query) {
+		Map<String, String> parameters = new HashMap<>();
+		if (query != null)
+			for (String p : query.split("&")) {
+				int i = p.indexOf('=');
+				if (i > 0)
+					parameters.put(p.substring(0, i), p.substring(i + 1));
+			}
+		return parameters;
+	}
+
+	/* Decimal numbers are not formatted with String.format, which depends on the default locale */
+	static String formatResults(String solverId, Results r, int timeSteps, long time, boolean stopped, int batch) {
+		return "solver=" + solverId + " completed=" + r.getCompletedTaskPercentage() + " travelTime="
+				+ r.getAvgTravelTime() + " completionTime=" + r.getAvgCompletionTime() + " timeSteps=" + timeSteps
+				+ " time=" + time + " stopped=" + stopped + " batch=" + batch;
+	}
+
+	static String formatAllocation(Allocation a) {
+		StringBuilder s = new StringBuilder().append(a.getTask()).append(' ');
+		int[] agents = a.getAgents();
+		if (agents.length == 0)
+			s.append('-');
+		for (int i = 0; i < agents.length; i++) {
+			if (i > 0)
+				s.append(',');
+			s.append(agents[i]);
+		}
+		return s.append(' ').append(a.getTravelTime()).append(' ').append(a.getCompletionTime()).toString();
+	}
+
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	public long getNumberOfBatches() {
+		return numberOfBatches.sum();
+	}
+
+	public long getNumberOfSolved() {
+		return numberOfSolved.sum();
+	}
+
+	public long getNumberOfRejected() {
+		return numberOfRejected.sum();
+	}
+
+	public long getNumberOfTimeouts() {
+		return numberOfTimeouts.sum();
+	}
+
+}
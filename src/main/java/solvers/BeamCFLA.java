@@ -0,0 +1,379 @@
+package solvers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang3.ArrayUtils;
+
+import model.Allocation;
+import model.CFSTP;
+import toolkit.Mathematics;
+
+/**
+ * CFLA with a k-step look-ahead, explored by beam search.
+ *
+ * At each time step, the ECF allocations are ranked by their 1-step degree, as
+ * in CFLA, and the best <code>beamWidth</code> ones become the roots of
+ * sequences of allocations. Sequences are extended one allocation at a time,
+ * in a simulation of the agents' free times and locations, keeping only the
+ * <code>beamWidth</code> best sequences (by the sum of the weights of their
+ * tasks, then by time) across all roots. After <code>depth</code> allocations,
+ * each sequence is scored with the 1-step degree of its last state, and the
+ * root of the best sequence is allocated.
+ *
+ * Sequences of the same level are expanded in parallel, and ECF results are
+ * shared between them through a transposition table. The threads are created
+ * by {@link #solve()}, and shut down when it returns.
+ *
+ * With depth = 1, the choice is that of CFLA (or CFLA2).
+ *
+ * @author lcpz
+ */
+public class BeamCFLA extends CFLA {
+
+	/* Number of allocations per sequence, and maximum number of sequences kept per level */
+	protected int depth, beamWidth;
+
+	/* ECF allocations computed in the current time step, shared between sequences */
+	protected ConcurrentHashMap<Key, Allocation> transpositionTable;
+
+	/* The threads of the current solve, or null */
+	protected ExecutorService executor;
+
+	/* A state of the simulation, reached by a sequence of allocations */
+	private static class Node {
+		int root; // the window index of the first task of the sequence
+		int time; // the time of the next allocation
+		float score; // the sum of the weights of the allocated tasks
+		boolean[] allocated; // the allocated tasks
+		int[] freeTime, x, y; // agent free times and locations
+	}
+
+	/* ECF inputs: a task, a time, and the candidate agents with their travel times */
+	protected static class Key {
+		private final int[] data;
+		private final int hash;
+
+		Key(int[] data) {
+			this.data = data;
+			hash = Arrays.hashCode(data);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Key && Arrays.equals(data, ((Key) o).data);
+		}
+	}
+
+	/**
+	 * @param problem   The problem.
+	 * @param improved  Whether to weight tasks as CFLA2.
+	 * @param depth     The look-ahead depth, that is, number of allocations per
+	 *                  sequence (at least 1).
+	 * @param beamWidth The maximum number of sequences kept per level.
+	 */
+	public BeamCFLA(CFSTP problem, boolean improved, int depth, int beamWidth) {
+		super(problem, improved);
+		this.depth = Math.max(1, depth);
+		this.beamWidth = beamWidth;
+		transpositionTable = new ConcurrentHashMap<>();
+	}
+
+	@Override
+	public void solve() {
+		executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		try {
+			super.solve();
+		} finally {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	/**
+	 * The weight of a task in a sequence: 1 for CFLA, and inversely proportional to
+	 * its workload for CFLA2.
+	 */
+	protected float getWeight(int v) {
+		if (!improved)
+			return 1;
+		return 2 - Mathematics.getZ(taskWorkloads[v], minTaskWorkload, maxTaskWorkload);
+	}
+
+	/**
+	 * ECF in a simulated state: the coalition of minimum size that completes v the
+	 * earliest, among the agents free at node.time.
+	 *
+	 * @return An allocation, with an empty coalition if v cannot be completed.
+	 */
+	private Allocation ECF(Node node, int v) {
+		int[] candidates = new int[agents.length], travelTimes = new int[agents.length];
+		int f = 0;
+
+		for (int a = 0; a < agents.length; a++)
+			if (node.freeTime[a] <= node.time) {
+				int t = getAgentTravelTime(a, node.x[a], node.y[a], v);
+				if (node.time + t <= taskDeadlines[v]) {
+					candidates[f] = a;
+					travelTimes[f++] = t;
+				}
+			}
+
+		int[] key = new int[2 + 2 * f];
+		key[0] = v;
+		key[1] = node.time;
+		for (int i = 0; i < f; i++) {
+			key[2 + 2 * i] = candidates[i];
+			key[3 + 2 * i] = travelTimes[i];
+		}
+
+		Key k = new Key(key);
+		Allocation ecf = transpositionTable.get(k);
+		if (ecf == null) {
+			ecf = ECF(v, node.time, candidates, travelTimes, f);
+			transpositionTable.put(k, ecf);
+		}
+
+		return ecf;
+	}
+
+	/* the state reached by doing allocation in node */
+	private Node allocate(Node node, Allocation allocation) {
+		Node child = new Node();
+		child.root = node.root;
+		child.score = node.score + getWeight(allocation.getTask());
+		child.allocated = node.allocated.clone();
+		child.allocated[allocation.getTask()] = true;
+		child.freeTime = node.freeTime.clone();
+		child.x = node.x.clone();
+		child.y = node.y.clone();
+
+		for (int a : allocation.getAgents()) {
+			child.freeTime[a] = allocation.getCompletionTime() + 1;
+			child.x[a] = taskX[allocation.getTask()];
+			child.y[a] = taskY[allocation.getTask()];
+		}
+
+		/* as in CFLA's look-ahead, the sequence goes on when the coalition gets free */
+		child.time = allocation.getCompletionTime() + 1;
+
+		return child;
+	}
+
+	/* all the states reachable from node with one allocation */
+	private List<Node> expand(Node node) {
+		List<Node> children = new ArrayList<>();
+
+		for (int w = windowStart; w < windowEnd; w++) {
+			int v = windowTasks[w];
+			if (!node.allocated[v]) {
+				Allocation ecf = ECF(node, v);
+				if (ecf.getAgents() != ArrayUtils.EMPTY_INT_ARRAY)
+					children.add(allocate(node, ecf));
+			}
+		}
+
+		return children;
+	}
+
+	/* the weighted number of tasks that can be allocated in node (1-step look-ahead) */
+	private float getDegree(Node node) {
+		float degree = 0;
+
+		for (int w = windowStart; w < windowEnd; w++) {
+			int v = windowTasks[w];
+			if (!node.allocated[v] && ECF(node, v).getAgents() != ArrayUtils.EMPTY_INT_ARRAY)
+				degree += getWeight(v);
+		}
+
+		return degree;
+	}
+
+	/* the state at current time */
+	private Node getCurrentState() {
+		Node node = new Node();
+		node.root = -1;
+		node.time = currentTime;
+		node.allocated = isAllocatedTask.clone();
+		node.x = agentX.clone();
+		node.y = agentY.clone();
+		node.freeTime = new int[agents.length];
+
+		for (int a = 0; a < agents.length; a++)
+			if (isBusyAgent[a]) {
+				node.freeTime[a] = Integer.MAX_VALUE;
+				for (int t = currentTime + 1; t < freeAt.length; t++)
+					if (freeAt[t][a]) {
+						node.freeTime[a] = t;
+						break;
+					}
+			}
+
+		return node;
+	}
+
+	@Override
+	protected Allocation getNextAllocation() {
+		transpositionTable.clear();
+
+		/* level 1: the ECF allocations at current time, ranked by their degree (as CFLA) */
+		final List<Allocation> roots = new ArrayList<>();
+		for (int w = windowStart; w < windowEnd; w++) {
+			int v = windowTasks[w];
+			if (!isAllocatedTask[v]) {
+				Allocation ecf = ECF(v);
+				/* do not allocate tasks with too high workload */
+				if (ecf.getAgents() != ArrayUtils.EMPTY_INT_ARRAY && ecf.getCompletionTime() <= maxTaskDeadline)
+					roots.add(ecf);
+			}
+		}
+
+		/* the jobs read the travel times of any agent, whose rows are filled lazily: fill them here */
+		for (int a = 0; a < agents.length; a++)
+			getAgentTravelTimes(a);
+
+		final float[] rootValue = new float[roots.size()];
+		Integer[] ranking = new Integer[roots.size()];
+
+		try {
+			List<Float> degrees = getLookAheadDegrees(roots);
+			for (int i = 0; i < roots.size(); i++) {
+				rootValue[i] = degrees.get(i);
+				ranking[i] = i;
+			}
+
+			if (depth > 1) {
+				/* stable sort: ties keep the task order, as in CFLA */
+				Arrays.sort(ranking, new Comparator<Integer>() {
+					public int compare(Integer i1, Integer i2) {
+						return Float.compare(rootValue[i2], rootValue[i1]);
+					}
+				});
+
+				Node current = getCurrentState();
+				List<Node> level = new ArrayList<>();
+
+				for (int i = 0; i < Math.min(beamWidth, ranking.length); i++)
+					if (rootValue[ranking[i]] > 0) {
+						Node node = allocate(current, roots.get(ranking[i]));
+						node.root = ranking[i];
+						level.add(node);
+					}
+
+				/* the roots out of the beam are not allocated */
+				Arrays.fill(rootValue, 0);
+
+				/* levels 2 to depth: keep the best beamWidth sequences */
+				for (int d = 1; d < depth && !level.isEmpty(); d++) {
+					List<List<Node>> children = expandAll(level);
+					List<Node> next = new ArrayList<>();
+
+					for (int i = 0; i < level.size(); i++)
+						if (children.get(i).isEmpty()) { /* sequence cannot be extended */
+							Node node = level.get(i);
+							rootValue[node.root] = Math.max(rootValue[node.root], node.score);
+						} else
+							next.addAll(children.get(i));
+
+					/* the more (weighted) tasks, the better; then, the earlier, the better */
+					Collections.sort(next, new Comparator<Node>() {
+						public int compare(Node n1, Node n2) {
+							if (n1.score != n2.score)
+								return Float.compare(n2.score, n1.score);
+							return Integer.compare(n1.time, n2.time);
+						}
+					});
+
+					level = next.size() > beamWidth ? next.subList(0, beamWidth) : next;
+				}
+
+				/* last level: add the degree of the last state */
+				degrees = getDegrees(level);
+				for (int i = 0; i < level.size(); i++) {
+					Node node = level.get(i);
+					rootValue[node.root] = Math.max(rootValue[node.root], node.score + degrees.get(i));
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+
+		Allocation nextAllocation = new Allocation();
+		float maxValue = 0;
+
+		for (int i = 0; i < roots.size(); i++)
+			if (rootValue[i] > maxValue) {
+				maxValue = rootValue[i];
+				nextAllocation = roots.get(i);
+			}
+
+		return nextAllocation;
+	}
+
+	/* get the 1-step look-ahead degree of each allocation in parallel */
+	private List<Float> getLookAheadDegrees(List<Allocation> allocations)
+			throws InterruptedException, ExecutionException {
+		List<Callable<Float>> jobs = new ArrayList<>();
+
+		for (final Allocation allocation : allocations)
+			jobs.add(new Callable<Float>() {
+				public Float call() {
+					return (float) lookAhead(allocation, freeAt[allocation.getCompletionTime() + 1]);
+				}
+			});
+
+		return invokeAll(jobs);
+	}
+
+	/* expand each node in parallel */
+	private List<List<Node>> expandAll(List<Node> nodes) throws InterruptedException, ExecutionException {
+		List<Callable<List<Node>>> jobs = new ArrayList<>();
+
+		for (final Node node : nodes)
+			jobs.add(new Callable<List<Node>>() {
+				public List<Node> call() {
+					return expand(node);
+				}
+			});
+
+		return invokeAll(jobs);
+	}
+
+	/* get the degree of each node in parallel */
+	private List<Float> getDegrees(List<Node> nodes) throws InterruptedException, ExecutionException {
+		List<Callable<Float>> jobs = new ArrayList<>();
+
+		for (final Node node : nodes)
+			jobs.add(new Callable<Float>() {
+				public Float call() {
+					return getDegree(node);
+				}
+			});
+
+		return invokeAll(jobs);
+	}
+
+	private <T> List<T> invokeAll(List<Callable<T>> jobs) throws InterruptedException, ExecutionException {
+		List<T> results = new ArrayList<>();
+		for (Future<T> f : executor.invokeAll(jobs))
+			results.add(f.get());
+		return results;
+	}
+
+}
@@ -0,0 +1,572 @@
+package solvers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import model.Allocation;
+import model.CFSTP;
+import model.Results;
+import toolkit.Coalition;
+import toolkit.LRUCache;
+import toolkit.Utilities;
+
+/**
+ * Exact solver for small CFSTPs, by depth-first branch and bound.
+ *
+ * Solutions are those of the allocation model of CFLA and EDF: at a time step,
+ * a coalition of free agents is allocated to a task, which it completes as
+ * computed by ECF (see {@link #getCompletionTime(int, int, int[], int[], int)}),
+ * and its agents get free at the task location after completion. A node is
+ * either extended with such an allocation, or with waiting until the next time
+ * an agent gets free. The number of completed tasks is maximised.
+ *
+ * Allocating a coalition earlier completes its task earlier, and the agents
+ * get free at the same location: hence, a coalition is allocated only when at
+ * least one of its agents gets free (left-justified schedules).
+ *
+ * Subtrees are pruned when the tasks completed so far, plus the allocable ones
+ * that some agent can still reach, cannot beat the best solution found. The
+ * allocations of a time step are done in order of deadline, and dominated
+ * states are skipped: those with the same time, agent locations and allocated
+ * tasks as an explored state, whose agents get free no earlier and which
+ * has no lower task to allocate next, through a bounded transposition table.
+ * The search is split below the root into jobs explored in parallel, starting
+ * from the best solution of CFLA2 and EDF.
+ *
+ * If {@link #stop()} is called, also while CFLA2 and EDF are solving, the best
+ * solution found so far is kept, and {@link #isOptimal()} is false. CTS, whose
+ * coalitions can grow while working on a task, is not restricted to this model.
+ *
+ * The search is exponential, and it does not reach 8 agents and 40 tasks. On
+ * grid instances (25 x 25 world, deadlines up to 30, workloads 10-50, one
+ * core), 6 agents and 16 tasks are proven optimal in 7-32 s (1.5-10 million
+ * nodes, a fifth of which are dominated). With 6 agents and 20 tasks, or 8
+ * agents and 16 tasks, it did not prove optimality within 2 minutes (40-60
+ * million nodes). Beyond about 6 agents and 16 tasks, use it with
+ * {@link #stop()} as an anytime solver: its best solution is at least that of
+ * CFLA2 and EDF.
+ *
+ * @author lcpz
+ */
+public class BranchAndBound extends CFLA {
+
+	public static final int DEFAULT_CAPACITY = 1 << 20;
+
+	/* Maximum number of explored states kept per key of the transposition table, none dominating another */
+	protected static final int STATES_PER_KEY = 8;
+
+	/* The search is split below the root until there are this many jobs per thread */
+	protected static final int JOBS_PER_THREAD = 64;
+
+	/* Maximum number of keys in the transposition table */
+	protected int capacity;
+
+	/*
+	 * Explored states, by time, agent locations and allocated tasks: for each
+	 * agent, the time it gets free (-1 if it is idle), then the rank of the first
+	 * task allocable when the state was reached (see dominates(int[], int[], int))
+	 */
+	protected LRUCache<State, List<int[]>> transpositionTable;
+
+	/* The heuristic solving for the initial lower bound, if any */
+	private volatile Solver heuristic;
+
+	/* Tasks by deadline: the allocations of a time step are done in this order */
+	protected int[] tasksByRank;
+
+	/* [agent][location][task]: from the location of a task, or the initial one (index tasks.length) */
+	protected int[][][] travelTimes;
+
+	/* The number of tasks completed by the best solution found */
+	protected AtomicInteger best;
+
+	/* The allocations of the best solution found, in reverse order */
+	protected volatile Decision bestDecision;
+
+	protected LongAdder numberOfNodes, numberOfDominatedNodes;
+
+	protected boolean optimal;
+
+	/* An allocation at a given time, linked to the previous ones */
+	private static class Decision {
+		final int time;
+		final Allocation allocation;
+		final Decision previous;
+
+		Decision(int time, Allocation allocation, Decision previous) {
+			this.time = time;
+			this.allocation = allocation;
+			this.previous = previous;
+		}
+	}
+
+	/* A node of the search tree */
+	private class Node {
+		int time, completed, minRank;
+		int[] freeTime, location;
+		Coalition allocated;
+		Decision decision;
+	}
+
+	/* What determines the subtree of a node, with agent free times: time, agent locations, and allocated tasks */
+	protected static class State {
+		private final int time;
+		private final int[] locations;
+		private final Coalition allocated;
+		private final int hash;
+
+		State(int time, int[] locations, Coalition allocated) {
+			this.time = time;
+			this.locations = locations;
+			this.allocated = allocated;
+			hash = 31 * (31 * time + Arrays.hashCode(locations)) + allocated.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof State))
+				return false;
+			State s = (State) o;
+			return time == s.time && Arrays.equals(locations, s.locations) && allocated.equals(s.allocated);
+		}
+	}
+
+	public BranchAndBound(CFSTP problem) {
+		this(problem, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param problem  The problem.
+	 * @param capacity The maximum number of keys in the transposition table.
+	 */
+	public BranchAndBound(CFSTP problem, int capacity) {
+		super(problem, true);
+		this.capacity = capacity;
+	}
+
+	/* the state is the search tree, explored concurrently, and the problem is fixed */
+
+	@Override
+	public boolean supportsCheckpoints() {
+		return false;
+	}
+
+	@Override
+	public boolean supportsChangeEvents() {
+		return false;
+	}
+
+	@Override
+	public boolean supportsReleaseTimes() {
+		return false;
+	}
+
+	@Override
+	public void solve() {
+		tasksByRank = getTasksSortedByDeadline();
+
+		travelTimes = new int[agents.length][tasks.length + 1][];
+		for (int a = 0; a < agents.length; a++) {
+			for (int l = 0; l < tasks.length; l++) {
+				travelTimes[a][l] = new int[tasks.length];
+				problem.getAgentTravelTimes(agents[a], taskX[l], taskY[l], travelTimes[a][l]);
+			}
+			travelTimes[a][tasks.length] = getAgentTravelTimes(a).clone();
+		}
+
+		transpositionTable = new LRUCache<>(capacity);
+		numberOfNodes = new LongAdder();
+		numberOfDominatedNodes = new LongAdder();
+		best = new AtomicInteger();
+		bestDecision = null;
+
+		/* the initial lower bound: a heuristic stopped by stop() still gives one */
+		for (CFLA h : new CFLA[] { new CFLA(problem, true), new EDF(problem) }) {
+			heuristic = h;
+			if (stopped)
+				h.stop();
+			h.solve();
+			setBest(h.getSchedule(), h.allocationTimes);
+		}
+		heuristic = null;
+
+		Node root = new Node();
+		root.time = currentTime;
+		root.freeTime = new int[agents.length];
+		Arrays.fill(root.freeTime, currentTime);
+		root.location = new int[agents.length];
+		Arrays.fill(root.location, tasks.length);
+		root.allocated = new Coalition(tasks.length);
+
+		/* split the search below the root, level by level, until there are enough jobs for the threads */
+		int threads = Runtime.getRuntime().availableProcessors();
+		List<Node> frontier = new ArrayList<>();
+		frontier.add(root);
+		boolean isRoot = true;
+
+		while (!frontier.isEmpty() && (isRoot || frontier.size() < JOBS_PER_THREAD * threads) && !stopped) {
+			List<Node> children = new ArrayList<>();
+			for (Node node : frontier)
+				search(node, children);
+			frontier = children;
+			isRoot = false;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Callable<Void>> jobs = new ArrayList<>();
+
+		for (final Node node : frontier)
+			jobs.add(new Callable<Void>() {
+				public Void call() {
+					search(node, null);
+					return null;
+				}
+			});
+
+		try {
+			for (Future<Void> f : executor.invokeAll(jobs))
+				f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			stopped = true;
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		optimal = !stopped;
+
+		if (DEBUG)
+			System.out.println(String.format("BranchAndBound: %d tasks completed (%s), %d nodes (%d dominated), %s",
+					best.get(), optimal ? "optimal" : "stopped", numberOfNodes.sum(), numberOfDominatedNodes.sum(),
+					transpositionTable));
+
+		replay();
+	}
+
+	/* allocate the best solution found, in chronological order */
+	private void replay() {
+		List<Decision> decisions = new ArrayList<>();
+		for (Decision d = bestDecision; d != null; d = d.previous)
+			decisions.add(d);
+
+		for (int i = decisions.size() - 1; i >= 0; i--) {
+			currentTime = decisions.get(i).time;
+			allocate(decisions.get(i).allocation);
+		}
+
+		int n = decisions.size();
+		results = new Results(average(totalTravelTime, n), average(totalCompletionTime, n), n / (float) tasks.length);
+	}
+
+	private void setBest(List<Allocation> schedule, int[] allocationTimes) {
+		Decision d = null;
+		for (Allocation allocation : schedule)
+			d = new Decision(allocationTimes[allocation.getTask()], allocation, d);
+		setBest(schedule.size(), d);
+	}
+
+	private synchronized void setBest(int completed, Decision decision) {
+		if (completed > best.get()) {
+			bestDecision = decision;
+			best.set(completed);
+		}
+	}
+
+	@Override
+	public void stop() {
+		super.stop();
+		Solver h = heuristic;
+		if (h != null)
+			h.stop();
+	}
+
+	/**
+	 * Search the subtree of a node, unless it is pruned.
+	 *
+	 * @param node     The node.
+	 * @param children Where to add its children, or null to search them at once.
+	 */
+	private void search(Node node, List<Node> children) {
+		if (stopped)
+			return;
+
+		numberOfNodes.increment();
+
+		if (node.completed > best.get())
+			setBest(node.completed, node.decision);
+
+		if (node.completed + getUpperBound(node) <= best.get())
+			return;
+
+		int[] agentState = new int[agents.length + 1];
+		for (int a = 0; a < agents.length; a++)
+			agentState[a] = node.freeTime[a] < node.time ? -1 : node.freeTime[a];
+		agentState[agents.length] = node.minRank;
+
+		if (isDominated(new State(node.time, node.location, node.allocated), agentState)) {
+			numberOfDominatedNodes.increment();
+			return;
+		}
+
+		expand(node, children);
+	}
+
+	/**
+	 * Check whether a state is dominated by one explored with the same key,
+	 * otherwise add it to them, removing those it dominates.
+	 *
+	 * @param state      The time, agent locations and allocated tasks.
+	 * @param agentState The agent free times and minimum rank.
+	 *
+	 * @return Whether it is dominated.
+	 */
+	private boolean isDominated(State state, int[] agentState) {
+		List<int[]> explored = transpositionTable.get(state);
+		if (explored == null) {
+			/* if another thread adds the same key meanwhile, one of the lists is lost: it only prunes less */
+			explored = new ArrayList<>();
+			transpositionTable.put(state, explored);
+		}
+
+		synchronized (explored) {
+			for (int[] e : explored)
+				if (dominates(e, agentState, state.time))
+					return true;
+
+			for (int i = explored.size() - 1; i >= 0; i--)
+				if (dominates(agentState, explored.get(i), state.time))
+					explored.remove(i);
+
+			if (explored.size() == STATES_PER_KEY)
+				explored.remove(0);
+			explored.add(agentState);
+		}
+
+		return false;
+	}
+
+	/**
+	 * Whether state s1 has all the allocations of s2 and more, given that they
+	 * have the same time, agent locations and allocated tasks. An agent free at
+	 * time t can be allocated at t or later, but an idle agent (free before t)
+	 * cannot start a coalition, which would have been allocated earlier (see
+	 * {@link #expand(Node, List)}): hence, s1 dominates s2 if each agent is idle
+	 * in s1 only if it is in s2, gets free at t in s1 only if it is idle or gets
+	 * free at t in s2, and otherwise gets free in s1 no later than in s2; and if
+	 * the tasks allocable at t in s2 are allocable in s1.
+	 *
+	 * @param s1 The agent free times (-1 if idle) and minimum rank of a state.
+	 * @param s2 Those of another state.
+	 * @param t  The time of the states.
+	 *
+	 * @return Whether s1 dominates s2.
+	 */
+	private static boolean dominates(int[] s1, int[] s2, int t) {
+		int n = s1.length - 1;
+
+		if (s1[n] > s2[n])
+			return false;
+
+		for (int a = 0; a < n; a++)
+			if (s1[a] == -1) {
+				if (s2[a] != -1)
+					return false;
+			} else if (s1[a] == t) {
+				if (s2[a] != -1 && s2[a] != t)
+					return false;
+			} else if (s2[a] < s1[a])
+				return false;
+
+		return true;
+	}
+
+	/**
+	 * The number of allocable tasks that some agent can reach by their deadline,
+	 * from where and when it gets free (see {@link #getAllocableTasksBound()}).
+	 */
+	private int getUpperBound(Node node) {
+		int bound = 0;
+
+		for (int v = 0; v < tasks.length; v++)
+			if (!node.allocated.contains(v))
+				for (int a = 0; a < agents.length; a++)
+					if (Math.max(node.freeTime[a], node.time) + travelTimes[a][node.location[a]][v] <= taskDeadlines[v]) {
+						bound++;
+						break;
+					}
+
+		return bound;
+	}
+
+	/**
+	 * Generate the children of a node: the allocations of the free agents at
+	 * node.time, then waiting until the next time an agent gets free.
+	 *
+	 * @param node     The node.
+	 * @param children Where to add the children, or null to search them at once.
+	 */
+	private void expand(Node node, List<Node> children) {
+		int[] free = new int[agents.length];
+		int f = 0, next = Integer.MAX_VALUE;
+
+		for (int a = 0; a < agents.length; a++)
+			if (node.freeTime[a] <= node.time)
+				free[f++] = a;
+			else
+				next = Math.min(next, node.freeTime[a]);
+
+		int[] candidates = new int[f], candidateTravelTimes = new int[f];
+
+		for (int r = node.minRank; r < tasks.length && !stopped; r++) {
+			int v = tasksByRank[r];
+			if (node.allocated.contains(v) || taskDeadlines[v] < node.time)
+				continue;
+
+			int c = 0;
+			for (int i = 0; i < f; i++) {
+				int t = travelTimes[free[i]][node.location[free[i]]][v];
+				if (node.time + t <= taskDeadlines[v]) {
+					candidates[c] = free[i];
+					candidateTravelTimes[c++] = t;
+				}
+			}
+
+			/* all the coalitions of candidates, smallest first */
+			for (int size = 1; size <= c; size++) {
+				int[] indexes = new int[size];
+				for (int i = 0; i < size; i++)
+					indexes[i] = i;
+
+				do {
+					int[] coalition = new int[size], cTravelTimes = new int[size];
+					int maxTravelTime = 0;
+					boolean isLeftJustified = false;
+					for (int i = 0; i < size; i++) {
+						coalition[i] = candidates[indexes[i]];
+						cTravelTimes[i] = candidateTravelTimes[indexes[i]];
+						maxTravelTime = Math.max(maxTravelTime, cTravelTimes[i]);
+						isLeftJustified |= node.freeTime[coalition[i]] == node.time;
+					}
+
+					/* if all its agents were free before, the coalition is better allocated then */
+					if (!isLeftJustified)
+						continue;
+
+					int completionTime = getCompletionTime(v, node.time, coalition, cTravelTimes, maxTravelTime);
+
+					/* as in CFLA, do not allocate tasks with too high workload */
+					if (completionTime > -1 && completionTime <= maxTaskDeadline) {
+						Node child = new Node();
+						child.time = node.time;
+						child.completed = node.completed + 1;
+						child.minRank = r + 1;
+						child.freeTime = node.freeTime.clone();
+						child.location = node.location.clone();
+						for (int a : coalition) {
+							child.freeTime[a] = completionTime + 1;
+							child.location[a] = v;
+						}
+						child.allocated = new Coalition(tasks.length);
+						child.allocated.set(node.allocated);
+						child.allocated.add(v);
+						child.decision = new Decision(node.time,
+								new Allocation(v, coalition, maxTravelTime, completionTime), node.decision);
+
+						if (children != null)
+							children.add(child);
+						else
+							search(child, null);
+					}
+				} while (Utilities.nextCombination(indexes, c));
+			}
+		}
+
+		/* no allocation can be done at or after maxTaskDeadline */
+		if (next < maxTaskDeadline) {
+			Node child = new Node();
+			child.time = next;
+			child.completed = node.completed;
+			child.freeTime = node.freeTime;
+			child.location = node.location;
+			child.allocated = node.allocated;
+			child.decision = node.decision;
+
+			if (children != null)
+				children.add(child);
+			else
+				search(child, null);
+		}
+	}
+
+	/**
+	 * Solve the problem with other solvers, and report their gap to the solution
+	 * of this one, which must have been solved.
+	 *
+	 * @param solverIds Solver identifiers (see {@link Portfolio#newSolver}).
+	 *
+	 * @return A line per solver, with its completed tasks and gap.
+	 */
+	public String benchmark(String... solverIds) {
+		StringBuilder s = new StringBuilder(String.format("%-14s %6.2f%% completed tasks (%s)%n", "BranchAndBound",
+				results.getCompletedTaskPercentage() * 100, optimal ? "optimal" : "not proven optimal"));
+
+		for (String id : solverIds) {
+			Solver solver = Portfolio.newSolver(id, problem);
+			solver.solve();
+			s.append(String.format("%-14s %6.2f%% completed tasks, gap %6.2f%%%n", id,
+					solver.getResults().getCompletedTaskPercentage() * 100, getGap(solver.getResults()) * 100));
+		}
+
+		return s.toString();
+	}
+
+	/**
+	 * The optimality gap of a solution, that is, its relative shortfall in
+	 * completed tasks from the solution of this solver.
+	 *
+	 * @param results The results of a solver on the same problem.
+	 *
+	 * @return A number <= 1, negative if results are better (e.g., for CTS).
+	 */
+	public float getGap(Results results) {
+		float optimum = this.results.getCompletedTaskPercentage();
+		if (optimum == 0)
+			return 0;
+		return (optimum - results.getCompletedTaskPercentage()) / optimum;
+	}
+
+	/**
+	 * @return Whether the search was completed, that is, the solution is optimal.
+	 */
+	public boolean isOptimal() {
+		return optimal;
+	}
+
+	public long getNumberOfNodes() {
+		return numberOfNodes.sum();
+	}
+
+	/**
+	 * @return The number of nodes skipped because they were dominated by an
+	 *         explored one.
+	 */
+	public long getNumberOfDominatedNodes() {
+		return numberOfDominatedNodes.sum();
+	}
+
+}
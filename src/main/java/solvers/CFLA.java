@@ -1,14 +1,22 @@
 package solvers;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Comparator;
 
 import org.apache.commons.lang3.ArrayUtils;
-import org.apache.commons.math3.util.Combinations;
 
 import model.Allocation;
 import model.CFSTP;
+import model.ChangeEvent;
 import model.Results;
+import profiling.AllocationEvent;
+import profiling.ECFEvent;
+import profiling.LookAheadEvent;
+import profiling.TimeStepEvent;
+import toolkit.Coalition;
 import toolkit.Mathematics;
 import toolkit.Utilities;
 
@@ -21,17 +29,51 @@ public class CFLA extends Solver {
 
 	/*
 	 * The set of all possible allocations of agents to tasks:
-	 * [time][agentId][taskId]
+	 * [time][agentId][taskId]. It is allocated at the first time step, since
+	 * subclasses that do not go through time steps (BranchAndBound) never use it.
 	 */
 	protected boolean[][][] T;
 
 	/* CFLA or CFLA2 */
-	private boolean improved;
+	protected boolean improved;
+
+	/* time steps at which agents are set 'free': [time][agentId] */
+	protected boolean[][] freeAt;
+
+	/*
+	 * Rolling horizon: if > 0, only the tasks with deadline in [currentTime,
+	 * currentTime + horizon] are considered at each time step.
+	 */
+	protected int horizon;
+
+	/*
+	 * The tasks considered at current time are windowTasks[windowStart ..
+	 * windowEnd - 1]. Without horizon, windowTasks contains all tasks in their
+	 * original order; otherwise, it contains them sorted by deadline, and the
+	 * window slides forward as time advances.
+	 */
+	protected int[] windowTasks;
+	protected int windowStart, windowEnd;
+
+	/*
+	 * Batch mode: at each time step, keep allocating the best task (re-ranked
+	 * after each allocation) until no allocation is possible with the agents left,
+	 * instead of doing just 1 allocation.
+	 */
+	protected boolean batch;
+
+	/* how many times ECF(int) has been called */
+	protected long numberOfECFCalls;
+
+	/* the time at which each allocated task has been allocated */
+	protected int[] allocationTimes;
 
 	public CFLA(CFSTP problem) {
 		super(problem);
-		/* setting T */
-		T = new boolean[problem.getMaxTaskDeadline()][agents.length][tasks.length];
+		/* completion times go up to maxTaskDeadline, hence agents up to maxTaskDeadline + 1 */
+		freeAt = new boolean[maxTaskDeadline+2][agents.length];
+		allocationTimes = new int[tasks.length];
+		setWindow();
 	}
 
 	public CFLA(CFSTP problem, boolean improved) {
@@ -39,6 +81,254 @@ public class CFLA extends Solver {
 		this.improved = improved;
 	}
 
+	/**
+	 * @param problem  The problem.
+	 * @param improved Whether to use CFLA2.
+	 * @param horizon  The rolling horizon, in time steps (0 means no horizon).
+	 */
+	public CFLA(CFSTP problem, boolean improved, int horizon) {
+		this(problem, improved);
+		this.horizon = horizon;
+		setWindow();
+	}
+
+	/**
+	 * @param problem  The problem.
+	 * @param improved Whether to use CFLA2.
+	 * @param horizon  The rolling horizon, in time steps (0 means no horizon).
+	 * @param batch    Whether to do multiple allocations per time step.
+	 */
+	public CFLA(CFSTP problem, boolean improved, int horizon, boolean batch) {
+		this(problem, improved, horizon);
+		this.batch = batch;
+	}
+
+	@Override
+	public void reset(CFSTP problem) {
+		super.reset(problem);
+		if (T != null)
+			T = clear(T, maxTaskDeadline, agents.length, tasks.length);
+		freeAt = clear(freeAt, maxTaskDeadline+2, agents.length);
+		if (allocationTimes.length < tasks.length)
+			allocationTimes = new int[tasks.length];
+		setWindow();
+		numberOfECFCalls = 0;
+	}
+
+	@Override
+	public boolean supportsCheckpoints() {
+		return true;
+	}
+
+	@Override
+	public boolean supportsChangeEvents() {
+		return true;
+	}
+
+	@Override
+	public boolean supportsReleaseTimes() {
+		return true;
+	}
+
+	@Override
+	public void setReleaseTimes(int[] releaseTimes) {
+		super.setReleaseTimes(releaseTimes);
+		/* agents released after the last deadline are never set free */
+		for (int a = 0; a < agents.length; a++)
+			if (releaseTimes[a] > currentTime && releaseTimes[a] < freeAt.length)
+				freeAt[releaseTimes[a]][a] = true;
+	}
+
+	/*
+	 * At the beginning of a time step, T is empty (it is set at current time
+	 * only), and the window is derived from current time by slideWindow().
+	 */
+
+	@Override
+	protected void writeState(DataOutput out) throws IOException {
+		super.writeState(out);
+		for (int t = 0; t < maxTaskDeadline+2; t++)
+			writeBits(out, freeAt[t], agents.length);
+		out.writeLong(numberOfECFCalls);
+		writeInts(out, allocationTimes, tasks.length);
+	}
+
+	@Override
+	protected void readState(DataInput in) throws IOException {
+		super.readState(in);
+		for (int t = 0; t < maxTaskDeadline+2; t++)
+			readBits(in, freeAt[t], agents.length);
+		numberOfECFCalls = in.readLong();
+		readInts(in, allocationTimes, tasks.length);
+		setWindow();
+	}
+
+	/*
+	 * Re-planning: as agents are moved to a task when they are allocated to it
+	 * (see allocate(Allocation)), a coalition set free before completing its task
+	 * is at the task location. T is set at each time step, hence it only has to be
+	 * extended to the new tasks.
+	 */
+
+	@Override
+	protected int insertTask(int x, int y, int deadline, int workload) {
+		int v = super.insertTask(x, y, deadline, workload);
+
+		if (T != null) {
+			if (T.length < maxTaskDeadline) {
+				int t = T.length;
+				T = Arrays.copyOf(T, maxTaskDeadline);
+				for (; t < maxTaskDeadline; t++)
+					T[t] = new boolean[agents.length][tasks.length];
+			}
+
+			/* only the current and future time steps are accessed */
+			for (int t = currentTime; t < maxTaskDeadline; t++)
+				for (int a = 0; a < agents.length; a++)
+					if (T[t][a].length < tasks.length)
+						T[t][a] = Arrays.copyOf(T[t][a], grow(tasks.length));
+		}
+
+		if (freeAt.length < maxTaskDeadline+2) {
+			int t = freeAt.length;
+			freeAt = Arrays.copyOf(freeAt, maxTaskDeadline+2);
+			for (; t < freeAt.length; t++)
+				freeAt[t] = new boolean[agents.length];
+		}
+
+		if (allocationTimes.length < tasks.length)
+			allocationTimes = Arrays.copyOf(allocationTimes, grow(tasks.length));
+
+		setWindow();
+
+		return v;
+	}
+
+	@Override
+	protected void cancelTask(int v) {
+		/* a completed task stays completed, in the schedule and in the averages */
+		if (isAllocatedTask[v] && !unallocate(v))
+			return;
+		super.cancelTask(v);
+	}
+
+	@Override
+	protected void failAgent(int a) {
+		/* re-plan the task of a, if it is in progress */
+		for (int i = schedule.size() - 1; i >= 0 && isBusyAgent[a]; i--)
+			if (ArrayUtils.contains(schedule.get(i).getAgents(), a)) {
+				unallocate(schedule.get(i).getTask());
+				break;
+			}
+
+		/* a is never set free */
+		for (int t = currentTime; t < freeAt.length; t++)
+			freeAt[t][a] = false;
+
+		super.failAgent(a);
+	}
+
+	/**
+	 * Undo the allocation of a task that is in progress, i.e., not completed
+	 * before current time: the task can be allocated again, and its coalition is
+	 * set free. The work done on it is lost.
+	 *
+	 * @param v A task index.
+	 *
+	 * @return Whether v was in progress.
+	 */
+	protected boolean unallocate(int v) {
+		if (!isAllocatedTask[v] || isCancelledTask[v])
+			return false;
+
+		int i = schedule.size() - 1;
+		while (i >= 0 && schedule.get(i).getTask() != v)
+			i--;
+
+		Allocation allocation = schedule.get(i);
+		if (allocation.getCompletionTime() < currentTime)
+			return false;
+
+		schedule.remove(i);
+		isAllocatedTask[v] = false;
+
+		for (int agent : allocation.getAgents()) {
+			isBusyAgent[agent] = isFailedAgent[agent];
+			freeAt[allocation.getCompletionTime() + 1][agent] = false;
+		}
+
+		totalTravelTime -= allocation.getTravelTime();
+		totalCompletionTime -= allocation.getCompletionTime() - allocationTimes[v];
+
+		return true;
+	}
+
+	/**
+	 * @param b      A buffer, or null.
+	 * @param times  The required number of time steps.
+	 * @param agents The required number of agents.
+	 * @param tasks  The required number of tasks.
+	 *
+	 * @return b with its first times x agents x tasks elements cleared, if it is
+	 *         large enough, otherwise a new array of that shape.
+	 */
+	protected static boolean[][][] clear(boolean[][][] b, int times, int agents, int tasks) {
+		if (b == null || b.length < times || times > 0 && (b[0].length < agents || agents > 0 && b[0][0].length < tasks))
+			return new boolean[times][agents][tasks];
+		for (int t = 0; t < times; t++)
+			for (int a = 0; a < agents; a++)
+				Arrays.fill(b[t][a], 0, tasks, false);
+		return b;
+	}
+
+	/**
+	 * Set the window at time 0: all tasks without horizon, otherwise none yet (see
+	 * {@link #slideWindow()}).
+	 */
+	protected void setWindow() {
+		windowStart = 0;
+		if (horizon > 0) {
+			windowTasks = getTasksSortedByDeadline();
+			windowEnd = 0;
+		} else {
+			windowTasks = tasks;
+			windowEnd = tasks.length;
+		}
+	}
+
+	/**
+	 * @return The tasks sorted by deadline, in ascending order.
+	 */
+	protected int[] getTasksSortedByDeadline() {
+		Integer[] s = ArrayUtils.toObject(tasks);
+		Arrays.sort(s, new Comparator<Integer>() {
+			public int compare(Integer o1, Integer o2) {
+				if (taskDeadlines[o1] < taskDeadlines[o2])
+					return -1;
+				if (taskDeadlines[o1] == taskDeadlines[o2])
+					return 0;
+				return 1;
+			}
+		});
+
+		return ArrayUtils.toPrimitive(s);
+	}
+
+	/**
+	 * Slide the rolling horizon window to current time: drop the tasks whose
+	 * deadline has passed, and add those whose deadline is within the horizon.
+	 */
+	protected void slideWindow() {
+		if (horizon <= 0)
+			return;
+
+		while (windowEnd < windowTasks.length && taskDeadlines[windowTasks[windowEnd]] <= currentTime + horizon)
+			windowEnd++;
+
+		while (windowStart < windowEnd && taskDeadlines[windowTasks[windowStart]] < currentTime)
+			windowStart++;
+	}
+
 	/**
 	 * Get the number of time steps required to reach a task, by each agent in a
 	 * given coalition.
@@ -53,64 +343,126 @@ public class CFLA extends Solver {
 		int[] travelTimes = new int[coalition.length];
 
 		for (int a = 0; a < coalition.length; a++)
-			travelTimes[a] = problem.getAgentTravelTime(agents[coalition[a]], agentLocations[coalition[a]], taskLocations[task]);
+			travelTimes[a] = getAgentTravelTimes(coalition[a])[task];
 
 		return travelTimes;
 	}
 
-	private float getSubCoalitionsContribution(int task, int[] coalition, int[] travelTimes) {
-		int i, contribution = 0;
+	protected float getSubCoalitionsContribution(int task, int[] coalition, int[] travelTimes) {
+		int i, j, contribution = 0;
 
-		/* get arrival times */
-		ArrayUtils.addAll(travelTimes, currentTime);
+		if (coalition.length < 2)
+			return contribution;
 
-		/* sort coalition agents by arrival times */
-		Integer[] sorted = Utilities.getRangeArray(coalition.length);
-		Arrays.sort(sorted, new Comparator<Integer>() {
-			public int compare(Integer o1, Integer o2) {
-				if (travelTimes[o1] < travelTimes[o2])
-					return -1;
-				if (travelTimes[o1] == travelTimes[o2])
-					return 0;
-				return 1;
+		/* sort coalition agents by arrival times (i.e., currentTime + travel times), stably */
+		int[] sortedAgents = coalition.clone(), sortedTravelTimes = travelTimes.clone();
+		for (i = 1; i < sortedAgents.length; i++) {
+			int agent = sortedAgents[i], travelTime = sortedTravelTimes[i];
+			for (j = i - 1; j >= 0 && sortedTravelTimes[j] > travelTime; j--) {
+				sortedAgents[j + 1] = sortedAgents[j];
+				sortedTravelTimes[j + 1] = sortedTravelTimes[j];
 			}
-		});
-
-		int[] sortedAgents = ArrayUtils.toPrimitive(sorted);
+			sortedAgents[j + 1] = agent;
+			sortedTravelTimes[j + 1] = travelTime;
+		}
 
 		/* get subcoalitions contribution */
 		for (i = 0; i < sortedAgents.length - 1; i++)
-			contribution += problem.getCoalitionValue(task, ArrayUtils.subarray(sortedAgents, 0, i + 1))
-			                * (travelTimes[i+1] - travelTimes[i]);
+			contribution += problem.getCoalitionValue(task, Arrays.copyOf(sortedAgents, i + 1))
+			                * (sortedTravelTimes[i+1] - sortedTravelTimes[i]);
 
 		return contribution;
 	}
 
 	// Step 1: for each task v, define which agents can reach v at current time
-	protected void setFeasibleAgentAllocationsToAllTasks() {
-		int a, v;
+	protected boolean setFeasibleAgentAllocationsToAllTasks() {
+		int a, v, i;
+		boolean feasible = false;
+		if (T == null)
+			T = new boolean[maxTaskDeadline][agents.length][tasks.length];
 		for (a = 0; a < agents.length; a++)
-			if (!isBusyAgent[a]) /* given each free agent a */
-				for (v = 0; v < tasks.length; v++)
-					if (!isAllocatedTask[v]) /* given each uncompleted task v */
+			if (!isBusyAgent[a]) { /* given each free agent a */
+				int[] travelTimes = getAgentTravelTimes(a);
+				for (i = windowStart; i < windowEnd; i++)
+					if (!isAllocatedTask[v = windowTasks[i]]) /* given each uncompleted task v */
 						/* if a can reach v within deadline */
-						if (currentTime +
-							problem.getAgentTravelTime(agents[a], agentLocations[a], taskLocations[v]) <= demands[v][0])
-							T[currentTime][a][v] = true;
+						if (currentTime + travelTimes[v] <= taskDeadlines[v])
+							feasible = T[currentTime][a][v] = true;
+			}
+		return feasible;
+	}
+
+	/**
+	 * Get the first time step, after the current one, at which an allocation can
+	 * be feasible, given that none is feasible at current time. Until then, the
+	 * free agents and their locations do not change, and the time left to each
+	 * deadline decreases: hence, the next feasible allocation requires an agent
+	 * to be set free, a task to enter the rolling horizon, or a change event.
+	 *
+	 * The time of the next periodic checkpoint, if any, is not skipped either.
+	 *
+	 * @return A time step in [currentTime + 1, maxTaskDeadline].
+	 */
+	protected int getNextFeasibilityTime() {
+		int next = maxTaskDeadline;
+
+		ChangeEvent e = changeEvents.peek();
+		if (e != null)
+			next = Math.min(next, e.getTime());
+
+		if (windowEnd < windowTasks.length)
+			next = Math.min(next, taskDeadlines[windowTasks[windowEnd]] - horizon);
+
+		if (checkpointFile != null && checkpointInterval > 0)
+			next = Math.min(next, (currentTime / checkpointInterval + 1) * checkpointInterval);
+
+		for (int t = currentTime + 1; t < next; t++)
+			for (int a = 0; a < agents.length; a++)
+				if (freeAt[t][a])
+					return t;
+
+		return Math.max(next, currentTime + 1);
 	}
 
 	// Step 2: choosing the best coalition for task v at current time
 	protected Allocation ECF(int v) {
 		int a, n = agents.length, f = 0;
+		numberOfECFCalls++;
 
-		/* current feasible agent allocations to task v */
-		int[] feasibleAgents = new int[n];
+		/* current feasible agent allocations to task v, with their travel times */
+		int[] feasibleAgents = new int[n], travelTimes = new int[n];
 		for (a = 0; a < n; a++)
-			if (T[currentTime][a][v])
-				feasibleAgents[f++] = agents[a];
+			if (T[currentTime][a][v]) {
+				feasibleAgents[f] = agents[a];
+				travelTimes[f++] = getAgentTravelTimes(agents[a])[v];
+			}
 
-		if (f < n)
-			feasibleAgents = ArrayUtils.subarray(feasibleAgents, 0, f);
+		return ECF(v, currentTime, feasibleAgents, travelTimes, f);
+	}
+
+	/**
+	 * The Earliest-Completion-First (ECF) coalition for a task, among given
+	 * candidate agents: the coalition of minimum size that completes the task the
+	 * earliest, if allocated at a given time.
+	 *
+	 * Combinations are enumerated in place, and a coalition is built only if it
+	 * can reach the task in time.
+	 *
+	 * @param v           The task.
+	 * @param time        The allocation time.
+	 * @param candidates  The candidate agents, in candidates[0 .. f - 1].
+	 * @param travelTimes Their travel times to v, aligned with candidates.
+	 * @param f           The number of candidates.
+	 *
+	 * @return An allocation, with an empty coalition if v cannot be completed.
+	 */
+	protected Allocation ECF(int v, int time, int[] candidates, int[] travelTimes, int f) {
+		ECFEvent event = null;
+		if (isRecording()) {
+			event = new ECFEvent();
+			event.begin();
+		}
+		long coalitionsVisited = 0;
 
 		/* the Earliest-Completion-First (ECF) coalition */
 		int[] bestCoalition = ArrayUtils.EMPTY_INT_ARRAY;
@@ -119,7 +471,7 @@ public class CFLA extends Solver {
 		int bestTravelTime = -1;
 
 		/* minimum completion time of v, initialised to its deadline */
-		int bestCompletionTime = demands[v][0] + 1;
+		int bestCompletionTime = taskDeadlines[v] + 1;
 
 		/*
 		 * this upper bound, paired with the following while loop logic, ensures that,
@@ -128,58 +480,105 @@ public class CFLA extends Solver {
 		 */
 		int minCoalitionSize = f + 1;
 
-		a = 0;
-		while (++a <= f && minCoalitionSize == f + 1)
+		int a = 0, i;
+		while (++a <= f && minCoalitionSize == f + 1) {
 			/*
 			 * huge limit: coalition size is typical 1, hence coalitions of higher value (if
 			 * available) are discarded
 			 */
-			for (int[] coalition : new Combinations(f, a) ) {
-				/* replace indexes with actual feasible agent IDs in coalition */
-				coalition = Utilities.subarray(feasibleAgents, coalition);
+			int[] indexes = new int[a];
+			for (i = 0; i < a; i++)
+				indexes[i] = i;
+
+			do {
+				coalitionsVisited++;
 
-				int[] cTravelTimes = getCoalitionTravelTimes(v, coalition);
-				int maxTravelTime = Utilities.getMax(cTravelTimes);
+				int maxTravelTime = 0;
+				for (i = 0; i < a; i++)
+					maxTravelTime = Math.max(maxTravelTime, travelTimes[indexes[i]]);
 
 				/*
 				 * the coalition does not start working until all its agent have reached the task location,
 				 * hence we remove the workload done by all earlier subcoalitions
 				 */
 
-				int tInterval = demands[v][0] - currentTime - maxTravelTime + 1;
+				int tInterval = taskDeadlines[v] - time - maxTravelTime + 1;
 
 				if (tInterval <= 0)
 					continue; /* coalition can't reach task v */
 
-				float cValue = problem.getCoalitionValue(v, coalition);
-				float workloadDone = getSubCoalitionsContribution(v, coalition, cTravelTimes);
+				/* replace indexes with actual feasible agent IDs in coalition */
+				int[] coalition = new int[a], cTravelTimes = new int[a];
+				for (i = 0; i < a; i++) {
+					coalition[i] = candidates[indexes[i]];
+					cTravelTimes[i] = travelTimes[indexes[i]];
+				}
+
+				int tminmax = getCompletionTime(v, time, coalition, cTravelTimes, maxTravelTime);
 
-				/* if full coalition can complete v by its deadline, starting from currentTime */
-				if (tInterval * cValue >= demands[v][1] - workloadDone) {
+				/* if full coalition can complete v by its deadline, starting from time */
+				if (tminmax > -1) {
 					/* then a is the minimum size of the coalition that can complete v */
 					minCoalitionSize = a;
 
-					/*
-					 * get the minimum time tminmax at which this coalition can complete v, that is,
-					 * the minimum number of time step t between currentTime and deadline_v s.t.:
-					 * t * u(C) >= workload_v
-					 */
-					int tminmax = 0;
-					while (++tminmax * cValue < demands[v][1] - workloadDone && tminmax <= tInterval);
-					tminmax += currentTime;
-
 					if (tminmax < bestCompletionTime) {
 						bestCoalition = coalition;
 						bestTravelTime = maxTravelTime;
 						bestCompletionTime = tminmax;
 					}
 				}
+			} while (Utilities.nextCombination(indexes, f));
+		}
 
-			}
+		if (event != null && event.shouldCommit()) {
+			event.solver = getClass().getSimpleName();
+			event.task = v;
+			event.time = time;
+			event.feasibleAgents = f;
+			event.coalitionsVisited = coalitionsVisited;
+			event.coalitionSize = bestCoalition.length;
+			event.commit();
+		}
 
 		return new Allocation(v, bestCoalition, bestTravelTime, bestCompletionTime);
 	}
 
+	/**
+	 * The completion time of a task by a coalition allocated to it at a given time,
+	 * as computed by ECF.
+	 *
+	 * @param v             The task.
+	 * @param time          The allocation time.
+	 * @param coalition     The coalition.
+	 * @param travelTimes   The travel times of its agents to v.
+	 * @param maxTravelTime The maximum of travelTimes.
+	 *
+	 * @return The completion time, or -1 if the coalition cannot complete v by its
+	 *         deadline.
+	 */
+	protected int getCompletionTime(int v, int time, int[] coalition, int[] travelTimes, int maxTravelTime) {
+		int tInterval = taskDeadlines[v] - time - maxTravelTime + 1;
+
+		if (tInterval <= 0)
+			return -1;
+
+		float cValue = problem.getCoalitionValue(v, coalition);
+		float workloadDone = getSubCoalitionsContribution(v, coalition, travelTimes);
+
+		if (tInterval * cValue < taskWorkloads[v] - workloadDone)
+			return -1;
+
+		/*
+		 * get the minimum time tminmax at which this coalition can complete v, that is,
+		 * the minimum number of time step t between time and deadline_v s.t.:
+		 * t * u(C) >= workload_v
+		 */
+		int tminmax = 0;
+		while (++tminmax * cValue < taskWorkloads[v] - workloadDone && tminmax <= tInterval);
+
+		return tminmax + time;
+	}
+
 	/**
 	 * 1-step look-ahead procedure used by {@link solvers.CFLA#solve()}.
 	 *
@@ -193,17 +592,32 @@ public class CFLA extends Solver {
 	 * @return v's degree
 	 */
 	protected int lookAhead(Allocation allocation, boolean[] isFreeAgent) {
+		LookAheadEvent event = null;
+		if (isRecording()) {
+			event = new LookAheadEvent();
+			event.begin();
+		}
+
 		int v = allocation.getTask();
 		int[] coalition = allocation.getAgents();
 		int vCompletionTime = allocation.getCompletionTime();
 		int degreeV = 0;
 
-		for (int v2 = 0; v2 < tasks.length; v2++)
+		/* the agents that are free at completionTime, plus those in coalition */
+		Coalition available = Coalition.of(agents.length, coalition);
+		for (int a = 0; a < agents.length; a++)
+			if (isFreeAgent[a])
+				available.add(agents[a]);
+		int[] feasibleAgents = new int[available.size()];
+
+		for (int w = windowStart; w < windowEnd; w++) {
+			int v2 = windowTasks[w];
+
 			/* if v2 is not allocated and it's not v */
 			if (!isAllocatedTask[v2] && v != v2) {
 
 				/* Improvement: AND d_v2 >= d_v */
-				if (improved && demands[v2][0] < demands[v][0])
+				if (improved && taskDeadlines[v2] < taskDeadlines[v])
 					continue;
 
 				/*
@@ -211,44 +625,43 @@ public class CFLA extends Solver {
 				 * form a coalition that can complete v2, then increase degreeV by 1
 				 */
 
-				/* 1. get the agents that are free at completionTime */
-				int f = 0;
-				for (boolean b : isFreeAgent) if (b) f++;
-				int[] feasibleAgents = new int[f];
-				int i, j = 0;
-				for (i = 0; i < isFreeAgent.length; i++)
-					if (isFreeAgent[i])
-						feasibleAgents[j++] = agents[i];
-				feasibleAgents = ArrayUtils.addAll(feasibleAgents, coalition);
-
-				/* 2. select those that can reach v2 within deadline */
-				for (i = 0; i < feasibleAgents.length; i++)
-					if (vCompletionTime
-						+ problem.getAgentTravelTime(feasibleAgents[i], agentLocations[feasibleAgents[i]], taskLocations[v2]) > demands[v2][0])
-						feasibleAgents[i] = -1;
-				feasibleAgents = ArrayUtils.removeAllOccurences(feasibleAgents, -1);
-
-				/* 3. check if it exists an ECF coalition that can complete v2 */
-				i = 0;
-				while (++i <= feasibleAgents.length)
+				/* 1. select the available agents that can reach v2 within deadline */
+				int f = 0, i;
+				for (int a = available.next(0); a >= 0; a = available.next(a + 1))
+					if (vCompletionTime + getAgentTravelTimes(a)[v2] <= taskDeadlines[v2])
+						feasibleAgents[f++] = a;
+
+				/* 2. check if it exists an ECF coalition that can complete v2 */
+				int size = 0;
+				while (++size <= f) {
 					/*
 					 * huge limit: coalition size is typical 1, hence coalitions of higher value (if
 					 * available) are discarded
 					 */
-					for (int[] c : new Combinations(feasibleAgents.length, i)) {
-						/* replace indexes with actual feasible agent IDs in coalition */
-						c = Utilities.subarray(feasibleAgents, c);
-						int[] cTravelTimes = getCoalitionTravelTimes(v, c);
-						int maxTravelTime = Utilities.getMax(cTravelTimes);
+					int[] indexes = new int[size];
+					for (i = 0; i < size; i++)
+						indexes[i] = i;
+
+					boolean found = false;
+					do {
+						int maxTravelTime = 0;
+						for (i = 0; i < size; i++)
+							maxTravelTime = Math.max(maxTravelTime, getAgentTravelTimes(feasibleAgents[indexes[i]])[v]);
 
-						int tInterval = demands[v][0] - vCompletionTime - maxTravelTime + 1;
+						int tInterval = taskDeadlines[v] - vCompletionTime - maxTravelTime + 1;
 
 						if (tInterval <= 0)
 							continue; /* coalition c can't reach task v */
 
+						/* replace indexes with actual feasible agent IDs in coalition */
+						int[] c = new int[size];
+						for (i = 0; i < size; i++)
+							c[i] = feasibleAgents[indexes[i]];
+						int[] cTravelTimes = getCoalitionTravelTimes(v, c);
+
 						/* if c can complete v2 by its deadline */
 						if (tInterval * problem.getCoalitionValue(v2, c) >=
-							demands[v2][1] - getSubCoalitionsContribution(v2, c, cTravelTimes)) {
+							taskWorkloads[v2] - getSubCoalitionsContribution(v2, c, cTravelTimes)) {
 							if (!improved)
 								/* CFLA: each task that can be completed after v
 								 * has the same weight (1) */
@@ -256,106 +669,187 @@ public class CFLA extends Solver {
 							else
 								/* CFLA2: each task that can be completed after v
 								 * weights inversely proportional to its workload */
-								degreeV += 2 - Mathematics.getZ(demands[v2][1], minTaskWorkload, maxTaskWorkload);
+								degreeV += 2 - Mathematics.getZ(taskWorkloads[v2], minTaskWorkload, maxTaskWorkload);
 								/* in other words, the higher degreeV is, the more
 								 * tasks with light workload we can complete after v; hence,
 								 * by completing first the tasks with light workload,
 								 * hypothetically we can complete more tasks in general
 								 */
 
-							i = feasibleAgents.length; // break external while as well
+							found = true;
 							break;
 						}
-					}
+					} while (Utilities.nextCombination(indexes, f));
+
+					if (found)
+						break;
+				}
 			}
+		}
+
+		if (event != null && event.shouldCommit()) {
+			event.solver = getClass().getSimpleName();
+			event.task = v;
+			event.degree = degreeV;
+			event.commit();
+		}
 
 		return degreeV;
 	}
 
+	/**
+	 * Choose the allocation to do at current time: the ECF allocation of the task
+	 * with the highest degree (see {@link #lookAhead(Allocation, boolean[])}).
+	 *
+	 * @return The next allocation, or an empty allocation if none is possible.
+	 */
+	protected Allocation getNextAllocation() {
+		int maxTaskDegree = 0; // current max task degree
+		Allocation nextAllocation = new Allocation(); // the next allocation
+
+		/* limit: we visit all tasks (in the window), and do just 1 assignment */
+		for (int w = windowStart; w < windowEnd; w++) {
+			int v = windowTasks[w];
+			if (!isAllocatedTask[v]) {
+				/* get ECF coalition allocation to task v */
+				Allocation ecf = ECF(v);
+
+				int[] coalition = ecf.getAgents();
+
+				/* if no ECF coalition can be allocated to v at currentTime */
+				if (coalition == ArrayUtils.EMPTY_INT_ARRAY)
+					continue; /* go to next unallocated task */
+
+				int completionTime = ecf.getCompletionTime();
+
+				/* 1-step look-ahead phase */
+				int degreeV = -1; // do not allocate tasks with too high workload
+				if (completionTime <= maxTaskDeadline)
+					degreeV = lookAhead(ecf, freeAt[completionTime + 1]);
+
+				/* ties go to the least task index, as without horizon, whatever the window order */
+				if (degreeV > maxTaskDegree || degreeV == maxTaskDegree && v < nextAllocation.getTask()) {
+					maxTaskDegree = degreeV;
+					nextAllocation = ecf;
+				}
+			}
+		}
+
+		return nextAllocation;
+	}
+
+	/**
+	 * Allocate a coalition to a task at current time. Its agents are busy until
+	 * the completion time, and can no longer join other coalitions at current
+	 * time.
+	 *
+	 * @param allocation A non-empty allocation.
+	 */
+	protected void allocate(Allocation allocation) {
+		int task = allocation.getTask();
+		int timeToSetFree = allocation.getCompletionTime() + 1;
+
+		for (int agent : allocation.getAgents()) {
+			isBusyAgent[agent] = true;
+			if (timeToSetFree <= maxTaskDeadline)
+				freeAt[timeToSetFree][agent] = true;
+			moveAgent(agent, task);
+			if (T != null)
+				Arrays.fill(T[currentTime][agent], false);
+		}
+
+		isAllocatedTask[task] = true;
+		allocationTimes[task] = currentTime;
+		schedule.add(allocation);
+		totalTravelTime += allocation.getTravelTime();
+		totalCompletionTime += allocation.getCompletionTime() - currentTime;
+
+		if (isRecording()) {
+			AllocationEvent event = new AllocationEvent();
+			if (event.shouldCommit()) {
+				event.solver = getClass().getSimpleName();
+				event.task = task;
+				event.time = currentTime;
+				event.coalitionSize = allocation.getAgents().length;
+				event.completionTime = allocation.getCompletionTime();
+				event.commit();
+			}
+		}
+	}
+
 	// Step 3: allocate task with with 1-step look-ahead (CFLA core)
 	public void solve() {
-		/* we assume that initial number of completed tasks is zero */
-		int numberOfAllocatedTasks = 0;
+		beginSolve();
 
-		/* time steps at which agents are set 'free' */
-		boolean[][] freeAt = new boolean[maxTaskDeadline+1][agents.length];
+		/* zero, unless resuming from a checkpoint */
+		int numberOfAllocatedTasks = schedule.size();
 
 		do {
-			int maxTaskDegree = 0; // current max task degree
-			Allocation nextAllocation = new Allocation(); // the next allocation
+			TimeStepEvent step = beginTimeStep();
+
+			checkpointIfDue();
+
+			/* apply the changes to the problem that are due, if any */
+			if (applyChangeEvents())
+				numberOfAllocatedTasks = schedule.size();
 
 			/* set 'free' the agents that completed task in the previous time step */
 			for (int a : agents)
 				if (freeAt[currentTime][a])
 					isBusyAgent[a] = false;
 
-			/* define feasible allocations */
-			setFeasibleAgentAllocationsToAllTasks();
-
-			/* limit: we visit all tasks, and do just 1 assignment */
-			for (int v = 0; v < tasks.length; v++)
-				if (!isAllocatedTask[v]) {
-					/* get ECF coalition allocation to task v */
-					Allocation ecf = ECF(v);
-
-					int[] coalition = ecf.getAgents();
+			/* move the rolling horizon, if any, to current time */
+			slideWindow();
 
-					/* if no ECF coalition can be allocated to v at currentTime */
-					if (coalition == ArrayUtils.EMPTY_INT_ARRAY)
-						continue; /* go to next unallocated task */
-
-					int completionTime = ecf.getCompletionTime();
+			/* stop if no agent can reach a task: agents move only when allocated, hence no task can be allocated any more */
+			if (!hasPendingChangeEvents() && !hasAllocableTasks()) {
+				if (DEBUG)
+					System.out.println(String.format("[%3d] No tasks can be further allocated", currentTime));
+				break;
+			}
 
-					/* 1-step look-ahead phase */
-					int degreeV = -1; // do not allocate tasks with too high workload
-					if (completionTime <= maxTaskDeadline)
-						degreeV = lookAhead(ecf, freeAt[completionTime + 1]);
+			/* define feasible allocations */
+			boolean feasible = setFeasibleAgentAllocationsToAllTasks();
 
-					if (degreeV > maxTaskDegree) {
-						maxTaskDegree = degreeV;
-						nextAllocation = ecf;
-					}
-				}
+			Allocation nextAllocation;
 
-			int nextTask = nextAllocation.getTask();
+			do {
+				nextAllocation = getNextAllocation();
 
-			/* if it exists, allocate nextCoalition to nextTask */
-			if (nextTask > -1) {
-				int timeToSetFree = nextAllocation.getCompletionTime() + 1;
+				/* if it exists, allocate nextCoalition to nextTask */
+				if (nextAllocation.getTask() > -1) {
+					allocate(nextAllocation);
+					numberOfAllocatedTasks++;
 
-				for (int agent : nextAllocation.getAgents()) {
-					isBusyAgent[agent] = true;
-					if (timeToSetFree <= maxTaskDeadline)
-						freeAt[timeToSetFree][agent] = true;
-					agentLocations[agent] = taskLocations[nextTask];
+					if (DEBUG && batch)
+						printCurrentAllocation(nextAllocation, numberOfAllocatedTasks);
 				}
+			} while (batch && nextAllocation.getTask() > -1 && !allAgentsAreBusy());
 
-				isAllocatedTask[nextTask] = true;
-				numberOfAllocatedTasks++;
-				avgTravelTime += nextAllocation.getTravelTime();
-				avgCompletionTime += nextAllocation.getCompletionTime() - currentTime;
-			}
+			endTimeStep(step, numberOfAllocatedTasks);
 
 			/*
 			 * if all agents are currently available, then it is no longer possible to
-			 * allocate tasks, hence stop earlier
+			 * allocate tasks, hence stop earlier (unless tasks are still to enter the
+			 * rolling horizon, or changes to the problem are pending)
 			 */
-			if (allAgentsAreAvailable())
+			if (allAgentsAreAvailable() && windowEnd == windowTasks.length && !hasPendingChangeEvents())
 				break;
 
-			if (DEBUG)
+			if (DEBUG && !batch)
 				printCurrentAllocation(nextAllocation, numberOfAllocatedTasks);
 
-			/* go to next time step */
-			currentTime++;
-		} while (numberOfAllocatedTasks < tasks.length && currentTime < maxTaskDeadline);
+			/* go to next time step, skipping those without feasible allocations */
+			currentTime = feasible ? currentTime + 1 : getNextFeasibilityTime();
+		} while (!stopped && (numberOfAllocatedTasks < tasks.length || hasPendingChangeEvents())
+				&& currentTime < maxTaskDeadline);
 
-		if (numberOfAllocatedTasks > 0) {
-			avgTravelTime /= numberOfAllocatedTasks;
-			avgCompletionTime /= numberOfAllocatedTasks;
-		}
+		results = new Results(average(totalTravelTime, numberOfAllocatedTasks),
+				average(totalCompletionTime, numberOfAllocatedTasks), numberOfAllocatedTasks / (float) tasks.length);
+	}
 
-		results = new Results(avgTravelTime, avgCompletionTime, numberOfAllocatedTasks / (float) tasks.length);
+	public long getNumberOfECFCalls() {
+		return numberOfECFCalls;
 	}
 
 	/**
@@ -1,5 +1,8 @@
 package solvers;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Comparator;
 
@@ -8,6 +11,10 @@ import org.apache.commons.lang3.ArrayUtils;
 import model.CFSTP;
 import model.FeasibleAllocation;
 import model.Results;
+import profiling.AllocationEvent;
+import profiling.TaskCompletionEvent;
+import profiling.TimeStepEvent;
+import toolkit.Coalition;
 import toolkit.Utilities;
 
 /**
@@ -21,13 +28,13 @@ public class CTS extends Solver {
 		/**
 		 * A task is allocable when at least one agent can reach it (feasible),
 		 * allocated when at least one agent is reaching or working on it, and completed
-		 * when its workload is <= 0.
+		 * when its workload is <= 0. A cancelled task is no longer allocable.
 		 */
-		NOT_COMPLETED, ALLOCABLE, ALLOCATED, COMPLETED;
+		NOT_COMPLETED, ALLOCABLE, ALLOCATED, COMPLETED, CANCELLED;
 	}
 
 	public static enum AgentStatus {
-		FREE, REACHING_A_TASK, WORKING_ON_A_TASK;
+		FREE, REACHING_A_TASK, WORKING_ON_A_TASK, FAILED;
 	}
 
 	public static enum AssignmentStatus {
@@ -39,10 +46,17 @@ public class CTS extends Solver {
 
 	protected TaskStatus[] taskStatus;
 	protected AgentStatus[] agentStatus;
-	protected AssignmentStatus[][] assignmentStatus; // [agent, task]
 
-	/* how many agents are currently working at each task */
-	protected int[] workingAtTask;
+	/*
+	 * For each agent, the task it chose, is reaching, is working on, or was done
+	 * with (-1 if none), and its assignment status to that task: an agent is
+	 * assigned to one task at a time, hence there is no [agent, task] matrix.
+	 */
+	protected int[] assignedTask;
+	protected AssignmentStatus[] assignmentStatus;
+
+	/* the agents currently working at, and reaching, each task, and those that chose it at the current time step */
+	protected Coalition[] workingAtTask, reachingAtTask, chosenBy;
 
 	/**
 	 * For each agent (rows), it denotes the task it's reaching (column 0), and the
@@ -69,30 +83,209 @@ public class CTS extends Solver {
 
 	public CTS(CFSTP problem) {
 		super(problem);
+		setState();
+	}
+
+	@Override
+	public void reset(CFSTP problem) {
+		super.reset(problem);
+		setState();
+	}
+
+	/*
+	 * Set the initial state, reusing the arrays of a previous problem when they are
+	 * large enough: they are accessed by index only, except completionTime, which
+	 * is summed and hence cleared entirely.
+	 */
+	private void setState() {
+		if (taskStatus == null || taskStatus.length < tasks.length) {
+			taskStatus = new TaskStatus[tasks.length];
+			workingAtTask = new Coalition[tasks.length];
+			reachingAtTask = new Coalition[tasks.length];
+			chosenBy = new Coalition[tasks.length];
+			workloads = new float[tasks.length];
+			completionTime = new int[tasks.length];
+		}
+
+		if (agentStatus == null || agentStatus.length < agents.length) {
+			agentStatus = new AgentStatus[agents.length];
+			reachingTask = new int[agents.length][2];
+			assignedTask = new int[agents.length];
+			assignmentStatus = new AssignmentStatus[agents.length];
+		}
 
-		taskStatus = new TaskStatus[tasks.length];
-		agentStatus = new AgentStatus[agents.length];
-		assignmentStatus = new AssignmentStatus[agents.length][tasks.length];
 		Arrays.fill(taskStatus, TaskStatus.NOT_COMPLETED);
 		Arrays.fill(agentStatus, AgentStatus.FREE);
+		Arrays.fill(assignedTask, -1);
+		Arrays.fill(assignmentStatus, AssignmentStatus.NONE);
+		Arrays.fill(completionTime, 0);
 
-		workingAtTask = new int[tasks.length];
-		reachingTask = new int[agents.length][2];
+		for (int v : tasks)
+			if (workingAtTask[v] == null || workingAtTask[v].capacity() < agents.length) {
+				workingAtTask[v] = new Coalition(agents.length);
+				reachingAtTask[v] = new Coalition(agents.length);
+				chosenBy[v] = new Coalition(agents.length);
+			} else {
+				workingAtTask[v].clear();
+				reachingAtTask[v].clear();
+				chosenBy[v].clear();
+			}
 
 		for (int a : agents) {
-			Arrays.fill(assignmentStatus[a], AssignmentStatus.NONE);
 			reachingTask[a][0] = -1;
 			reachingTask[a][1] = -1;
 		}
 
-		workloads = new float[tasks.length];
-		for (int v = 0; v < demands.length; v++) {
-			workloads[v] = demands[v][1];
+		maxTaskWorkload = 0;
+		for (int v = 0; v < tasks.length; v++) {
+			workloads[v] = taskWorkloads[v];
 			if (workloads[v] > maxTaskWorkload)
 				maxTaskWorkload = workloads[v];
 		}
 
-		completionTime = new int[tasks.length];
+		numberOfTravels = 0;
+	}
+
+	@Override
+	public boolean supportsCheckpoints() {
+		return true;
+	}
+
+	@Override
+	public boolean supportsChangeEvents() {
+		return true;
+	}
+
+	@Override
+	public boolean supportsReleaseTimes() {
+		return true;
+	}
+
+	@Override
+	protected void writeState(DataOutput out) throws IOException {
+		super.writeState(out);
+		for (int v = 0; v < tasks.length; v++) {
+			out.writeByte(taskStatus[v].ordinal());
+			out.writeFloat(workloads[v]);
+			out.writeInt(completionTime[v]);
+		}
+		for (int a = 0; a < agents.length; a++) {
+			out.writeByte(agentStatus[a].ordinal());
+			writeInts(out, reachingTask[a], 2);
+			out.writeInt(assignedTask[a]);
+			out.writeByte(assignmentStatus[a].ordinal());
+		}
+		out.writeInt(numberOfTravels);
+	}
+
+	@Override
+	protected void readState(DataInput in) throws IOException {
+		super.readState(in);
+		for (int v = 0; v < tasks.length; v++) {
+			taskStatus[v] = TaskStatus.values()[in.readByte()];
+			workloads[v] = in.readFloat();
+			completionTime[v] = in.readInt();
+		}
+		AssignmentStatus[] assignmentStatuses = AssignmentStatus.values();
+		for (int a = 0; a < agents.length; a++) {
+			agentStatus[a] = AgentStatus.values()[in.readByte()];
+			readInts(in, reachingTask[a], 2);
+			assignedTask[a] = in.readInt();
+			assignmentStatus[a] = assignmentStatuses[in.readByte()];
+			/* derived from assignmentStatus */
+			if (assignmentStatus[a] == AssignmentStatus.WORKING_ON)
+				workingAtTask[assignedTask[a]].add(a);
+			else if (assignmentStatus[a] == AssignmentStatus.REACHING)
+				reachingAtTask[assignedTask[a]].add(a);
+		}
+		numberOfTravels = in.readInt();
+	}
+
+	/*
+	 * Re-planning: CTS is agent-driven, hence a change only affects the agents of
+	 * the task involved. A task left without agents keeps the workload done on
+	 * it, and can be allocated again.
+	 */
+
+	@Override
+	protected int insertTask(int x, int y, int deadline, int workload) {
+		int v = super.insertTask(x, y, deadline, workload);
+
+		if (taskStatus.length < tasks.length) {
+			int n = grow(tasks.length);
+			taskStatus = Arrays.copyOf(taskStatus, n);
+			workingAtTask = Arrays.copyOf(workingAtTask, n);
+			reachingAtTask = Arrays.copyOf(reachingAtTask, n);
+			chosenBy = Arrays.copyOf(chosenBy, n);
+			workloads = Arrays.copyOf(workloads, n);
+			completionTime = Arrays.copyOf(completionTime, n);
+		}
+
+		taskStatus[v] = TaskStatus.NOT_COMPLETED;
+		workingAtTask[v] = new Coalition(agents.length);
+		reachingAtTask[v] = new Coalition(agents.length);
+		chosenBy[v] = new Coalition(agents.length);
+		workloads[v] = workload;
+		completionTime[v] = 0;
+		maxTaskWorkload = Math.max(maxTaskWorkload, workload);
+
+		return v;
+	}
+
+	@Override
+	protected void cancelTask(int v) {
+		if (taskStatus[v] == TaskStatus.COMPLETED)
+			return;
+
+		for (int a : agents)
+			release(a, v);
+
+		completionTime[v] = 0;
+		taskStatus[v] = TaskStatus.CANCELLED;
+		super.cancelTask(v);
+	}
+
+	@Override
+	protected void failAgent(int a) {
+		int v = assignedTask[a];
+		if (v > -1 && release(a, v) && taskStatus[v] == TaskStatus.ALLOCATED) {
+			/* if no agent is left on v, it can be allocated again */
+			if (workingAtTask[v].isEmpty() && reachingAtTask[v].isEmpty())
+				taskStatus[v] = TaskStatus.NOT_COMPLETED;
+		}
+
+		agentStatus[a] = AgentStatus.FAILED;
+		super.failAgent(a);
+	}
+
+	/**
+	 * Release an agent from a task it is reaching or working on.
+	 *
+	 * @param a An agent index.
+	 * @param v A task index.
+	 *
+	 * @return Whether a was reaching or working on v.
+	 */
+	private boolean release(int a, int v) {
+		if (assignedTask[a] != v || assignmentStatus[a] != AssignmentStatus.REACHING
+				&& assignmentStatus[a] != AssignmentStatus.WORKING_ON)
+			return false;
+
+		workingAtTask[v].remove(a);
+		reachingAtTask[v].remove(a);
+		assignedTask[a] = -1;
+		assignmentStatus[a] = AssignmentStatus.NONE;
+		agentStatus[a] = AgentStatus.FREE;
+		isBusyAgent[a] = false;
+		reachingTask[a][0] = -1;
+		reachingTask[a][1] = -1;
+
+		return true;
+	}
+
+	@Override
+	public boolean isCompletedTask(int v) {
+		return taskStatus[v] == TaskStatus.COMPLETED;
 	}
 
 	/**
@@ -107,17 +300,18 @@ public class CTS extends Solver {
 		int bestTask[] = new int[] { -1, -1 };
 		int bestDeadline[] = new int[] { maxTaskDeadline + 1, maxTaskDeadline + 1 };
 		int bestArrivalTime[] = new int[] { maxTaskDeadline + 1, maxTaskDeadline + 1 };
+		int[] travelTimes = getAgentTravelTimes(a);
 		int idx;
 
 		for (int v : tasks)
-			if (taskStatus[v] == TaskStatus.NOT_COMPLETED || taskStatus[v] == TaskStatus.ALLOCATED) {
+			if (isAllocableTask(v)) {
 				idx = 0;
 				if (taskStatus[v] == TaskStatus.ALLOCATED)
 					idx = 1;
-				int arrivalTime = currentTime + problem.getAgentTravelTime(a, agentLocations[a], taskLocations[v]);
-				if (arrivalTime <= demands[v][0] && demands[v][0] < bestDeadline[idx]
+				int arrivalTime = currentTime + travelTimes[v];
+				if (arrivalTime <= taskDeadlines[v] && taskDeadlines[v] < bestDeadline[idx]
 						&& arrivalTime < bestArrivalTime[idx]) {
-					bestDeadline[idx] = demands[v][0];
+					bestDeadline[idx] = taskDeadlines[v];
 					bestArrivalTime[idx] = arrivalTime;
 					bestTask[idx] = v;
 				}
@@ -140,26 +334,18 @@ public class CTS extends Solver {
 	 */
 	private FeasibleAllocation getFeasibleAgentsByArrivalTime(int v) {
 		/* get feasible agents */
-		int[] feasibleAgents = new int[agents.length];
-
-		int i = 0;
-
-		for (int a : agents)
-			if (assignmentStatus[a][v] == AssignmentStatus.FEASIBLE)
-				feasibleAgents[i++] = a;
-
-		if (i == 0)
+		if (chosenBy[v].isEmpty())
 			return null;
 
-		feasibleAgents = ArrayUtils.subarray(feasibleAgents, 0, i);
+		int[] feasibleAgents = chosenBy[v].toArray();
+		int i;
 
 		/* get arrival times */
 		int[] arrivalTimes = new int[feasibleAgents.length];
 		Integer[] indexes = new Integer[arrivalTimes.length];
 
 		for (i = 0; i < arrivalTimes.length; i++) {
-			arrivalTimes[i] = currentTime + problem.getAgentTravelTime(feasibleAgents[i],
-					agentLocations[feasibleAgents[i]], taskLocations[v]);
+			arrivalTimes[i] = currentTime + getAgentTravelTimes(feasibleAgents[i])[v];
 			indexes[i] = i;
 		}
 
@@ -186,20 +372,27 @@ public class CTS extends Solver {
 	}
 
 	private int[] getAgentsWorkingAtTask(int v) {
-		if (workingAtTask[v] <= 0)
+		if (workingAtTask[v].isEmpty())
 			return ArrayUtils.EMPTY_INT_ARRAY;
 
-		int[] workers = new int[agents.length];
-		int i = 0;
-
-		for (int a : agents)
-			if (assignmentStatus[a][v] == AssignmentStatus.WORKING_ON)
-				workers[i++] = a;
-
-		return ArrayUtils.subarray(workers, 0, i);
+		return workingAtTask[v].toArray();
 	}
 
-	private void allocate(int v, int[] agents, int[] arrivalTimes) {
+	protected void allocate(int v, int[] agents, int[] arrivalTimes) {
+		schedule.add(new FeasibleAllocation(currentTime, v, agents, arrivalTimes));
+
+		if (isRecording()) {
+			AllocationEvent event = new AllocationEvent();
+			if (event.shouldCommit()) {
+				event.solver = getClass().getSimpleName();
+				event.task = v;
+				event.time = currentTime;
+				event.coalitionSize = agents.length;
+				event.completionTime = -1;
+				event.commit();
+			}
+		}
+
 		for (int i = 0; i < agents.length; i++)
 			if (agentStatus[agents[i]] == AgentStatus.FREE) {
 				isBusyAgent[agents[i]] = true;
@@ -207,152 +400,237 @@ public class CTS extends Solver {
 
 				if (travelTimeSteps > 0) {
 					agentStatus[agents[i]] = AgentStatus.REACHING_A_TASK;
-					assignmentStatus[agents[i]][v] = AssignmentStatus.REACHING;
+					assignedTask[agents[i]] = v;
+					assignmentStatus[agents[i]] = AssignmentStatus.REACHING;
+					reachingAtTask[v].add(agents[i]);
 					reachingTask[agents[i]] = new int[] { v, travelTimeSteps };
-					avgTravelTime += travelTimeSteps;
+					totalTravelTime += travelTimeSteps;
 					numberOfTravels++;
 				} else { /* agent is already at task location */
 					agentStatus[agents[i]] = AgentStatus.WORKING_ON_A_TASK;
-					assignmentStatus[agents[i]][v] = AssignmentStatus.WORKING_ON;
-					workingAtTask[v]++;
+					assignedTask[agents[i]] = v;
+					assignmentStatus[agents[i]] = AssignmentStatus.WORKING_ON;
+					workingAtTask[v].add(agents[i]);
 				}
 			}
 	}
 
 	@Override
-	public void solve() { /* Total: O(|V||A|^2) */
-		int numberOfCompletedTasks = 0;
-		StringBuilder s;
+	protected boolean isAllocableTask(int v) {
+		/* see getTaskAllocableToAgent(int) */
+		return taskStatus[v] == TaskStatus.NOT_COMPLETED || taskStatus[v] == TaskStatus.ALLOCATED;
+	}
 
-		do {
-			if (DEBUG)
-				System.out.println(String.format("[%3d, %3d]", currentTime, numberOfCompletedTasks));
+	/**
+	 * A free agent chooses a task: the task is allocated to the agents that chose
+	 * it by {@link #updateTask(int)}, and no other agent can choose it until then
+	 * (see {@link #isAllocableTask(int)}).
+	 *
+	 * @param a An agent index.
+	 * @param v A task index.
+	 */
+	protected void choose(int a, int v) {
+		assignedTask[a] = v;
+		assignmentStatus[a] = AssignmentStatus.FEASIBLE;
+		chosenBy[v].add(a);
+		taskStatus[v] = TaskStatus.ALLOCABLE;
+	}
 
-			for (int a : agents)
-				/* if possible, allocate a to a task */
-				if (agentStatus[a] == AgentStatus.FREE) {
-					int v = getTaskAllocableToAgent(a);
-					if (v > -1) {
-						assignmentStatus[a][v] = AssignmentStatus.FEASIBLE;
-						taskStatus[v] = TaskStatus.ALLOCABLE;
-					}
-					/* otherwise, if a reached its assigned task, update its status and position */
-				} else if (reachingTask[a][0] > -1
-						&& assignmentStatus[a][reachingTask[a][0]] == AssignmentStatus.REACHING) {
-					if (taskStatus[reachingTask[a][0]] == TaskStatus.COMPLETED) {
-						agentStatus[a] = AgentStatus.FREE;
-						isBusyAgent[a] = false;
-						assignmentStatus[a][reachingTask[a][0]] = AssignmentStatus.NONE;
-					} else if (--reachingTask[a][1] <= 0) {
-						workingAtTask[reachingTask[a][0]]++;
-						agentStatus[a] = AgentStatus.WORKING_ON_A_TASK;
-						assignmentStatus[a][reachingTask[a][0]] = AssignmentStatus.WORKING_ON;
-						agentLocations[a] = taskLocations[reachingTask[a][0]];
-					}
+	/**
+	 * The decision of an agent at the current time step: a free agent chooses a
+	 * task to be allocated to, if allocable, and an agent reaching a task either
+	 * arrives, or is released if the task was completed before its arrival.
+	 *
+	 * It reads the status of every task, but writes only that of the agent, its
+	 * assignment, and the task it chooses or the coalitions of the task it is
+	 * reaching.
+	 *
+	 * @param a         An agent index.
+	 * @param allocable Whether free agents can be allocated.
+	 */
+	protected void updateAgent(int a, boolean allocable) {
+		/* if possible, allocate a to a task */
+		if (agentStatus[a] == AgentStatus.FREE) {
+			/* a free agent is busy only until its release time (see setReleaseTimes) */
+			if (isBusyAgent[a]) {
+				if (releaseTimes[a] > currentTime)
+					return;
+				isBusyAgent[a] = false;
+			}
+			int v = allocable ? getTaskAllocableToAgent(a) : -1;
+			if (v > -1)
+				choose(a, v);
+			/* otherwise, if a reached its assigned task, update its status and position */
+		} else if (reachingTask[a][0] > -1 && assignmentStatus[a] == AssignmentStatus.REACHING) {
+			if (taskStatus[reachingTask[a][0]] == TaskStatus.COMPLETED) {
+				agentStatus[a] = AgentStatus.FREE;
+				isBusyAgent[a] = false;
+				assignedTask[a] = -1;
+				assignmentStatus[a] = AssignmentStatus.NONE;
+				reachingAtTask[reachingTask[a][0]].remove(a);
+			} else if (--reachingTask[a][1] <= 0) {
+				reachingAtTask[reachingTask[a][0]].remove(a);
+				workingAtTask[reachingTask[a][0]].add(a);
+				agentStatus[a] = AgentStatus.WORKING_ON_A_TASK;
+				assignmentStatus[a] = AssignmentStatus.WORKING_ON;
+				moveAgent(a, reachingTask[a][0]);
+			}
+		}
+	}
+
+	/**
+	 * The update of a task at the current time step, after those of the agents: an
+	 * allocable task is allocated to the agents that chose it, and the workload of
+	 * an allocated task is reduced by the value of the agents working on it.
+	 *
+	 * It writes only the state of the task, and that of the agents that chose it
+	 * or work on it.
+	 *
+	 * @param v A task index.
+	 *
+	 * @return Whether v was completed.
+	 */
+	protected boolean updateTask(int v) {
+		if (taskStatus[v] == TaskStatus.ALLOCABLE) {
+			FeasibleAllocation feasibleAllocation = getFeasibleAgentsByArrivalTime(v);
+			int[] feasibleAgents = feasibleAllocation.getAgents();
+			int[] agentsWorkingAtTask = getAgentsWorkingAtTask(v);
+			int[] arrivalTimes = feasibleAllocation.getArrivalTimes();
+			int[] agentsToAssign = null;
+			float cValue;
+			int i;
+
+			for (i = 0; i < feasibleAgents.length; i++) {
+				agentsToAssign = ArrayUtils.subarray(feasibleAgents, 0, i + 1);
+
+				if (agentsWorkingAtTask.length > 0)
+					cValue = problem.getCoalitionValue(v, ArrayUtils.addAll(agentsWorkingAtTask, agentsToAssign));
+				else
+					cValue = problem.getCoalitionValue(v, agentsToAssign);
+
+				float workloadDone = 0f;
+				for (int j = 0; j < agentsToAssign.length - 1; j++) {
+					/*
+					 * If multiple agents arrive at the same time, consider only the last one in the
+					 * order.
+					 */
+					if (arrivalTimes[j] == arrivalTimes[j + 1])
+						continue;
+
+					workloadDone += (arrivalTimes[j + 1] - arrivalTimes[j]) * problem.getCoalitionValue(v,
+							ArrayUtils.addAll(ArrayUtils.subarray(agentsToAssign, 0, j + 1), agentsWorkingAtTask));
 				}
 
-			for (int v : tasks) {
-				if (taskStatus[v] == TaskStatus.ALLOCABLE) {
-					FeasibleAllocation feasibleAllocation = getFeasibleAgentsByArrivalTime(v);
-					int[] feasibleAgents = feasibleAllocation.getAgents();
-					int[] agentsWorkingAtTask = getAgentsWorkingAtTask(v);
-					int[] arrivalTimes = feasibleAllocation.getArrivalTimes();
-					int[] agentsToAssign = null;
-					float cValue;
-					int i;
-
-					for (i = 0; i < feasibleAgents.length; i++) {
-						agentsToAssign = ArrayUtils.subarray(feasibleAgents, 0, i + 1);
-
-						if (agentsWorkingAtTask.length > 0)
-							cValue = problem.getCoalitionValue(v,
-									ArrayUtils.addAll(agentsWorkingAtTask, agentsToAssign));
-						else
-							cValue = problem.getCoalitionValue(v, agentsToAssign);
-
-						float workloadDone = 0f;
-						for (int j = 0; j < agentsToAssign.length - 1; j++) {
-							/*
-							 * If multiple agents arrive at the same time, consider only the last one in the
-							 * order.
-							 */
-							if (arrivalTimes[j] == arrivalTimes[j + 1])
-								continue;
-
-							workloadDone += (arrivalTimes[j + 1] - arrivalTimes[j])
-									* problem.getCoalitionValue(v, ArrayUtils.addAll(
-											ArrayUtils.subarray(agentsToAssign, 0, j + 1), agentsWorkingAtTask));
-						}
+				/* if coalition of first i agents can complete v within deadline */
+				if (cValue * (taskDeadlines[v] - arrivalTimes[i]) >= workloads[v] - workloadDone)
+					break;
+			}
 
-						/* if coalition of first i agents can complete v within deadline */
-						if (cValue * (demands[v][0] - arrivalTimes[i]) >= workloads[v] - workloadDone)
-							break;
-					}
+			while (++i < feasibleAgents.length) {
+				assignedTask[feasibleAgents[i]] = -1;
+				assignmentStatus[feasibleAgents[i]] = AssignmentStatus.NONE;
+			}
+			chosenBy[v].clear();
 
-					while (++i < feasibleAgents.length)
-						assignmentStatus[feasibleAgents[i]][v] = AssignmentStatus.NONE;
+			allocate(v, agentsToAssign, arrivalTimes);
 
-					allocate(v, agentsToAssign, arrivalTimes);
+			taskStatus[v] = TaskStatus.ALLOCATED;
+		}
 
-					taskStatus[v] = TaskStatus.ALLOCATED;
-				}
+		boolean completed = false;
+
+		if (taskStatus[v] == TaskStatus.ALLOCATED) {
+			StringBuilder s = null;
+			if (DEBUG)
+				s = new StringBuilder(String.format("%5d (%.2f) -> ", v, workloads[v]));
 
-				if (taskStatus[v] == TaskStatus.ALLOCATED) {
+			int[] workers = workingAtTask[v].toArray();
+
+			if (DEBUG && !reachingAtTask[v].isEmpty())
+				s.append(String.format("R%s ", reachingAtTask[v]));
+
+			if (workers.length > 0) {
+				if (DEBUG)
+					s.append(String.format("W%s ", Arrays.toString(workers)));
+
+				/* reduce w_v by u(C) */
+				workloads[v] -= problem.getCoalitionValue(v, workers);
+				completionTime[v]++;
+
+				if (workloads[v] <= 0) {
 					if (DEBUG)
-						s = new StringBuilder(String.format("%5d (%.2f) -> ", v, workloads[v]));
-
-					int[] workers = new int[workingAtTask[v]];
-					int[] reachers = new int[agents.length];
-
-					int i = 0, j = 0;
-
-					for (int a : agents)
-						switch (assignmentStatus[a][v]) {
-						case WORKING_ON:
-							workers[i++] = a;
-							break;
-						case REACHING:
-							reachers[j++] = a;
-							break;
-						default:
-							break;
-						}
+						s.append(" \u2713");
 
-					if (j > 0) {
-						reachers = ArrayUtils.subarray(reachers, 0, j);
-						if (DEBUG)
-							s.append(String.format("R%s ", Arrays.toString(reachers)));
+					workingAtTask[v].clear();
+					taskStatus[v] = TaskStatus.COMPLETED;
+					completed = true;
+					for (int a : workers) {
+						assignmentStatus[a] = AssignmentStatus.DONE;
+						agentStatus[a] = AgentStatus.FREE;
+						isBusyAgent[a] = false;
 					}
 
-					if (i > 0) {
-						if (DEBUG)
-							s.append(String.format("W%s ", Arrays.toString(workers)));
-
-						/* reduce w_v by u(C) */
-						workloads[v] -= problem.getCoalitionValue(v, workers);
-						completionTime[v]++;
-
-						if (workloads[v] <= 0) {
-							if (DEBUG)
-								s.append(" \u2713");
-
-							workingAtTask[v] = 0;
-							taskStatus[v] = TaskStatus.COMPLETED;
-							numberOfCompletedTasks++;
-							for (int a : workers) {
-								assignmentStatus[a][v] = AssignmentStatus.DONE;
-								agentStatus[a] = AgentStatus.FREE;
-								isBusyAgent[a] = false;
-							}
+					if (isRecording()) {
+						TaskCompletionEvent event = new TaskCompletionEvent();
+						if (event.shouldCommit()) {
+							event.solver = getClass().getSimpleName();
+							event.task = v;
+							event.time = currentTime;
+							event.workers = workers.length;
+							event.commit();
 						}
 					}
-
-					if (DEBUG)
-						System.out.println(s);
 				}
 			}
 
-			if (numberOfCompletedTasks < tasks.length && allAgentsAreAvailable()) {
+			if (DEBUG)
+				System.out.println(s);
+		}
+
+		return completed;
+	}
+
+	@Override
+	public void solve() { /* Total: O(|V||A|^2) */
+		beginSolve();
+
+		/* zero, unless resuming from a checkpoint */
+		int numberOfCompletedTasks = 0;
+		for (int v : tasks)
+			if (taskStatus[v] == TaskStatus.COMPLETED)
+				numberOfCompletedTasks++;
+
+		/* false when free agents can no longer be allocated (see hasAllocableTasks) */
+		boolean allocable = true;
+
+		do {
+			TimeStepEvent step = beginTimeStep();
+
+			checkpointIfDue();
+
+			/* apply the changes to the problem that are due, if any */
+			applyChangeEvents();
+
+			/*
+			 * free agents look for tasks only if some agent can reach one: agents move when
+			 * they reach their tasks, hence it is checked again at every time step
+			 */
+			if (!allAgentsAreBusy())
+				allocable = hasAllocableTasks();
+
+			if (DEBUG)
+				System.out.println(String.format("[%3d, %3d]", currentTime, numberOfCompletedTasks));
+
+			for (int a : agents)
+				updateAgent(a, allocable);
+
+			for (int v : tasks)
+				if (updateTask(v))
+					numberOfCompletedTasks++;
+
+			endTimeStep(step, numberOfCompletedTasks);
+
+			if (numberOfCompletedTasks < tasks.length && allAgentsAreAvailable() && !hasPendingChangeEvents()) {
 				if (DEBUG)
 					System.out.println(String.format(
 							"\nNo tasks can be further allocated, stopping before max deadline (%d)", maxTaskDeadline));
@@ -360,15 +638,11 @@ public class CTS extends Solver {
 			}
 
 			currentTime++;
-		} while (!allAgentsAreAvailable() && numberOfCompletedTasks < tasks.length && currentTime <= maxTaskDeadline);
-
-		if (numberOfTravels > 0)
-			avgTravelTime /= numberOfTravels;
-
-		if (numberOfCompletedTasks > 0)
-			avgCompletionTime = Utilities.sum(completionTime) / (float) numberOfCompletedTasks;
+		} while (!stopped && (!allAgentsAreAvailable() && numberOfCompletedTasks < tasks.length || hasPendingChangeEvents())
+				&& currentTime <= maxTaskDeadline);
 
-		results = new Results(avgTravelTime, avgCompletionTime, numberOfCompletedTasks / (float) tasks.length);
+		results = new Results(average(totalTravelTime, numberOfTravels),
+				average(Utilities.sum(completionTime), numberOfCompletedTasks), numberOfCompletedTasks / (float) tasks.length);
 
 	}
 
@@ -0,0 +1,306 @@
+package solvers;
+
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import model.CFSTP;
+import model.Results;
+import profiling.TimeStepEvent;
+import toolkit.Utilities;
+
+/**
+ * A decentralised simulation of CTS, where agents decide concurrently.
+ *
+ * Agents are partitioned among a fixed number of threads (the solving thread
+ * and helpers), so that their number is not limited by that of the threads
+ * (e.g., 100,000 agents and 1,000 tasks; Java 8 has no virtual threads to give
+ * each agent its own).
+ * Each time step has two phases, separated by a {@link Phaser}:
+ *
+ * <ol>
+ * <li>every thread runs {@link CTS#updateAgent(int, boolean)} for its agents: a
+ * free agent claims a task with a compare-and-set on the time step of its last
+ * claim, so that a task is chosen by at most one agent per step, as in CTS;
+ * claims are published only through the compare-and-set, as the status of tasks
+ * is read by all agents in this phase; coalitions shared by agents reaching the
+ * same task are updated under a lock striped by task;</li>
+ * <li>every thread runs {@link CTS#updateTask(int)} for its tasks: the status
+ * and workload of a task are only written by the thread that owns it, hence
+ * without locks.</li>
+ * </ol>
+ *
+ * The last thread arriving at the end of a step ends it (see
+ * {@link Phaser#onAdvance(int, int)}). With one thread, the schedule is that of
+ * CTS; with more, the agents claim tasks in a different order, hence the
+ * schedule can differ. The problem must support concurrent calls of
+ * {@link CFSTP#getCoalitionValue(int, int[])}.
+ *
+ * Checkpoints and changes while solving are not supported.
+ *
+ * @author lcpz
+ */
+public class ConcurrentCTS extends CTS {
+
+	/* The number of locks guarding the coalitions of tasks (a power of two) */
+	protected static final int LOCK_STRIPES = 64;
+
+	protected final int threads;
+
+	/* The time step at which each task was last claimed by an agent */
+	protected AtomicIntegerArray claimTime;
+
+	/* The locks of the coalitions of tasks, by task modulo LOCK_STRIPES, and of the schedule */
+	protected final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+	protected final ReentrantLock scheduleLock = new ReentrantLock();
+
+	/* The first exception thrown by a thread, which stops the others */
+	private volatile RuntimeException failure;
+
+	/* Written by the thread that ends a time step, read by all after the phaser advances */
+	private boolean allocable;
+	private int numberOfCompletedTasks;
+	private TimeStepEvent step;
+
+	private final LongAdder numberOfCompletions = new LongAdder();
+
+	/* Statistics of the last solve */
+	private final LongAdder numberOfDecisions = new LongAdder(), numberOfConflicts = new LongAdder(),
+			numberOfContendedLocks = new LongAdder();
+
+	/**
+	 * @param problem The problem to solve.
+	 * @param threads The number of threads, including the solving one.
+	 */
+	public ConcurrentCTS(CFSTP problem, int threads) {
+		super(problem);
+		this.threads = threads;
+		for (int i = 0; i < LOCK_STRIPES; i++)
+			locks[i] = new ReentrantLock();
+		claimTime = new AtomicIntegerArray(tasks.length);
+	}
+
+	@Override
+	public void reset(CFSTP problem) {
+		super.reset(problem);
+		claimTime = new AtomicIntegerArray(tasks.length);
+	}
+
+	/* the state is shared by the agent threads, which only synchronise on time steps */
+
+	@Override
+	public boolean supportsCheckpoints() {
+		return false;
+	}
+
+	@Override
+	public boolean supportsChangeEvents() {
+		return false;
+	}
+
+	@Override
+	protected boolean isAllocableTask(int v) {
+		/* a task claimed at this time step is no longer allocable to the other agents */
+		return super.isAllocableTask(v) && claimTime.get(v) != currentTime + 1;
+	}
+
+	@Override
+	protected int getTaskAllocableToAgent(int a) {
+		while (true) {
+			int v = super.getTaskAllocableToAgent(a);
+			numberOfDecisions.increment();
+			if (v < 0)
+				return v;
+
+			/* claim times are shifted by 1, since the array is initially 0 */
+			int t = claimTime.get(v);
+			if (t != currentTime + 1 && claimTime.compareAndSet(v, t, currentTime + 1))
+				return v;
+
+			/* claimed by another agent since the scan: choose again */
+			numberOfConflicts.increment();
+		}
+	}
+
+	@Override
+	protected void choose(int a, int v) {
+		/* as in CTS, except for the status of v, which is set by the thread of v (see updateTask) */
+		assignedTask[a] = v;
+		assignmentStatus[a] = AssignmentStatus.FEASIBLE;
+		chosenBy[v].add(a);
+	}
+
+	@Override
+	protected boolean updateTask(int v) {
+		if (claimTime.get(v) == currentTime + 1)
+			taskStatus[v] = TaskStatus.ALLOCABLE;
+		return super.updateTask(v);
+	}
+
+	/* Acquire a lock, counting the acquisitions that have to wait */
+	private void lock(ReentrantLock lock) {
+		if (!lock.tryLock()) {
+			numberOfContendedLocks.increment();
+			lock.lock();
+		}
+	}
+
+	@Override
+	protected void updateAgent(int a, boolean allocable) {
+		/* only agents reaching a task update coalitions shared with other agents */
+		if (agentStatus[a] != AgentStatus.REACHING_A_TASK) {
+			super.updateAgent(a, allocable);
+			return;
+		}
+
+		ReentrantLock lock = locks[reachingTask[a][0] & (LOCK_STRIPES - 1)];
+		lock(lock);
+		try {
+			super.updateAgent(a, allocable);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	protected void allocate(int v, int[] agents, int[] arrivalTimes) {
+		/* the schedule and the travel time statistics are shared by all tasks */
+		lock(scheduleLock);
+		try {
+			super.allocate(v, agents, arrivalTimes);
+		} finally {
+			scheduleLock.unlock();
+		}
+	}
+
+	/* Run the agents and tasks of a thread, from a to agents.length and v to tasks.length by threads */
+	private void run(Phaser phaser, int i) {
+		try {
+			while (!phaser.isTerminated()) {
+				for (int a = i; a < agents.length; a += threads)
+					updateAgent(a, allocable);
+
+				phaser.arriveAndAwaitAdvance();
+
+				int completed = 0;
+				for (int v = i; v < tasks.length; v += threads)
+					if (updateTask(v))
+						completed++;
+				numberOfCompletions.add(completed);
+
+				phaser.arriveAndAwaitAdvance();
+			}
+		} catch (RuntimeException e) {
+			if (failure == null)
+				failure = e;
+			phaser.forceTermination();
+		}
+	}
+
+	/* Called by the last thread arriving at the end of a step: whether to stop */
+	private boolean endStep() {
+		numberOfCompletedTasks += (int) numberOfCompletions.sumThenReset();
+
+		endTimeStep(step, numberOfCompletedTasks);
+
+		if (numberOfCompletedTasks < tasks.length && allAgentsAreAvailable()) {
+			if (DEBUG)
+				System.out.println(String.format(
+						"\nNo tasks can be further allocated, stopping before max deadline (%d)", maxTaskDeadline));
+			return true;
+		}
+
+		currentTime++;
+
+		if (stopped || allAgentsAreAvailable() || numberOfCompletedTasks >= tasks.length
+				|| currentTime > maxTaskDeadline)
+			return true;
+
+		beginStep();
+		return false;
+	}
+
+	private void beginStep() {
+		step = beginTimeStep();
+
+		/* free agents look for tasks only if some agent can reach one (see CTS.solve()) */
+		if (!allAgentsAreBusy())
+			allocable = hasAllocableTasks();
+
+		if (DEBUG)
+			System.out.println(String.format("[%3d, %3d]", currentTime, numberOfCompletedTasks));
+	}
+
+	@Override
+	public void solve() {
+		numberOfDecisions.reset();
+		numberOfConflicts.reset();
+		numberOfContendedLocks.reset();
+
+		numberOfCompletedTasks = 0;
+		allocable = true;
+		failure = null;
+		beginStep();
+
+		final Phaser phaser = new Phaser(threads) {
+			@Override
+			protected boolean onAdvance(int phase, int registeredParties) {
+				/* odd phases end the time steps */
+				return phase % 2 == 1 && endStep();
+			}
+		};
+
+		Thread[] helpers = new Thread[threads - 1];
+		for (int i = 0; i < helpers.length; i++) {
+			final int j = i + 1;
+			helpers[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					ConcurrentCTS.this.run(phaser, j);
+				}
+			}, "cts-agents-" + j);
+			helpers[i].start();
+		}
+
+		run(phaser, 0);
+
+		for (Thread h : helpers)
+			try {
+				h.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+		if (failure != null)
+			throw failure;
+
+		results = new Results(average(totalTravelTime, numberOfTravels),
+				average(Utilities.sum(completionTime), numberOfCompletedTasks), numberOfCompletedTasks / (float) tasks.length);
+	}
+
+	/**
+	 * @return The number of task choices made by free agents in the last solve,
+	 *         including the repeated ones.
+	 */
+	public long getNumberOfDecisions() {
+		return numberOfDecisions.sum();
+	}
+
+	/**
+	 * @return The number of choices repeated because another agent claimed the
+	 *         chosen task first.
+	 */
+	public long getNumberOfConflicts() {
+		return numberOfConflicts.sum();
+	}
+
+	/**
+	 * @return The number of lock acquisitions (of coalitions or of the schedule)
+	 *         that waited for another thread.
+	 */
+	public long getNumberOfContendedLocks() {
+		return numberOfContendedLocks.sum();
+	}
+
+}
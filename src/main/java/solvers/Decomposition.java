@@ -0,0 +1,258 @@
+package solvers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang3.ArrayUtils;
+
+import model.Allocation;
+import model.CFSTP;
+import model.Results;
+import model.Subproblem;
+
+/**
+ * Spatial decomposition of a CFSTP.
+ *
+ * The bounding box of the task locations is split into a grid of regions. Each
+ * agent is assigned to the region containing its initial location, and the
+ * regions having both tasks and agents are solved in parallel, each by its own
+ * solver. A final repair pass allocates the tasks left uncompleted (e.g., on
+ * region boundaries, or in regions without agents) to the agents that get idle
+ * before the last deadline: each of them starts from the location and time at
+ * which the merged schedule sets it free (see
+ * {@link Solver#setReleaseTimes(int[])}). Solvers without release times only
+ * get the agents never allocated.
+ *
+ * @author lcpz
+ */
+public class Decomposition extends Solver {
+
+	/* Number of regions per side of the grid */
+	protected int gridDim;
+
+	/* The identifier of the solver used in each region (see Portfolio#newSolver) */
+	protected String solverId;
+
+	/* The solvers of the non-empty regions, plus the repair solver as last */
+	protected Solver[] regionSolvers;
+
+	/* Region of each task and agent */
+	protected int[] taskRegion, agentRegion;
+
+	public Decomposition(CFSTP problem, int gridDim, String solverId) {
+		super(problem);
+		this.gridDim = gridDim;
+		this.solverId = solverId;
+		taskRegion = new int[tasks.length];
+		agentRegion = new int[agents.length];
+	}
+
+	@Override
+	public void reset(CFSTP problem) {
+		super.reset(problem);
+		/* iterated by length, see getMembers */
+		if (taskRegion.length != tasks.length)
+			taskRegion = new int[tasks.length];
+		if (agentRegion.length != agents.length)
+			agentRegion = new int[agents.length];
+		regionSolvers = null;
+	}
+
+	/**
+	 * Assign each task and agent to a cell of a gridDim x gridDim grid, laid over
+	 * the bounding box of the task locations.
+	 */
+	protected void setRegions() {
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+
+		for (int v = 0; v < tasks.length; v++) {
+			minX = Math.min(minX, taskX[v]);
+			maxX = Math.max(maxX, taskX[v]);
+			minY = Math.min(minY, taskY[v]);
+			maxY = Math.max(maxY, taskY[v]);
+		}
+
+		for (int v = 0; v < tasks.length; v++)
+			taskRegion[v] = getRegion(taskX[v], taskY[v], minX, maxX, minY, maxY);
+
+		for (int a = 0; a < agents.length; a++)
+			agentRegion[a] = getRegion(agentX[a], agentY[a], minX, maxX, minY, maxY);
+	}
+
+	private int getRegion(int x, int y, int minX, int maxX, int minY, int maxY) {
+		long i = (long) (x - minX) * gridDim / (maxX - minX + 1);
+		long j = (long) (y - minY) * gridDim / (maxY - minY + 1);
+		/* agents can be outside the bounding box */
+		i = Math.max(0, Math.min(gridDim - 1, i));
+		j = Math.max(0, Math.min(gridDim - 1, j));
+		return (int) (i * gridDim + j);
+	}
+
+	private static int[] getMembers(int[] region, int r) {
+		int[] members = new int[region.length];
+		int n = 0;
+		for (int i = 0; i < region.length; i++)
+			if (region[i] == r)
+				members[n++] = i;
+		return ArrayUtils.subarray(members, 0, n);
+	}
+
+	@Override
+	public void stop() {
+		super.stop();
+		Solver[] s = regionSolvers;
+		if (s != null)
+			for (Solver solver : s)
+				if (solver != null)
+					solver.stop();
+	}
+
+	@Override
+	public void solve() {
+		/* the time steps of this run's region solvers only */
+		stepLatencies.reset();
+		setRegions();
+
+		/* 1. build the subproblems of the regions having both tasks and agents */
+		List<Subproblem> subproblems = new ArrayList<>();
+		for (int r = 0; r < gridDim * gridDim; r++) {
+			int[] regionTasks = getMembers(taskRegion, r);
+			int[] regionAgents = getMembers(agentRegion, r);
+			if (regionTasks.length > 0 && regionAgents.length > 0)
+				subproblems.add(new Subproblem(problem, regionTasks, regionAgents));
+		}
+
+		Solver[] solvers = new Solver[subproblems.size() + 1];
+		for (int i = 0; i < subproblems.size(); i++)
+			solvers[i] = Portfolio.newSolver(solverId, subproblems.get(i));
+		regionSolvers = solvers;
+
+		/* 2. solve them in parallel */
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		List<Future<Solver>> futures = new ArrayList<>();
+
+		for (int i = 0; i < subproblems.size(); i++) {
+			final Solver s = solvers[i];
+			futures.add(executor.submit(new Callable<Solver>() {
+				public Solver call() {
+					s.solve();
+					return s;
+				}
+			}));
+		}
+
+		int numberOfCompletedTasks = 0;
+
+		/* the time from which each agent is free, at its location in agentX and agentY (see merge) */
+		int[] freeTime = new int[agents.length];
+
+		/* 3. merge their schedules */
+		try {
+			for (int i = 0; i < subproblems.size(); i++)
+				try {
+					futures.get(i).get();
+					numberOfCompletedTasks += merge(subproblems.get(i), solvers[i], freeTime);
+					stepLatencies.add(solvers[i].getStepLatencies());
+				} catch (ExecutionException e) { /* its tasks are left to the repair pass */
+					e.printStackTrace();
+				}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+		}
+
+		/* 4. repair: allocate the uncompleted tasks to the agents free before the last deadline */
+		int[] residualTasks = new int[tasks.length], idleAgents = new int[agents.length],
+				releaseTimes = new int[agents.length];
+		int n = 0, m = 0;
+
+		for (int v = 0; v < tasks.length; v++)
+			if (!isAllocatedTask[v])
+				residualTasks[n++] = v;
+
+		/* the solvers of the regions are of the same class as the repair solver */
+		boolean release = !subproblems.isEmpty() && solvers[0].supportsReleaseTimes();
+
+		for (int a = 0; a < agents.length; a++)
+			if (freeTime[a] == 0 || release && freeTime[a] <= maxTaskDeadline) {
+				releaseTimes[m] = freeTime[a];
+				idleAgents[m++] = a;
+			}
+
+		if (n > 0 && m > 0 && !stopped) {
+			Subproblem residual = new Subproblem(problem, ArrayUtils.subarray(residualTasks, 0, n),
+					ArrayUtils.subarray(idleAgents, 0, m), agentX, agentY);
+			solvers[solvers.length - 1] = Portfolio.newSolver(solverId, residual);
+			if (release)
+				solvers[solvers.length - 1].setReleaseTimes(ArrayUtils.subarray(releaseTimes, 0, m));
+			solvers[solvers.length - 1].solve();
+			numberOfCompletedTasks += merge(residual, solvers[solvers.length - 1], freeTime);
+			stepLatencies.add(solvers[solvers.length - 1].getStepLatencies());
+		}
+
+		if (DEBUG)
+			System.out.println(String.format("Decomposition: %d regions solved, %d tasks left to %d idle agents",
+					subproblems.size(), n, m));
+
+		results = new Results(average(totalTravelTime, numberOfCompletedTasks),
+				average(totalCompletionTime, numberOfCompletedTasks), numberOfCompletedTasks / (float) tasks.length);
+	}
+
+	/**
+	 * Merge the solution of a subproblem into this one. The agents of sub are
+	 * moved to their final locations in s, and each allocated agent gets free
+	 * after the completion time of its allocations. If the completion time is not
+	 * in the schedule (e.g., that of CTS), an agent still busy at the end of s
+	 * never gets free, and the others get free after the last time step of s.
+	 *
+	 * @param sub      The subproblem.
+	 * @param s        The solver of sub, after solving.
+	 * @param freeTime The time from which each agent is free, updated by this
+	 *                 method.
+	 *
+	 * @return The number of tasks completed in sub.
+	 */
+	private int merge(Subproblem sub, Solver s, int[] freeTime) {
+		int completed = 0;
+
+		for (int v = 0; v < sub.getTasks().length; v++)
+			if (s.isCompletedTask(v)) {
+				isAllocatedTask[sub.getParentTasks()[v]] = true;
+				completed++;
+			}
+
+		for (Allocation allocation : s.getSchedule()) {
+			Allocation a = sub.toParentAllocation(allocation);
+			schedule.add(a);
+			for (int i = 0; i < a.getAgents().length; i++) {
+				int agent = a.getAgents()[i];
+				if (a.getCompletionTime() >= 0)
+					freeTime[agent] = Math.max(freeTime[agent], a.getCompletionTime() + 1);
+				else if (s.isBusyAgent[allocation.getAgents()[i]])
+					freeTime[agent] = Integer.MAX_VALUE;
+				else
+					freeTime[agent] = Math.max(freeTime[agent], s.getCurrentTime() + 1);
+			}
+		}
+
+		/* travel times are not read by this solver, hence they are not updated (see moveAgent) */
+		for (int i = 0; i < sub.getAgents().length; i++) {
+			agentX[sub.getParentAgents()[i]] = s.agentX[i];
+			agentY[sub.getParentAgents()[i]] = s.agentY[i];
+		}
+
+		Results r = s.getResults();
+		totalTravelTime += r.getAvgTravelTime() * completed;
+		totalCompletionTime += r.getAvgCompletionTime() * completed;
+		currentTime = Math.max(currentTime, s.getCurrentTime());
+
+		return completed;
+	}
+
+}
@@ -0,0 +1,452 @@
+package solvers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+
+import distributed.Protocol;
+import distributed.TaskOwner;
+import model.FeasibleAllocation;
+import model.GridProblem;
+import model.Results;
+import profiling.TimeStepEvent;
+
+/**
+ * CTS distributed over processes: tasks are split by identifier among task
+ * owners (see {@link TaskOwner}), and this solver coordinates the time steps,
+ * keeping the state of the agents. At each time step:
+ *
+ * <ol>
+ * <li>the free agents are sent to every owner, which returns their best tasks
+ * among its own; each agent claims the best of them from its owner, which
+ * accepts the first claim of each task; rejected agents choose again, until
+ * every agent has a task or none is left;</li>
+ * <li>every owner is sent the agents that arrived at its tasks, allocates its
+ * claimed tasks, reduces the workloads of its allocated tasks, and returns the
+ * allocations and completions.</li>
+ * </ol>
+ *
+ * The owners answer each request concurrently. Unlike in CTS, the free agents
+ * choose simultaneously, hence the schedule can differ from that of CTS (see
+ * also {@link ConcurrentCTS}). A free agent that finds no task is not sent again
+ * until it moves: task statuses only progress, and deadlines get closer.
+ *
+ * The messages and bytes exchanged are counted, to measure the cost of
+ * distribution. Checkpoints and changes while solving are not supported.
+ *
+ * @author lcpz
+ */
+public class DistributedCTS extends Solver {
+
+	private static final byte FREE = 0, REACHING = 1, WORKING = 2;
+
+	private final List<InetSocketAddress> addresses;
+
+	/* Connections to the owners */
+	private DataInputStream[] in;
+	private DataOutputStream[] out;
+	private CountingInputStream[] received;
+
+	private byte[] agentStatus;
+
+	/* The task each agent is reaching or working on, and the time steps left to reach it */
+	private int[] agentTask, stepsLeft;
+
+	/* Free agents that found no task at their location */
+	private boolean[] isIdleAgent;
+
+	private boolean[] isCompletedTask;
+
+	private int numberOfCompletedTasks, numberOfTravels, numberOfSteps;
+
+	private long numberOfMessages, numberOfBytes;
+
+	/* Counts the bytes received from an owner */
+	private static class CountingInputStream extends FilterInputStream {
+		long count;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0)
+				count++;
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0)
+				count += n;
+			return n;
+		}
+	}
+
+	/**
+	 * @param problem   The problem to solve: the owners only know the data of
+	 *                  {@link GridProblem}.
+	 * @param addresses The addresses of the task owners.
+	 */
+	public DistributedCTS(GridProblem problem, List<InetSocketAddress> addresses) {
+		super(problem);
+		this.addresses = addresses;
+	}
+
+	@Override
+	public boolean isCompletedTask(int v) {
+		return isCompletedTask[v];
+	}
+
+	private void connect() throws IOException {
+		int owners = addresses.size();
+		Socket[] sockets = new Socket[owners];
+		in = new DataInputStream[owners];
+		out = new DataOutputStream[owners];
+		received = new CountingInputStream[owners];
+
+		for (int o = 0; o < owners; o++) {
+			sockets[o] = new Socket();
+			sockets[o].setTcpNoDelay(true);
+			sockets[o].connect(addresses.get(o));
+			received[o] = new CountingInputStream(new BufferedInputStream(sockets[o].getInputStream()));
+			in[o] = new DataInputStream(received[o]);
+			out[o] = new DataOutputStream(new BufferedOutputStream(sockets[o].getOutputStream()));
+		}
+
+		/* send each owner its tasks */
+		for (int o = 0; o < owners; o++) {
+			int n = 0;
+			for (int v = o; v < tasks.length; v += owners)
+				n++;
+
+			out[o].writeByte(Protocol.INIT);
+			out[o].writeInt(o);
+			out[o].writeInt(owners);
+			out[o].writeInt(agents.length);
+			out[o].writeInt(n);
+			for (int v = o; v < tasks.length; v += owners) {
+				out[o].writeInt(v);
+				out[o].writeInt(taskX[v]);
+				out[o].writeInt(taskY[v]);
+				out[o].writeInt(taskDeadlines[v]);
+				out[o].writeInt(taskWorkloads[v]);
+			}
+		}
+
+		flush();
+		for (int o = 0; o < owners; o++)
+			in[o].readInt();
+	}
+
+	private void disconnect() {
+		for (int o = 0; o < out.length; o++)
+			try {
+				if (out[o] != null) {
+					out[o].writeByte(Protocol.END);
+					out[o].flush();
+					out[o].close();
+				}
+			} catch (IOException e) {
+				/* the owner is no longer reachable */
+			}
+	}
+
+	/* Send the requests written to the owners, counting them */
+	private void flush() throws IOException {
+		for (DataOutputStream o : out) {
+			o.flush();
+			numberOfMessages += 2; // request and reply
+		}
+	}
+
+	/* Choose a task for each free agent, and claim it from its owner */
+	private void claimTasks(int[] freeAgents, int n) throws IOException {
+		int owners = out.length;
+		int[] bestTask = new int[n], bestDeadline = new int[n], bestArrivalTime = new int[n];
+		int[][] claims = new int[owners][];
+		int[] numberOfClaims = new int[owners];
+		boolean first = true;
+
+		while (n > 0) {
+			for (int o = 0; o < owners; o++) {
+				out[o].writeByte(Protocol.QUERY);
+				out[o].writeInt(currentTime);
+				out[o].writeInt(n);
+				for (int i = 0; i < n; i++) {
+					out[o].writeInt(freeAgents[i]);
+					out[o].writeInt(agentX[freeAgents[i]]);
+					out[o].writeInt(agentY[freeAgents[i]]);
+				}
+			}
+			flush();
+
+			/* merge the candidates of the owners, preferring unallocated tasks as in CTS */
+			Arrays.fill(bestTask, 0, n, -1);
+			Arrays.fill(bestDeadline, 0, n, Integer.MAX_VALUE);
+			Arrays.fill(bestArrivalTime, 0, n, Integer.MAX_VALUE);
+			int[] allocatedTask = new int[n], allocatedDeadline = new int[n], allocatedArrivalTime = new int[n];
+			Arrays.fill(allocatedTask, -1);
+			Arrays.fill(allocatedDeadline, Integer.MAX_VALUE);
+			Arrays.fill(allocatedArrivalTime, Integer.MAX_VALUE);
+
+			for (int o = 0; o < owners; o++)
+				for (int i = 0; i < n; i++) {
+					int v = in[o].readInt(), deadline = in[o].readInt(), arrivalTime = in[o].readInt();
+					if (v > -1 && deadline < bestDeadline[i] && arrivalTime < bestArrivalTime[i]) {
+						bestTask[i] = v;
+						bestDeadline[i] = deadline;
+						bestArrivalTime[i] = arrivalTime;
+					}
+
+					v = in[o].readInt();
+					deadline = in[o].readInt();
+					arrivalTime = in[o].readInt();
+					if (v > -1 && deadline < allocatedDeadline[i] && arrivalTime < allocatedArrivalTime[i]) {
+						allocatedTask[i] = v;
+						allocatedDeadline[i] = deadline;
+						allocatedArrivalTime[i] = arrivalTime;
+					}
+				}
+
+			/* claim the chosen tasks, in agent order */
+			Arrays.fill(numberOfClaims, 0);
+			for (int i = 0; i < n; i++) {
+				if (bestTask[i] == -1)
+					bestTask[i] = allocatedTask[i];
+
+				if (bestTask[i] == -1) {
+					/* no task at its location now, hence in no later time step */
+					if (first)
+						isIdleAgent[freeAgents[i]] = true;
+					continue;
+				}
+
+				int o = Protocol.getOwner(bestTask[i], owners);
+				if (claims[o] == null || claims[o].length < 2 * n)
+					claims[o] = new int[2 * n];
+				claims[o][numberOfClaims[o] * 2] = i;
+				claims[o][numberOfClaims[o] * 2 + 1] = bestTask[i];
+				numberOfClaims[o]++;
+			}
+
+			for (int o = 0; o < owners; o++) {
+				if (numberOfClaims[o] == 0)
+					continue;
+				out[o].writeByte(Protocol.CLAIM);
+				out[o].writeInt(currentTime);
+				out[o].writeInt(numberOfClaims[o]);
+				for (int c = 0; c < numberOfClaims[o]; c++) {
+					out[o].writeInt(freeAgents[claims[o][c * 2]]);
+					out[o].writeInt(claims[o][c * 2 + 1]);
+				}
+				out[o].flush();
+				numberOfMessages += 2;
+			}
+
+			/* the rejected agents choose again */
+			boolean[] rejected = new boolean[n];
+			for (int o = 0; o < owners; o++)
+				for (int c = 0; c < numberOfClaims[o]; c++)
+					if (in[o].readByte() == 0)
+						rejected[claims[o][c * 2]] = true;
+
+			int m = 0;
+			for (int i = 0; i < n; i++)
+				if (rejected[i])
+					freeAgents[m++] = freeAgents[i];
+			n = m;
+			first = false;
+		}
+	}
+
+	/* Send the arrivals to the owners, and apply their allocations and completions */
+	private int stepTasks(int[][] arrivals, int[] numberOfArrivals) throws IOException {
+		int owners = out.length, completed = 0;
+
+		for (int o = 0; o < owners; o++) {
+			out[o].writeByte(Protocol.STEP);
+			out[o].writeInt(currentTime);
+			out[o].writeInt(numberOfArrivals[o]);
+			for (int i = 0; i < numberOfArrivals[o] * 2; i++)
+				out[o].writeInt(arrivals[o][i]);
+		}
+		flush();
+
+		for (int o = 0; o < owners; o++) {
+			for (int m = in[o].readInt(); m > 0; m--) {
+				int v = in[o].readInt(), a = in[o].readInt();
+				int travelTime = problem.getAgentTravelTime(agents[a], agentX[a], agentY[a], v);
+
+				isAllocatedTask[v] = true;
+				isBusyAgent[a] = true;
+				agentStatus[a] = REACHING;
+				agentTask[a] = v;
+				stepsLeft[a] = travelTime + 1;
+				totalTravelTime += travelTime + 1;
+				numberOfTravels++;
+				schedule.add(new FeasibleAllocation(currentTime, v, new int[] { a },
+						new int[] { currentTime + travelTime }));
+			}
+
+			for (int k = in[o].readInt(); k > 0; k--) {
+				int v = in[o].readInt();
+				isCompletedTask[v] = true;
+				totalCompletionTime += in[o].readInt();
+				completed++;
+
+				for (int w = in[o].readInt(); w > 0; w--) {
+					int a = in[o].readInt();
+					agentStatus[a] = FREE;
+					isBusyAgent[a] = false;
+				}
+			}
+		}
+
+		return completed;
+	}
+
+	/* Run a time step: agents choose and move, then tasks are updated */
+	private void step() throws IOException {
+		int owners = out.length;
+
+		/* the agents free at the beginning of the time step */
+		int[] freeAgents = new int[agents.length];
+		int n = 0;
+		for (int a = 0; a < agents.length; a++)
+			if (agentStatus[a] == FREE && !isIdleAgent[a] && !isFailedAgent[a])
+				freeAgents[n++] = a;
+
+		/* agents reaching a task: freed if it is completed, or arrived */
+		int[][] arrivals = new int[owners][2];
+		int[] numberOfArrivals = new int[owners];
+		for (int a = 0; a < agents.length; a++) {
+			if (agentStatus[a] != REACHING)
+				continue;
+
+			int v = agentTask[a];
+			if (isCompletedTask[v]) {
+				agentStatus[a] = FREE;
+				isBusyAgent[a] = false;
+			} else if (--stepsLeft[a] <= 0) {
+				agentStatus[a] = WORKING;
+				agentX[a] = taskX[v];
+				agentY[a] = taskY[v];
+				isIdleAgent[a] = false;
+
+				int o = Protocol.getOwner(v, owners);
+				if (numberOfArrivals[o] * 2 == arrivals[o].length)
+					arrivals[o] = Arrays.copyOf(arrivals[o], arrivals[o].length * 2);
+				arrivals[o][numberOfArrivals[o] * 2] = a;
+				arrivals[o][numberOfArrivals[o] * 2 + 1] = v;
+				numberOfArrivals[o]++;
+			}
+		}
+
+		claimTasks(freeAgents, n);
+
+		numberOfCompletedTasks += stepTasks(arrivals, numberOfArrivals);
+	}
+
+	@Override
+	public void solve() {
+		agentStatus = new byte[agents.length];
+		agentTask = new int[agents.length];
+		stepsLeft = new int[agents.length];
+		isIdleAgent = new boolean[agents.length];
+		isCompletedTask = new boolean[tasks.length];
+		numberOfCompletedTasks = numberOfTravels = numberOfSteps = 0;
+		numberOfMessages = numberOfBytes = 0;
+
+		try {
+			connect();
+
+			do {
+				TimeStepEvent step = beginTimeStep();
+
+				if (DEBUG)
+					System.out.println(String.format("[%3d, %3d]", currentTime, numberOfCompletedTasks));
+
+				step();
+				numberOfSteps++;
+
+				endTimeStep(step, numberOfCompletedTasks);
+
+				if (numberOfCompletedTasks < tasks.length && allAgentsAreAvailable()) {
+					if (DEBUG)
+						System.out.println(String.format(
+								"\nNo tasks can be further allocated, stopping before max deadline (%d)", maxTaskDeadline));
+					break;
+				}
+
+				currentTime++;
+			} while (!stopped && !allAgentsAreAvailable() && numberOfCompletedTasks < tasks.length
+					&& currentTime <= maxTaskDeadline);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			if (received != null)
+				for (CountingInputStream r : received)
+					if (r != null)
+						numberOfBytes += r.count;
+			if (out != null) {
+				for (DataOutputStream o : out)
+					if (o != null)
+						numberOfBytes += o.size();
+				disconnect();
+			}
+		}
+
+		results = new Results(average(totalTravelTime, numberOfTravels),
+				average(totalCompletionTime, numberOfCompletedTasks), numberOfCompletedTasks / (float) tasks.length);
+	}
+
+	/**
+	 * @return The number of time steps of the last solve.
+	 */
+	public int getNumberOfSteps() {
+		return numberOfSteps;
+	}
+
+	/**
+	 * @return The number of messages (requests and replies) exchanged with the
+	 *         owners in the last solve.
+	 */
+	public long getNumberOfMessages() {
+		return numberOfMessages;
+	}
+
+	/**
+	 * @return The number of bytes exchanged with the owners in the last solve.
+	 */
+	public long getNumberOfBytes() {
+		return numberOfBytes;
+	}
+
+	/**
+	 * @return The average number of messages per time step of the last solve.
+	 */
+	public float getMessagesPerStep() {
+		return numberOfSteps > 0 ? numberOfMessages / (float) numberOfSteps : 0;
+	}
+
+	/**
+	 * @return The average number of bytes per time step of the last solve.
+	 */
+	public float getBytesPerStep() {
+		return numberOfSteps > 0 ? numberOfBytes / (float) numberOfSteps : 0;
+	}
+
+}
@@ -1,13 +1,15 @@
 package solvers;
 
-import java.util.Arrays;
-import java.util.Comparator;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 import org.apache.commons.lang3.ArrayUtils;
 
 import model.Allocation;
 import model.CFSTP;
 import model.Results;
+import profiling.TimeStepEvent;
 
 /**
  * Earliest-Deadline-First, a common scheduling algorithm (Ramamritham et al.,
@@ -20,22 +22,58 @@ public class EDF extends CFLA {
 
 	protected int[] sortedTasks;
 
+	/* an index to keep track of the next earliest-deadline task */
+	protected int earliestDeadlineTaskIdx;
+
 	public EDF(CFSTP problem) {
 		super(problem);
+		sortedTasks = getTasksSortedByDeadline();
+	}
 
-		/* sort tasks by deadline, in ascending order */
-		Integer[] s = ArrayUtils.toObject(tasks);
-		Arrays.sort(s, new Comparator<Integer>() {
-			public int compare(Integer o1, Integer o2) {
-				if (demands[o1][0] < demands[o2][0])
-					return -1;
-				if (demands[o1][0] == demands[o2][0])
-					return 0;
-				return 1;
-			}
-		});
+	/**
+	 * @param problem The problem.
+	 * @param batch   Whether to allocate, at each time step, all the
+	 *                earliest-deadline tasks that free agents can complete.
+	 */
+	public EDF(CFSTP problem, boolean batch) {
+		this(problem);
+		this.batch = batch;
+	}
+
+	@Override
+	public void reset(CFSTP problem) {
+		super.reset(problem);
+		sortedTasks = getTasksSortedByDeadline();
+		earliestDeadlineTaskIdx = 0;
+	}
+
+	@Override
+	protected void writeState(DataOutput out) throws IOException {
+		super.writeState(out);
+		out.writeInt(earliestDeadlineTaskIdx);
+		out.writeInt(sortedTasks.length);
+		writeInts(out, sortedTasks, sortedTasks.length);
+	}
+
+	@Override
+	protected void readState(DataInput in) throws IOException {
+		super.readState(in);
+		earliestDeadlineTaskIdx = in.readInt();
+		sortedTasks = new int[in.readInt()];
+		readInts(in, sortedTasks, sortedTasks.length);
+	}
+
+	@Override
+	protected int insertTask(int x, int y, int deadline, int workload) {
+		int v = super.insertTask(x, y, deadline, workload);
 
-		sortedTasks = ArrayUtils.toPrimitive(s);
+		/* among the tasks still to try, by deadline */
+		int i = earliestDeadlineTaskIdx;
+		while (i < sortedTasks.length && taskDeadlines[sortedTasks[i]] <= deadline)
+			i++;
+		sortedTasks = ArrayUtils.insert(i, sortedTasks, v);
+
+		return v;
 	}
 
 	@Override
@@ -44,23 +82,32 @@ public class EDF extends CFLA {
 	}
 
 	public void solve() {
-		/* we assume that initial number of completed tasks is zero */
-		int numberOfAllocatedTasks = 0;
+		beginSolve();
 
-		/* an index to keep track of the next earliest-deadline task */
-		int earliestDeadlineTaskIdx = 0;
+		/* zero, unless resuming from a checkpoint */
+		int numberOfAllocatedTasks = schedule.size();
 
-		int nextTask = -1;
+		do {
+			TimeStepEvent step = beginTimeStep();
 
-		/* time steps at which agents are set 'free' */
-		boolean[][] freeAt = new boolean[maxTaskDeadline][agents.length];
+			checkpointIfDue();
+
+			/* apply the changes to the problem that are due, if any */
+			if (applyChangeEvents())
+				numberOfAllocatedTasks = schedule.size();
 
-		do {
 			/* set 'free' the agents that completed task in the previous time step */
 			for (int a : agents)
 				if (freeAt[currentTime][a])
 					isBusyAgent[a] = false;
 
+			/* stop if no agent can reach a task: agents move only when allocated, hence no task can be allocated any more */
+			if (!hasPendingChangeEvents() && !hasAllocableTasks()) {
+				if (DEBUG)
+					System.out.println(String.format("[%3d] No tasks can be further allocated", currentTime));
+				break;
+			}
+
 			/* define feasible allocations */
 			setFeasibleAgentAllocationsToAllTasks();
 
@@ -70,46 +117,38 @@ public class EDF extends CFLA {
 				int i = 0;
 				int[] temp = new int[sortedTasks.length];
 				for (int j = 0; j < sortedTasks.length; j++)
-					if (!isAllocatedTask[sortedTasks[j]] && demands[sortedTasks[j]][0] >= currentTime)
+					if (!isAllocatedTask[sortedTasks[j]] && taskDeadlines[sortedTasks[j]] >= currentTime)
 						temp[i++] = sortedTasks[j];
 				sortedTasks = ArrayUtils.subarray(temp,  0,  i);
 			}
 
-			if (sortedTasks.length > 0)
-				nextTask = sortedTasks[earliestDeadlineTaskIdx++];
+			/* in batch mode, go on with the next earliest-deadline tasks while agents are free */
+			while (earliestDeadlineTaskIdx < sortedTasks.length) {
+				int nextTask = sortedTasks[earliestDeadlineTaskIdx++];
 
-			/* find an ECF coalition to allocate to nextTask */
-			Allocation nextAllocation = ECF(nextTask);
-			int[] nextCoalition = nextAllocation.getAgents();
+				/* find an ECF coalition to allocate to nextTask */
+				Allocation nextAllocation = ECF(nextTask);
 
-			if (nextCoalition != ArrayUtils.EMPTY_INT_ARRAY) {
-				int timeToSetFree = nextAllocation.getCompletionTime() + 1;
-
-				for (int agent : nextCoalition) {
-					isBusyAgent[agent] = true;
-					if (timeToSetFree <= maxTaskDeadline)
-						freeAt[timeToSetFree][agent] = true;
-					agentLocations[agent] = taskLocations[nextTask];
+				if (nextAllocation.getAgents() != ArrayUtils.EMPTY_INT_ARRAY) {
+					allocate(nextAllocation);
+					numberOfAllocatedTasks++;
 				}
 
-				isAllocatedTask[nextTask] = true;
-				numberOfAllocatedTasks++;
-				avgTravelTime += nextAllocation.getTravelTime();
-				avgCompletionTime += nextAllocation.getCompletionTime() - currentTime;
+				if (DEBUG)
+					printCurrentAllocation(nextAllocation, numberOfAllocatedTasks);
+
+				if (!batch || allAgentsAreBusy())
+					break;
 			}
 
-			if (DEBUG)
-				printCurrentAllocation(nextAllocation, numberOfAllocatedTasks);
+			endTimeStep(step, numberOfAllocatedTasks);
 
 			currentTime++;
-		} while (sortedTasks.length > 0 && numberOfAllocatedTasks < tasks.length && currentTime < maxTaskDeadline);
-
-		if (numberOfAllocatedTasks != 0) {
-			avgTravelTime /= numberOfAllocatedTasks;
-			avgCompletionTime /= numberOfAllocatedTasks;
-		}
+		} while (!stopped && (sortedTasks.length > 0 && numberOfAllocatedTasks < tasks.length || hasPendingChangeEvents())
+				&& currentTime < maxTaskDeadline);
 
-		results = new Results(avgTravelTime, avgCompletionTime, numberOfAllocatedTasks / (float) tasks.length);
+		results = new Results(average(totalTravelTime, numberOfAllocatedTasks),
+				average(totalCompletionTime, numberOfAllocatedTasks), numberOfAllocatedTasks / (float) tasks.length);
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,182 @@
+package solvers;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import org.apache.commons.lang3.ArrayUtils;
+
+import model.Allocation;
+import model.CFSTP;
+
+/**
+ * CFLA (or CFLA2) with lazy, best-first task selection.
+ *
+ * At each time step, tasks are visited in descending order of an upper bound on
+ * their degree, and ECF plus look-ahead are computed only until the best degree
+ * found beats the bounds of all the tasks left. The allocation chosen is the
+ * same as that of CFLA, with or without rolling horizon.
+ *
+ * @author lcpz
+ */
+public class LazyCFLA extends CFLA {
+
+	/* tasks sorted by deadline, in ascending order */
+	protected int[] sortedTasks;
+
+	/* upper bounds on task degrees, indexed like windowTasks */
+	protected int[] bounds;
+
+	/*
+	 * Buffers of setBounds, indexed by task: whether a task counts in the degrees
+	 * of the others, and the weight counted from its deadline on. Only the entries
+	 * of the window are written and read.
+	 */
+	protected boolean[] isCounted;
+	protected int[] countedFrom;
+
+	public LazyCFLA(CFSTP problem, boolean improved) {
+		this(problem, improved, 0);
+	}
+
+	public LazyCFLA(CFSTP problem, boolean improved, int horizon) {
+		super(problem, improved, horizon);
+		sortedTasks = getTasksSortedByDeadline();
+		bounds = new int[tasks.length];
+		isCounted = new boolean[tasks.length];
+		countedFrom = new int[tasks.length];
+	}
+
+	@Override
+	public void reset(CFSTP problem) {
+		super.reset(problem);
+		sortedTasks = getTasksSortedByDeadline();
+		if (bounds.length < tasks.length) {
+			bounds = new int[tasks.length];
+			isCounted = new boolean[tasks.length];
+			countedFrom = new int[tasks.length];
+		}
+	}
+
+	@Override
+	protected int insertTask(int x, int y, int deadline, int workload) {
+		int v = super.insertTask(x, y, deadline, workload);
+		sortedTasks = getTasksSortedByDeadline();
+		if (bounds.length < tasks.length) {
+			int n = grow(tasks.length);
+			bounds = new int[n];
+			isCounted = new boolean[n];
+			countedFrom = new int[n];
+		}
+		return v;
+	}
+
+	/**
+	 * Set an upper bound on the degree of each unallocated task in the window.
+	 *
+	 * {@link #lookAhead(Allocation, boolean[])} counts a task v2 only if an agent
+	 * can reach it by its deadline after v is completed, that is, not before
+	 * currentTime + 1. Hence, the degree of v is at most the (weighted) number of
+	 * such tasks, other than v, with deadline >= d_v if CFLA2 is used.
+	 */
+	protected void setBounds() {
+		/* CFLA2 adds 2 - z, with z in [0, 1], to an integer degree */
+		int weight = improved ? 2 : 1;
+		int total = 0;
+
+		for (int w = windowStart; w < windowEnd; w++) {
+			int v2 = windowTasks[w];
+			isCounted[v2] = false;
+			if (!isAllocatedTask[v2])
+				for (int a = 0; a < agents.length; a++)
+					if (currentTime + 1 + getAgentTravelTimes(a)[v2] <= taskDeadlines[v2]) {
+						isCounted[v2] = true;
+						total += weight;
+						break;
+					}
+		}
+
+		if (!improved) {
+			/* CFLA: the same tasks count for every v */
+			for (int w = windowStart; w < windowEnd; w++)
+				bounds[w] = total - (isCounted[windowTasks[w]] ? weight : 0);
+			return;
+		}
+
+		/*
+		 * CFLA2: sum the weights of the counted tasks with deadline >= d_v, over the
+		 * window sorted by deadline (with horizon, windowTasks is; without, the window
+		 * has all tasks)
+		 */
+		int[] sorted = horizon > 0 ? windowTasks : sortedTasks;
+		int start = horizon > 0 ? windowStart : 0, sum = 0, i = (horizon > 0 ? windowEnd : sortedTasks.length) - 1;
+		while (i >= start) {
+			int j = i;
+			while (j >= start && taskDeadlines[sorted[j]] == taskDeadlines[sorted[i]]) {
+				if (isCounted[sorted[j]])
+					sum += weight;
+				j--;
+			}
+			for (int k = i; k > j; k--)
+				countedFrom[sorted[k]] = sum;
+			i = j;
+		}
+
+		for (int w = windowStart; w < windowEnd; w++) {
+			int v = windowTasks[w];
+			bounds[w] = countedFrom[v] - (isCounted[v] ? weight : 0);
+		}
+	}
+
+	@Override
+	protected Allocation getNextAllocation() {
+		setBounds();
+
+		PriorityQueue<Integer> queue = new PriorityQueue<>(Math.max(1, windowEnd - windowStart),
+				new Comparator<Integer>() {
+					public int compare(Integer w1, Integer w2) {
+						if (bounds[w1] != bounds[w2])
+							return Integer.compare(bounds[w2], bounds[w1]);
+						return Integer.compare(windowTasks[w1], windowTasks[w2]);
+					}
+				});
+
+		for (int w = windowStart; w < windowEnd; w++)
+			if (!isAllocatedTask[windowTasks[w]])
+				queue.add(w);
+
+		int maxTaskDegree = 0;
+		Allocation nextAllocation = new Allocation();
+
+		while (!queue.isEmpty()) {
+			int w = queue.poll(), v = windowTasks[w];
+
+			/*
+			 * CFLA keeps the task with the highest degree, which must be > 0, and the least
+			 * index among ties: stop when no task left can beat it, or tie with a lesser
+			 * index (ties are polled by index)
+			 */
+			if (bounds[w] < maxTaskDegree || bounds[w] == maxTaskDegree && v > nextAllocation.getTask())
+				break;
+
+			Allocation ecf = ECF(v);
+
+			if (ecf.getAgents() == ArrayUtils.EMPTY_INT_ARRAY)
+				continue;
+
+			int completionTime = ecf.getCompletionTime();
+
+			if (completionTime > maxTaskDeadline)
+				continue;
+
+			int degreeV = lookAhead(ecf, freeAt[completionTime + 1]);
+
+			if (degreeV > maxTaskDegree || degreeV == maxTaskDegree && v < nextAllocation.getTask()) {
+				maxTaskDegree = degreeV;
+				nextAllocation = ecf;
+			}
+		}
+
+		return nextAllocation;
+	}
+
+}
@@ -0,0 +1,222 @@
+package solvers;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import model.CFSTP;
+import model.Results;
+
+/**
+ * A portfolio of CFSTP solvers, run concurrently on the same problem within a
+ * time budget. The best results (i.e., the highest completed task percentage,
+ * with ties broken by the lowest average completion time) are kept.
+ *
+ * Solvers still running are stopped either when the time budget expires, or
+ * when a solver has completed as many tasks as the upper bound given by
+ * {@link #getCompletableTasksUpperBound()}.
+ *
+ * @author lcpz
+ */
+public class Portfolio extends Solver {
+
+	public static final String[] DEFAULT_SOLVERS = new String[] { "EDF", "CTS", "CFLA", "CFLA2" };
+
+	/* The identifiers of the solvers in the portfolio */
+	protected String[] solverIds;
+
+	/* The solvers in the portfolio, aligned with solverIds */
+	protected Solver[] solvers;
+
+	/* Time budget, in milliseconds */
+	protected long timeBudget;
+
+	/* The solver whose results have been kept */
+	protected Solver best;
+
+	public Portfolio(CFSTP problem, long timeBudget) {
+		this(problem, timeBudget, DEFAULT_SOLVERS);
+	}
+
+	public Portfolio(CFSTP problem, long timeBudget, String... solverIds) {
+		super(problem);
+		this.timeBudget = timeBudget;
+		this.solverIds = solverIds;
+		solvers = new Solver[solverIds.length];
+		for (int i = 0; i < solverIds.length; i++)
+			solvers[i] = newSolver(solverIds[i], problem);
+	}
+
+	@Override
+	public void reset(CFSTP problem) {
+		super.reset(problem);
+		for (Solver s : solvers)
+			s.reset(problem);
+		best = null;
+	}
+
+	@Override
+	public void stop() {
+		super.stop();
+		/* solve() returns once they do, with the best results so far */
+		for (Solver s : solvers)
+			s.stop();
+	}
+
+	/**
+	 * Instantiate a solver by its identifier.
+	 *
+	 * @param solverId One of "EDF", "CFLA", "CFLA2", "CTS" and "BNB" (exact, for
+	 *                 small problems only).
+	 * @param problem  The problem to solve.
+	 *
+	 * @return A new solver.
+	 */
+	public static Solver newSolver(String solverId, CFSTP problem) {
+		switch (solverId) {
+		case "EDF":
+			return new EDF(problem);
+		case "CFLA":
+			return new CFLA(problem);
+		case "CFLA2":
+			return new CFLA(problem, true);
+		case "CTS":
+			return new CTS(problem);
+		case "BNB":
+			return new BranchAndBound(problem);
+		default:
+			throw new IllegalArgumentException(String.format("%s is not a valid algorithm identifier", solverId));
+		}
+	}
+
+	/**
+	 * An upper bound on the number of tasks that any solver can complete: a task
+	 * is counted if at least one agent can reach it from its initial location
+	 * within its deadline.
+	 *
+	 * It assumes that travel times satisfy the triangle inequality, as they do in
+	 * (Ramchurn et al., 2010).
+	 *
+	 * @return The number of tasks that can be reached by at least one agent.
+	 */
+	protected int getCompletableTasksUpperBound() {
+		int bound = 0;
+
+		for (int v = 0; v < tasks.length; v++)
+			for (int a = 0; a < agents.length; a++)
+				if (getAgentTravelTimes(a)[v] <= taskDeadlines[v]) {
+					bound++;
+					break;
+				}
+
+		return bound;
+	}
+
+	/**
+	 * Check whether the results of solver s are better than those kept so far.
+	 *
+	 * @param s A solver that returned.
+	 *
+	 * @return A boolean.
+	 */
+	protected boolean isBetter(Solver s) {
+		if (best == null)
+			return true;
+
+		Results r = s.getResults(), b = best.getResults();
+
+		if (r.getCompletedTaskPercentage() != b.getCompletedTaskPercentage())
+			return r.getCompletedTaskPercentage() > b.getCompletedTaskPercentage();
+
+		return r.getAvgCompletionTime() < b.getAvgCompletionTime();
+	}
+
+	@Override
+	public void solve() {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeBudget);
+		int bound = getCompletableTasksUpperBound();
+
+		ExecutorService executor = Executors.newFixedThreadPool(solvers.length);
+		CompletionService<Solver> completionService = new ExecutorCompletionService<>(executor);
+
+		for (final Solver s : solvers)
+			completionService.submit(new Callable<Solver>() {
+				public Solver call() {
+					s.solve();
+					return s;
+				}
+			});
+
+		try {
+			for (int returned = 0; returned < solvers.length && !stopped; returned++) {
+				Future<Solver> f = completionService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+
+				if (f == null) /* time budget expired */
+					break;
+
+				Solver s;
+				try {
+					s = f.get();
+				} catch (ExecutionException e) { /* a failing solver does not stop the others */
+					e.printStackTrace();
+					continue;
+				}
+
+				if (isBetter(s))
+					best = s;
+
+				if (DEBUG)
+					System.out.println(String.format("Portfolio: %s returned at time %d",
+							solverIds[indexOf(s)], s.getCurrentTime()));
+
+				/* nobody can do better than bound */
+				if (Math.round(best.getResults().getCompletedTaskPercentage() * tasks.length) >= bound)
+					break;
+			}
+
+			/* stop the solvers still running, and keep their partial results if better */
+			for (Solver s : solvers)
+				s.stop();
+
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+
+		for (Solver s : solvers)
+			if (s.getResults() != null && isBetter(s))
+				best = s;
+
+		if (best != null) {
+			results = best.getResults();
+			schedule = best.getSchedule();
+			currentTime = best.getCurrentTime();
+			/* the time steps are those of best */
+			stepLatencies.reset();
+			stepLatencies.add(best.getStepLatencies());
+		} else
+			results = new Results(0, 0, 0);
+	}
+
+	private int indexOf(Solver s) {
+		for (int i = 0; i < solvers.length; i++)
+			if (solvers[i] == s)
+				return i;
+		return -1;
+	}
+
+	/**
+	 * @return The identifier of the solver whose results have been kept, or null.
+	 */
+	public String getBestSolverId() {
+		return best == null ? null : solverIds[indexOf(best)];
+	}
+
+}
@@ -1,7 +1,35 @@
 package solvers;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import exceptions.IncompatibleCheckpointException;
+import model.Allocation;
 import model.CFSTP;
+import model.ChangeEvent;
+import model.FeasibleAllocation;
 import model.Results;
+import jdk.jfr.FlightRecorder;
+import profiling.TimeStepEvent;
+import toolkit.LatencyHistogram;
 
 /**
  * An algorithm for solving CFSTPs.
@@ -10,14 +38,31 @@ import model.Results;
  */
 public abstract class Solver {
 
-	public static final boolean DEBUG = true;
+	/* Verbose output; disabled with -Dcfstp.debug=false */
+	public static final boolean DEBUG = Boolean.parseBoolean(System.getProperty("cfstp.debug", "true"));
+
+	/* Checkpoint file header */
+	private static final int CHECKPOINT_MAGIC = 0x43465354, CHECKPOINT_VERSION = 3;
 
 	/* The problem */
 	protected CFSTP problem;
 
 	/* Data structures retrieved from problem */
 	protected int[] tasks, agents;
-	protected int[][] taskLocations, agentLocations, demands;
+	protected int[] taskX, taskY, taskDeadlines, taskWorkloads;
+
+	/* Current agent locations, in flat layout */
+	protected int[] agentX, agentY;
+
+	/*
+	 * Travel times from current agent locations to each task: [agentId][taskId].
+	 * A row is null until read with getAgentTravelTimes(int), and it is the
+	 * read-only row of the problem while the agent is at its initial location.
+	 */
+	private int[][] agentTravelTimes;
+
+	/* Rows owned by this solver, reused when agents move */
+	private int[][] travelTimeBuffers;
 	protected int maxTaskDeadline, minTaskDeadline, maxTaskWorkload, minTaskWorkload;
 
 	/* Final results */
@@ -26,8 +71,8 @@ public abstract class Solver {
 	/* Current system time, starting at 0 */
 	protected int currentTime;
 
-	/* Average travel and completion time */
-	protected float avgTravelTime, avgCompletionTime;
+	/* Travel and completion times summed over the tasks allocated so far (averaged only in the results) */
+	protected float totalTravelTime, totalCompletionTime;
 
 	/*
 	 * Flags to determine which agents are currently busy, and which tasks are
@@ -38,19 +83,158 @@ public abstract class Solver {
 	 */
 	protected boolean[] isBusyAgent, isAllocatedTask;
 
+	/*
+	 * Tasks cancelled and agents failed while solving (see ChangeEvent). Cancelled
+	 * tasks are also flagged as allocated, and failed agents as busy, so that they
+	 * are skipped.
+	 */
+	protected boolean[] isCancelledTask, isFailedAgent;
+
+	/*
+	 * The time step from which each agent can be allocated, or null if all of them
+	 * can from the start (see setReleaseTimes). Agents not released yet are busy.
+	 */
+	protected int[] releaseTimes;
+
+	/* Change events not applied yet, by time */
+	protected PriorityBlockingQueue<ChangeEvent> changeEvents = new PriorityBlockingQueue<>(11,
+			new Comparator<ChangeEvent>() {
+				public int compare(ChangeEvent e1, ChangeEvent e2) {
+					return Integer.compare(e1.getTime(), e2.getTime());
+				}
+			});
+
+	/* The allocations done so far, in the order in which they were done */
+	protected List<Allocation> schedule;
+
+	/* A task and an agent that can reach it, found by hasAllocableTasks(), or -1 */
+	private int allocableTask = -1, allocableTaskAgent = -1;
+
+	/* Whether hasAllocableTasks() found no task, and no agent moved since */
+	private boolean noAllocableTasks;
+
+	/* Set by another thread to ask solve() to return at the end of the current time step */
+	protected volatile boolean stopped;
+
+	/* Checkpoint file, written every checkpointInterval time steps (0 means never) */
+	protected File checkpointFile;
+	protected int checkpointInterval;
+
+	/* Set by another thread to ask solve() to write a checkpoint at the beginning of the next time step */
+	protected volatile boolean checkpointRequested;
+
+	/* The decision times of the time steps, in ns, and the beginning of the current one */
+	protected final LatencyHistogram stepLatencies = new LatencyHistogram();
+	private long stepStart;
+
+	/* Stream to which stepLatencies is printed every latencyExportInterval ns (null means never) */
+	protected PrintStream latencyExport;
+	protected long latencyExportInterval, lastLatencyExport;
+
 	public Solver(CFSTP problem) {
+		setProblem(problem);
+	}
+
+	/**
+	 * Re-arm this solver with a new problem, so that it can be solved again. The
+	 * internal arrays are reused when they are large enough, which is the case
+	 * when the new problem has the same or a smaller shape (number of agents,
+	 * tasks, and maximum deadline) than the previous one.
+	 *
+	 * Subclasses with further state must override it, and call it first.
+	 *
+	 * @param problem The new problem.
+	 */
+	public void reset(CFSTP problem) {
+		setProblem(problem);
+	}
+
+	private void setProblem(CFSTP problem) {
 		this.problem = problem;
 		tasks = problem.getTasks();
 		agents = problem.getAgents();
-		taskLocations = problem.getTaskLocations();
-		agentLocations = problem.getInitialAgentLocations();
-		demands = problem.getDemands();
+		taskX = problem.getTaskX();
+		taskY = problem.getTaskY();
+		taskDeadlines = problem.getDeadlines();
+		taskWorkloads = problem.getWorkloads();
+		/* copies: solvers move agents, while problem must stay untouched */
+		agentX = copy(problem.getInitialAgentX(), agentX);
+		agentY = copy(problem.getInitialAgentY(), agentY);
+		if (agentTravelTimes == null || agentTravelTimes.length != agents.length) {
+			agentTravelTimes = new int[agents.length][];
+			travelTimeBuffers = new int[agents.length][];
+		} else
+			Arrays.fill(agentTravelTimes, null);
 		maxTaskDeadline = problem.getMaxTaskDeadline();
 		minTaskDeadline = problem.getMinTaskDeadline();
 		maxTaskWorkload = problem.getMaxTaskWorkload();
 		minTaskWorkload = problem.getMinTaskWorkload();
-		isBusyAgent = new boolean[agents.length];
-		isAllocatedTask = new boolean[tasks.length];
+		isBusyAgent = clear(isBusyAgent, agents.length);
+		isAllocatedTask = clear(isAllocatedTask, tasks.length);
+		isCancelledTask = clear(isCancelledTask, tasks.length);
+		isFailedAgent = clear(isFailedAgent, agents.length);
+		releaseTimes = null;
+		changeEvents.clear();
+		schedule = new ArrayList<>();
+		allocableTask = allocableTaskAgent = -1;
+		noAllocableTasks = false;
+		results = null;
+		currentTime = 0;
+		totalTravelTime = 0;
+		totalCompletionTime = 0;
+		stopped = false;
+		checkpointRequested = false;
+		stepLatencies.reset();
+		lastLatencyExport = System.nanoTime();
+	}
+
+	/*
+	 * Pooled buffers. The arrays that are iterated by length (e.g., isBusyAgent)
+	 * are reused only if they have exactly the required length, the others if
+	 * they have at least the required length. In both cases, they are cleared.
+	 */
+
+	/**
+	 * @param b A buffer, or null.
+	 * @param n The required length.
+	 *
+	 * @return b cleared, if it has length n, otherwise a new array of length n.
+	 */
+	protected static boolean[] clear(boolean[] b, int n) {
+		if (b == null || b.length != n)
+			return new boolean[n];
+		Arrays.fill(b, false);
+		return b;
+	}
+
+	/**
+	 * @param src The array to copy.
+	 * @param dst A buffer, or null.
+	 *
+	 * @return dst with the elements of src, if it has the same length, otherwise a
+	 *         clone of src.
+	 */
+	protected static int[] copy(int[] src, int[] dst) {
+		if (dst == null || dst.length != src.length)
+			return src.clone();
+		System.arraycopy(src, 0, dst, 0, src.length);
+		return dst;
+	}
+
+	/**
+	 * @param b    A buffer, or null.
+	 * @param rows The required number of rows.
+	 * @param cols The required number of columns.
+	 *
+	 * @return b cleared, if it is large enough, otherwise a new rows x cols array.
+	 */
+	protected static boolean[][] clear(boolean[][] b, int rows, int cols) {
+		if (b == null || b.length < rows || rows > 0 && b[0].length < cols)
+			return new boolean[rows][cols];
+		/* all of it: rows beyond the required ones can be scanned (e.g., by BeamCFLA) */
+		for (boolean[] row : b)
+			Arrays.fill(row, false);
+		return b;
 	}
 
 	/**
@@ -59,14 +243,775 @@ public abstract class Solver {
 	 * @return A boolean.
 	 */
 	protected boolean allAgentsAreAvailable() {
+		for (int a = 0; a < agents.length; a++)
+			if (isBusyAgent[a] && !isFailedAgent[a])
+				return false;
+		return true;
+	}
+
+	/**
+	 * Move an agent to the location of a task. Its travel times are computed again
+	 * when next read.
+	 *
+	 * @param a    The agent.
+	 * @param task The task.
+	 */
+	protected void moveAgent(int a, int task) {
+		agentX[a] = taskX[task];
+		agentY[a] = taskY[task];
+		agentTravelTimes[a] = null;
+		noAllocableTasks = false;
+	}
+
+	/**
+	 * Check if all agents are currently busy in a coalition.
+	 *
+	 * @return A boolean.
+	 */
+	protected boolean allAgentsAreBusy() {
 		for (boolean a : isBusyAgent)
-			if (a)
+			if (!a)
 				return false;
 		return true;
 	}
 
+	/**
+	 * An upper bound on the number of tasks that can still be allocated, based on
+	 * reachability: a task counts if it is allocable, and at least one agent can
+	 * reach it by its deadline once free (see {@link #canReach(int, int)}).
+	 *
+	 * The time left to each deadline only decreases, hence the bound can grow
+	 * only when an agent moves, or the problem changes. It takes O(|A||V|) time:
+	 * solvers check it at every time step with {@link #hasAllocableTasks()}.
+	 *
+	 * @return The bound.
+	 */
+	protected int getAllocableTasksBound() {
+		int bound = 0;
+
+		for (int v = 0; v < tasks.length; v++)
+			if (isAllocableTask(v))
+				for (int a = 0; a < agents.length; a++)
+					if (!isFailedAgent[a] && canReach(a, v)) {
+						bound++;
+						break;
+					}
+
+		return bound;
+	}
+
+	/**
+	 * Check if {@link #getAllocableTasksBound()} is greater than 0. It keeps the
+	 * task and the agent found, and checks them first at the next call, hence it
+	 * takes O(1) time while the agent can still reach the task. Likewise, when no
+	 * task is found, it takes O(1) time until an agent moves, or the problem
+	 * changes.
+	 *
+	 * @return A boolean.
+	 */
+	protected boolean hasAllocableTasks() {
+		if (noAllocableTasks)
+			return false;
+
+		if (allocableTask > -1 && isAllocableTask(allocableTask) && !isFailedAgent[allocableTaskAgent]
+				&& canReach(allocableTaskAgent, allocableTask))
+			return true;
+
+		/* from the task after the previous one, so that tasks found unreachable are not checked again first */
+		for (int i = 1; i <= tasks.length; i++) {
+			int v = (allocableTask + i) % tasks.length;
+			if (isAllocableTask(v))
+				for (int a = 0; a < agents.length; a++)
+					if (!isFailedAgent[a] && canReach(a, v)) {
+						allocableTask = v;
+						allocableTaskAgent = a;
+						return true;
+					}
+		}
+
+		allocableTask = allocableTaskAgent = -1;
+		noAllocableTasks = true;
+		return false;
+	}
+
+	/**
+	 * Check if a task can still be allocated.
+	 *
+	 * @param v A task index.
+	 *
+	 * @return A boolean.
+	 */
+	protected boolean isAllocableTask(int v) {
+		return !isAllocatedTask[v];
+	}
+
+	/**
+	 * Check if an agent can reach a task by its deadline, leaving from its current
+	 * location when it gets free: at current time if it is free, not before the
+	 * next time step otherwise.
+	 *
+	 * @param a An agent index.
+	 * @param v A task index.
+	 *
+	 * @return A boolean.
+	 */
+	protected boolean canReach(int a, int v) {
+		int time = isBusyAgent[a] ? currentTime + 1 : currentTime;
+		return time + getAgentTravelTimes(a)[v] <= taskDeadlines[v];
+	}
+
 	public abstract void solve();
 
+	/**
+	 * The event classes of package profiling are loaded only if JFR is running:
+	 * otherwise, their registration would add about 0.3 s to the first solve.
+	 *
+	 * @return Whether JFR events can be recorded.
+	 */
+	protected static boolean isRecording() {
+		return FlightRecorder.isInitialized();
+	}
+
+	/**
+	 * Start timing the current time step.
+	 *
+	 * @return The JFR event of the current time step, begun, or null if JFR is not
+	 *         running.
+	 */
+	protected TimeStepEvent beginTimeStep() {
+		stepStart = System.nanoTime();
+
+		if (!isRecording())
+			return null;
+
+		TimeStepEvent step = new TimeStepEvent();
+		step.begin();
+		return step;
+	}
+
+	/**
+	 * Record the decision time of the current time step, and commit its JFR
+	 * event, if it is recorded.
+	 *
+	 * @param step           The event returned by {@link #beginTimeStep()}.
+	 * @param allocatedTasks The number of tasks allocated (or completed) so far.
+	 */
+	protected void endTimeStep(TimeStepEvent step, int allocatedTasks) {
+		long now = System.nanoTime();
+		stepLatencies.record(now - stepStart);
+
+		if (latencyExport != null && now - lastLatencyExport >= latencyExportInterval) {
+			lastLatencyExport = now;
+			latencyExport.printf("%s t=%d %s%n", getClass().getSimpleName(), currentTime, stepLatencies);
+		}
+
+		if (step != null && step.shouldCommit()) {
+			step.solver = getClass().getSimpleName();
+			step.time = currentTime;
+			step.allocatedTasks = allocatedTasks;
+			step.commit();
+		}
+	}
+
+	/**
+	 * Ask {@link #solve()} to stop at the end of the current time step. The
+	 * results are then computed on the allocations done so far. A solver that
+	 * supports checkpoints (see {@link #supportsCheckpoints()}) continues the
+	 * run at the next call of {@link #solve()}.
+	 *
+	 * This method can be called from any thread.
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	/**
+	 * Called by {@link #solve()} when it begins. A solver stopped in a previous
+	 * call continues its run, while a {@link #stop()} requested before the first
+	 * call (e.g., by a {@link Portfolio} whose time budget expired) is kept.
+	 */
+	protected void beginSolve() {
+		if (results != null)
+			stopped = false;
+	}
+
+	/**
+	 * @param total A sum of times.
+	 * @param n     The number of summed times.
+	 * @return The average of the times, or 0 if there are none.
+	 */
+	protected static float average(float total, int n) {
+		return n > 0 ? total / n : 0;
+	}
+
+	/**
+	 * Check if a task has been completed (or, for solvers that allocate tasks
+	 * only when they can be completed by their deadline, allocated).
+	 *
+	 * @param v A task index.
+	 *
+	 * @return A boolean.
+	 */
+	public boolean isCompletedTask(int v) {
+		return isAllocatedTask[v] && !isCancelledTask[v];
+	}
+
+	/**
+	 * Add a change to the problem, applied by {@link #solve()} at the beginning of
+	 * its time step (or of the current one, if it is in the past), without
+	 * solving from scratch. Changes with the same time are applied in any order,
+	 * and changes after the end of solve() are ignored.
+	 *
+	 * The problem itself is not changed (see {@link #insertTask(int, int, int, int)}):
+	 * an inserted task has the next index of this solver, and its coalition values
+	 * are those given by {@link CFSTP#getCoalitionValue(int, int[])} for that
+	 * index, which the problem must accept (as {@link model.GridProblem} does).
+	 *
+	 * This method can be called from any thread.
+	 *
+	 * @param event The change.
+	 */
+	public void addChangeEvent(ChangeEvent event) {
+		if (!supportsChangeEvents())
+			throw new UnsupportedOperationException(
+					String.format("%s does not support changes while solving", getClass().getSimpleName()));
+		changeEvents.add(event);
+	}
+
+	/**
+	 * @return Whether {@link #addChangeEvent(ChangeEvent)} is supported, that is,
+	 *         whether {@link #solve()} applies changes (see
+	 *         {@link #applyChangeEvents()}). Subclasses that do must override it.
+	 */
+	public boolean supportsChangeEvents() {
+		return false;
+	}
+
+	/**
+	 * Keep agents busy until their release time, e.g., while they complete the
+	 * tasks allocated by another solver (see {@link Decomposition}). It must be
+	 * called before {@link #solve()}, and {@link #reset(CFSTP)} clears it.
+	 *
+	 * @param releaseTimes The time step from which each agent can be allocated.
+	 */
+	public void setReleaseTimes(int[] releaseTimes) {
+		if (!supportsReleaseTimes())
+			throw new UnsupportedOperationException(
+					String.format("%s does not support release times", getClass().getSimpleName()));
+		this.releaseTimes = releaseTimes;
+		for (int a = 0; a < agents.length; a++)
+			if (releaseTimes[a] > currentTime)
+				isBusyAgent[a] = true;
+	}
+
+	/**
+	 * @return Whether {@link #setReleaseTimes(int[])} is supported, that is,
+	 *         whether {@link #solve()} sets agents free at their release time.
+	 *         Subclasses that do must override it.
+	 */
+	public boolean supportsReleaseTimes() {
+		return false;
+	}
+
+	protected boolean hasPendingChangeEvents() {
+		return !changeEvents.isEmpty();
+	}
+
+	/**
+	 * Called by {@link #solve()} at the beginning of each time step, to apply the
+	 * change events that are due.
+	 *
+	 * @return Whether at least one event has been applied.
+	 */
+	protected boolean applyChangeEvents() {
+		boolean applied = false;
+		ChangeEvent e;
+
+		while ((e = changeEvents.peek()) != null && e.getTime() <= currentTime) {
+			e = changeEvents.poll();
+
+			if (DEBUG)
+				System.out.println(String.format("[%3d] %s", currentTime, e));
+
+			switch (e.getType()) {
+			case TASK_INSERTION:
+				insertTask(e.getX(), e.getY(), e.getDeadline(), e.getWorkload());
+				break;
+			case TASK_CANCELLATION:
+				if (!isCancelledTask[e.getIndex()])
+					cancelTask(e.getIndex());
+				break;
+			case AGENT_FAILURE:
+				if (!isFailedAgent[e.getIndex()])
+					failAgent(e.getIndex());
+				break;
+			}
+
+			applied = true;
+		}
+
+		if (applied)
+			noAllocableTasks = false;
+
+		return applied;
+	}
+
+	/**
+	 * Add a task, and extend the data structures indexed by task. The problem is
+	 * left untouched, since other solvers can share it: the task arrays of this
+	 * solver are copied at the first insertion, and then grown with spare
+	 * capacity, hence only the first {@code tasks.length} elements are tasks.
+	 * Subclasses with further such structures must override it, and call it
+	 * first.
+	 *
+	 * @param x        The x coordinate of the task location.
+	 * @param y        The y coordinate of the task location.
+	 * @param deadline The task deadline.
+	 * @param workload The task workload.
+	 *
+	 * @return The index of the new task.
+	 */
+	protected int insertTask(int x, int y, int deadline, int workload) {
+		int v = tasks.length;
+
+		/* the identifiers are the only array that must have the exact length */
+		tasks = Arrays.copyOf(tasks, v + 1);
+		tasks[v] = v;
+
+		if (taskX.length == v) {
+			int n = grow(v + 1);
+			taskX = Arrays.copyOf(taskX, n);
+			taskY = Arrays.copyOf(taskY, n);
+			taskDeadlines = Arrays.copyOf(taskDeadlines, n);
+			taskWorkloads = Arrays.copyOf(taskWorkloads, n);
+			isAllocatedTask = Arrays.copyOf(isAllocatedTask, n);
+			isCancelledTask = Arrays.copyOf(isCancelledTask, n);
+		}
+
+		taskX[v] = x;
+		taskY[v] = y;
+		taskDeadlines[v] = deadline;
+		taskWorkloads[v] = workload;
+		maxTaskDeadline = Math.max(maxTaskDeadline, deadline);
+		minTaskDeadline = Math.min(minTaskDeadline, deadline);
+		maxTaskWorkload = Math.max(maxTaskWorkload, workload);
+		minTaskWorkload = Math.min(minTaskWorkload, workload);
+
+		/* rows not read yet are computed with v; shared rows are copied, since they are shorter */
+		for (int a = 0; a < agents.length; a++)
+			if (agentTravelTimes[a] != null) {
+				if (agentTravelTimes[a].length <= v)
+					agentTravelTimes[a] = travelTimeBuffers[a] = Arrays.copyOf(agentTravelTimes[a], grow(v + 1));
+				agentTravelTimes[a][v] = getAgentTravelTime(a, agentX[a], agentY[a], v);
+			}
+
+		return v;
+	}
+
+	/**
+	 * The time taken for an agent to travel from a location to a task, which can
+	 * be one inserted while solving, hence unknown to the problem: its travel
+	 * time is then given by {@link CFSTP#getAgentTravelTime(int, int[], int[])}.
+	 *
+	 * @param a An agent index.
+	 * @param x The x coordinate of the location.
+	 * @param y The y coordinate of the location.
+	 * @param v A task index.
+	 *
+	 * @return The travel time.
+	 */
+	protected int getAgentTravelTime(int a, int x, int y, int v) {
+		if (v < problem.getTasks().length)
+			return problem.getAgentTravelTime(agents[a], x, y, v);
+		return problem.getAgentTravelTime(agents[a], new int[] { x, y }, new int[] { taskX[v], taskY[v] });
+	}
+
+	/**
+	 * The travel times from the current location of an agent to each task. They
+	 * are computed at the first call after the agent moves, and reused until it
+	 * moves again. At its initial location, they are those of
+	 * {@link CFSTP#getInitialAgentTravelTimes(int)}, shared with the other
+	 * solvers of the problem, hence the row must not be written.
+	 *
+	 * Concurrent solvers must compute the row of an agent in one thread only,
+	 * before the others read it.
+	 *
+	 * @param a An agent index.
+	 *
+	 * @return The travel times, of length <code>tasks.length</code> or more.
+	 */
+	protected int[] getAgentTravelTimes(int a) {
+		int[] travelTimes = agentTravelTimes[a];
+
+		if (travelTimes == null) {
+			int n = problem.getTasks().length;
+
+			if (tasks.length == n && agentX[a] == problem.getInitialAgentX()[a]
+					&& agentY[a] == problem.getInitialAgentY()[a])
+				travelTimes = problem.getInitialAgentTravelTimes(a);
+			else {
+				travelTimes = travelTimeBuffers[a];
+				if (travelTimes == null || travelTimes.length < tasks.length)
+					travelTimes = travelTimeBuffers[a] = new int[tasks.length];
+				problem.getAgentTravelTimes(agents[a], agentX[a], agentY[a], travelTimes);
+				for (int v = n; v < tasks.length; v++)
+					travelTimes[v] = getAgentTravelTime(a, agentX[a], agentY[a], v);
+			}
+
+			agentTravelTimes[a] = travelTimes;
+		}
+
+		return travelTimes;
+	}
+
+	/* capacity for n elements or more, so that insertions take amortised constant time per element */
+	protected static int grow(int n) {
+		return n + (n >> 1);
+	}
+
+	/**
+	 * Cancel a task: it is no longer allocated, and the agents allocated to it (if
+	 * any) are set free. Subclasses must override it to undo their allocations,
+	 * and call it last, unless the task is already completed: then, the
+	 * cancellation is ignored.
+	 *
+	 * @param v A task index.
+	 */
+	protected void cancelTask(int v) {
+		isCancelledTask[v] = true;
+		isAllocatedTask[v] = true;
+	}
+
+	/**
+	 * Drop an agent for the rest of the run. Subclasses must override it to
+	 * re-plan the task the agent is allocated to (if any), and call it last.
+	 *
+	 * @param a An agent index.
+	 */
+	protected void failAgent(int a) {
+		isFailedAgent[a] = true;
+		isBusyAgent[a] = true;
+	}
+
+	/**
+	 * Write a checkpoint periodically while solving.
+	 *
+	 * @param file     The checkpoint file, overwritten each time.
+	 * @param interval The number of time steps between checkpoints (0 means only
+	 *                 on request, see {@link #requestCheckpoint()}).
+	 */
+	public void setCheckpoint(File file, int interval) {
+		checkCheckpoints();
+		checkpointFile = file;
+		checkpointInterval = interval;
+	}
+
+	/**
+	 * Print the decision time percentiles of the time steps (see
+	 * {@link #getStepLatencies()}) periodically while solving, at the end of a
+	 * time step.
+	 *
+	 * @param out      The stream, or null to stop printing.
+	 * @param interval The minimum interval between prints, in ms.
+	 */
+	public void setLatencyExport(PrintStream out, long interval) {
+		latencyExport = out;
+		latencyExportInterval = interval * 1000000;
+	}
+
+	/**
+	 * @return The decision times of the time steps solved since the last
+	 *         {@link #reset(CFSTP)}, in ns: they accumulate across the calls of
+	 *         {@link #solve()} that continue the same run (i.e., after
+	 *         {@link #stop()} or {@link #restore(File)}, for the solvers that
+	 *         support checkpoints). They are updated while
+	 *         solving, hence they can be read by a monitor from another thread
+	 *         (approximately).
+	 */
+	public LatencyHistogram getStepLatencies() {
+		return stepLatencies;
+	}
+
+	/**
+	 * @return Whether this solver can be checkpointed and restored, that is,
+	 *         whether its state between time steps is entirely written by
+	 *         {@link #writeState(DataOutput)}. Subclasses that are must override
+	 *         it.
+	 */
+	public boolean supportsCheckpoints() {
+		return false;
+	}
+
+	private void checkCheckpoints() {
+		if (!supportsCheckpoints())
+			throw new UnsupportedOperationException(
+					String.format("%s does not support checkpoints", getClass().getSimpleName()));
+	}
+
+	/**
+	 * Ask {@link #solve()} to write a checkpoint to the file set with
+	 * {@link #setCheckpoint(File, int)} at the beginning of the next time step.
+	 *
+	 * This method can be called from any thread.
+	 */
+	public void requestCheckpoint() {
+		checkpointRequested = true;
+	}
+
+	/**
+	 * Called by {@link #solve()} at the beginning of each time step, that is, when
+	 * its state is entirely in fields. A failed write is reported, but does not
+	 * stop solving.
+	 */
+	protected void checkpointIfDue() {
+		if (checkpointFile == null)
+			return;
+
+		if (checkpointRequested || checkpointInterval > 0 && currentTime > 0 && currentTime % checkpointInterval == 0) {
+			checkpointRequested = false;
+			try {
+				checkpoint(checkpointFile);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Write the current state to a file, in a compressed binary format. The file
+	 * is replaced atomically, so that a crash while writing leaves the previous
+	 * checkpoint intact.
+	 *
+	 * It must be called between time steps: either before or after
+	 * {@link #solve()}, or from solve() itself (see {@link #checkpointIfDue()}).
+	 *
+	 * @param file The checkpoint file.
+	 *
+	 * @throws IOException If the file cannot be written.
+	 */
+	public void checkpoint(File file) throws IOException {
+		checkCheckpoints();
+		File tmp = new File(file.getPath() + ".tmp");
+
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tmp))))) {
+			out.writeInt(CHECKPOINT_MAGIC);
+			out.writeInt(CHECKPOINT_VERSION);
+			out.writeUTF(getClass().getName());
+			out.writeInt(agents.length);
+			out.writeInt(tasks.length);
+			out.writeInt(maxTaskDeadline);
+			out.writeInt(getProblemHash());
+			writeState(out);
+		}
+
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Restore the state written by {@link #checkpoint(File)}, possibly in another
+	 * JVM, so that {@link #solve()} continues from it. This solver must be of the
+	 * same class and have the same parameters as the one checkpointed, its
+	 * problem must be the same, and it must not have solved yet (i.e., it must be
+	 * new or reset).
+	 *
+	 * @param file The checkpoint file.
+	 *
+	 * @throws IOException                     If the file cannot be read.
+	 * @throws IncompatibleCheckpointException If the file is not a checkpoint of
+	 *                                         this solver and problem.
+	 */
+	public void restore(File file) throws IOException, IncompatibleCheckpointException {
+		checkCheckpoints();
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+			if (in.readInt() != CHECKPOINT_MAGIC || in.readInt() != CHECKPOINT_VERSION)
+				throw new IncompatibleCheckpointException(String.format("%s is not a checkpoint", file));
+
+			String solverClass = in.readUTF();
+			if (!solverClass.equals(getClass().getName()))
+				throw new IncompatibleCheckpointException(
+						String.format("%s is a checkpoint of %s, not %s", file, solverClass, getClass().getName()));
+
+			if (in.readInt() != agents.length || in.readInt() != tasks.length || in.readInt() != maxTaskDeadline
+					|| in.readInt() != getProblemHash())
+				throw new IncompatibleCheckpointException(String.format("%s is a checkpoint of another problem", file));
+
+			readState(in);
+		}
+	}
+
+	/* a hash of the problem data, to check that a checkpoint is restored on the same problem */
+	private int getProblemHash() {
+		int n = tasks.length;
+		int h = Arrays.hashCode(Arrays.copyOf(taskX, n));
+		h = 31 * h + Arrays.hashCode(Arrays.copyOf(taskY, n));
+		h = 31 * h + Arrays.hashCode(Arrays.copyOf(taskDeadlines, n));
+		h = 31 * h + Arrays.hashCode(Arrays.copyOf(taskWorkloads, n));
+		h = 31 * h + Arrays.hashCode(problem.getInitialAgentX());
+		return 31 * h + Arrays.hashCode(problem.getInitialAgentY());
+	}
+
+	/**
+	 * Write the state of this solver at the beginning of a time step. Subclasses
+	 * with further state must override it, and call it first.
+	 *
+	 * @param out The output.
+	 *
+	 * @throws IOException If the output cannot be written.
+	 */
+	protected void writeState(DataOutput out) throws IOException {
+		out.writeInt(currentTime);
+		out.writeFloat(totalTravelTime);
+		out.writeFloat(totalCompletionTime);
+		writeInts(out, agentX, agents.length);
+		writeInts(out, agentY, agents.length);
+		writeBits(out, isBusyAgent, agents.length);
+		writeBits(out, isAllocatedTask, tasks.length);
+		writeBits(out, isCancelledTask, tasks.length);
+		writeBits(out, isFailedAgent, agents.length);
+
+		out.writeInt(schedule.size());
+		for (Allocation allocation : schedule) {
+			boolean feasible = allocation instanceof FeasibleAllocation;
+			out.writeBoolean(feasible);
+			out.writeInt(allocation.getTask());
+			out.writeInt(allocation.getAgents().length);
+			writeInts(out, allocation.getAgents(), allocation.getAgents().length);
+			if (feasible) {
+				FeasibleAllocation f = (FeasibleAllocation) allocation;
+				out.writeInt(f.getAllocationTime());
+				writeInts(out, f.getArrivalTimes(), allocation.getAgents().length);
+			} else {
+				out.writeInt(allocation.getTravelTime());
+				out.writeInt(allocation.getCompletionTime());
+			}
+		}
+
+		out.writeBoolean(releaseTimes != null);
+		if (releaseTimes != null)
+			writeInts(out, releaseTimes, agents.length);
+
+		/* the events still queued: those due are applied after the checkpoint of a time step */
+		ChangeEvent[] events = changeEvents.toArray(new ChangeEvent[0]);
+		out.writeInt(events.length);
+		for (ChangeEvent e : events) {
+			out.writeByte(e.getType().ordinal());
+			out.writeInt(e.getTime());
+			if (e.getType() == ChangeEvent.Type.TASK_INSERTION) {
+				out.writeInt(e.getX());
+				out.writeInt(e.getY());
+				out.writeInt(e.getDeadline());
+				out.writeInt(e.getWorkload());
+			} else
+				out.writeInt(e.getIndex());
+		}
+
+		stepLatencies.write(out);
+	}
+
+	/**
+	 * Read the state written by {@link #writeState(DataOutput)}. Subclasses with
+	 * further state must override it, and call it first.
+	 *
+	 * @param in The input.
+	 *
+	 * @throws IOException If the input cannot be read.
+	 */
+	protected void readState(DataInput in) throws IOException {
+		currentTime = in.readInt();
+		totalTravelTime = in.readFloat();
+		totalCompletionTime = in.readFloat();
+		readInts(in, agentX, agents.length);
+		readInts(in, agentY, agents.length);
+		readBits(in, isBusyAgent, agents.length);
+		readBits(in, isAllocatedTask, tasks.length);
+		readBits(in, isCancelledTask, tasks.length);
+		readBits(in, isFailedAgent, agents.length);
+
+		/* travel times are not stored: they are derived from agent locations */
+		Arrays.fill(agentTravelTimes, null);
+		allocableTask = allocableTaskAgent = -1;
+		noAllocableTasks = false;
+
+		schedule = new ArrayList<>();
+		for (int i = in.readInt(); i > 0; i--) {
+			boolean feasible = in.readBoolean();
+			int task = in.readInt();
+			int[] coalition = new int[in.readInt()];
+			readInts(in, coalition, coalition.length);
+			if (feasible) {
+				int allocationTime = in.readInt();
+				int[] arrivalTimes = new int[coalition.length];
+				readInts(in, arrivalTimes, arrivalTimes.length);
+				schedule.add(new FeasibleAllocation(allocationTime, task, coalition, arrivalTimes));
+			} else
+				schedule.add(new Allocation(task, coalition, in.readInt(), in.readInt()));
+		}
+
+		releaseTimes = null;
+		if (in.readBoolean()) {
+			releaseTimes = new int[agents.length];
+			readInts(in, releaseTimes, agents.length);
+		}
+
+		changeEvents.clear();
+		for (int i = in.readInt(); i > 0; i--) {
+			ChangeEvent.Type type = ChangeEvent.Type.values()[in.readByte()];
+			int time = in.readInt();
+			switch (type) {
+			case TASK_INSERTION:
+				changeEvents.add(ChangeEvent.taskInsertion(time, in.readInt(), in.readInt(), in.readInt(), in.readInt()));
+				break;
+			case TASK_CANCELLATION:
+				changeEvents.add(ChangeEvent.taskCancellation(time, in.readInt()));
+				break;
+			case AGENT_FAILURE:
+				changeEvents.add(ChangeEvent.agentFailure(time, in.readInt()));
+				break;
+			}
+		}
+
+		stepLatencies.read(in);
+	}
+
+	/* Checkpoint encoding: n booleans packed in 64-bit words, and n ints */
+
+	protected static void writeBits(DataOutput out, boolean[] b, int n) throws IOException {
+		long word = 0;
+		for (int i = 0; i < n; i++) {
+			if (b[i])
+				word |= 1L << (i & 63);
+			if ((i & 63) == 63 || i == n - 1) {
+				out.writeLong(word);
+				word = 0;
+			}
+		}
+	}
+
+	protected static void readBits(DataInput in, boolean[] b, int n) throws IOException {
+		long word = 0;
+		for (int i = 0; i < n; i++) {
+			if ((i & 63) == 0)
+				word = in.readLong();
+			b[i] = (word & 1L << (i & 63)) != 0;
+		}
+	}
+
+	protected static void writeInts(DataOutput out, int[] a, int n) throws IOException {
+		for (int i = 0; i < n; i++)
+			out.writeInt(a[i]);
+	}
+
+	protected static void readInts(DataInput in, int[] a, int n) throws IOException {
+		for (int i = 0; i < n; i++)
+			a[i] = in.readInt();
+	}
+
+	public boolean isStopped() {
+		return stopped;
+	}
+
 	public int getCurrentTime() {
 		return currentTime;
 	}
@@ -75,4 +1020,8 @@ public abstract class Solver {
 		return results;
 	}
 
+	public List<Allocation> getSchedule() {
+		return schedule;
+	}
+
 }
\ No newline at end of file
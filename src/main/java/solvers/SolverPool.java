@@ -0,0 +1,57 @@
+package solvers;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import model.CFSTP;
+
+/**
+ * A pool of solvers, with one instance per identifier (see
+ * {@link Portfolio#newSolver(String, CFSTP)}) and thread.
+ *
+ * The first request of a thread for an identifier instantiates a solver, and
+ * the next ones re-arm it with {@link Solver#reset(CFSTP)}, so that the arrays
+ * allocated for the previous problems are reused. Hence, a solver obtained from
+ * the pool must be used only by the requesting thread, and only until its next
+ * request for the same identifier.
+ *
+ * @author lcpz
+ */
+public class SolverPool {
+
+	/* The solvers of each thread, by identifier */
+	private final ThreadLocal<Map<String, Solver>> solvers = new ThreadLocal<Map<String, Solver>>() {
+		@Override
+		protected Map<String, Solver> initialValue() {
+			return new HashMap<>();
+		}
+	};
+
+	/**
+	 * @param solverId A solver identifier.
+	 * @param problem  The problem to solve.
+	 *
+	 * @return The solver of the calling thread, ready to solve problem.
+	 */
+	public Solver get(String solverId, CFSTP problem) {
+		Map<String, Solver> m = solvers.get();
+		Solver s = m.get(solverId);
+
+		if (s == null) {
+			s = Portfolio.newSolver(solverId, problem);
+			m.put(solverId, s);
+		} else
+			s.reset(problem);
+
+		return s;
+	}
+
+	/**
+	 * Release the solvers of the calling thread (e.g., before returning it to a
+	 * thread pool that outlives this object).
+	 */
+	public void clear() {
+		solvers.remove();
+	}
+
+}
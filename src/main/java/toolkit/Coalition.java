@@ -0,0 +1,169 @@
+package toolkit;
+
+import java.util.Arrays;
+
+/**
+ * A set of agents, represented as a bitmask: agent a is in the set if and only
+ * if bit a is set. Up to 64 agents, it is backed by a single long word,
+ * otherwise by an array of them.
+ *
+ * Set operations are word-parallel, and neither they nor iteration allocate.
+ * Solvers use it internally, and convert it to <code>int[]</code> only when
+ * calling the API (e.g., {@link model.CFSTP#getCoalitionValue(int, int[])}).
+ *
+ * @author lcpz
+ */
+public class Coalition {
+
+	private final long[] words;
+
+	/**
+	 * An empty coalition.
+	 *
+	 * @param numberOfAgents The maximum number of agents, i.e., agents are in
+	 *                       [0, numberOfAgents).
+	 */
+	public Coalition(int numberOfAgents) {
+		words = new long[Math.max(1, (numberOfAgents + 63) >>> 6)];
+	}
+
+	public static Coalition of(int numberOfAgents, int[] agents) {
+		Coalition c = new Coalition(numberOfAgents);
+		c.addAll(agents);
+		return c;
+	}
+
+	/**
+	 * @return The maximum number of agents that this coalition can contain.
+	 */
+	public int capacity() {
+		return words.length << 6;
+	}
+
+	public void add(int a) {
+		words[a >>> 6] |= 1L << a;
+	}
+
+	public void addAll(int[] agents) {
+		for (int a : agents)
+			add(a);
+	}
+
+	public void remove(int a) {
+		words[a >>> 6] &= ~(1L << a);
+	}
+
+	public boolean contains(int a) {
+		return (words[a >>> 6] & 1L << a) != 0;
+	}
+
+	public void clear() {
+		Arrays.fill(words, 0);
+	}
+
+	public boolean isEmpty() {
+		for (long w : words)
+			if (w != 0)
+				return false;
+		return true;
+	}
+
+	/**
+	 * @return The number of agents (popcount).
+	 */
+	public int size() {
+		int n = 0;
+		for (long w : words)
+			n += Long.bitCount(w);
+		return n;
+	}
+
+	/* In-place set operations, with a coalition of the same capacity */
+
+	public void set(Coalition c) {
+		System.arraycopy(c.words, 0, words, 0, words.length);
+	}
+
+	public void or(Coalition c) {
+		for (int i = 0; i < words.length; i++)
+			words[i] |= c.words[i];
+	}
+
+	public void and(Coalition c) {
+		for (int i = 0; i < words.length; i++)
+			words[i] &= c.words[i];
+	}
+
+	public void andNot(Coalition c) {
+		for (int i = 0; i < words.length; i++)
+			words[i] &= ~c.words[i];
+	}
+
+	public boolean intersects(Coalition c) {
+		for (int i = 0; i < words.length; i++)
+			if ((words[i] & c.words[i]) != 0)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Iterate over the agents in ascending order:
+	 * <code>for (int a = c.next(0); a >= 0; a = c.next(a + 1))</code>.
+	 *
+	 * @param from An agent.
+	 *
+	 * @return The first agent >= from in this coalition, or -1 if none.
+	 */
+	public int next(int from) {
+		int i = from >>> 6;
+		if (i >= words.length)
+			return -1;
+
+		long w = words[i] & -1L << from;
+		while (w == 0) {
+			if (++i == words.length)
+				return -1;
+			w = words[i];
+		}
+
+		return (i << 6) + Long.numberOfTrailingZeros(w);
+	}
+
+	/**
+	 * @param out An array of length >= {@link #size()}.
+	 *
+	 * @return The number of agents, written in ascending order to out.
+	 */
+	public int toArray(int[] out) {
+		int n = 0;
+		for (int i = 0; i < words.length; i++)
+			for (long w = words[i]; w != 0; w &= w - 1)
+				out[n++] = (i << 6) + Long.numberOfTrailingZeros(w);
+		return n;
+	}
+
+	/**
+	 * @return The agents, in ascending order.
+	 */
+	public int[] toArray() {
+		int[] out = new int[size()];
+		toArray(out);
+		return out;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof Coalition && Arrays.equals(words, ((Coalition) o).words);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(words);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+
+}
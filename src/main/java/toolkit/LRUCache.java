@@ -0,0 +1,139 @@
+package toolkit;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache with least-recently-used eviction, safe to share between
+ * threads.
+ *
+ * Entries are split among segments by key hash, each an access-ordered
+ * LinkedHashMap with its own lock, so that threads seldom contend. Eviction is
+ * LRU within each segment.
+ *
+ * @author lcpz
+ */
+public class LRUCache<K, V> {
+
+	public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+	private final Segment<K, V>[] segments;
+
+	private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+
+	private static class Segment<K, V> extends LinkedHashMap<K, V> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int capacity;
+		private final LongAdder evictions;
+
+		Segment(int capacity, LongAdder evictions) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+			this.evictions = evictions;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			if (size() <= capacity)
+				return false;
+			evictions.increment();
+			return true;
+		}
+	}
+
+	public LRUCache(int capacity) {
+		this(capacity, DEFAULT_CONCURRENCY_LEVEL);
+	}
+
+	/**
+	 * @param capacity         The maximum number of entries.
+	 * @param concurrencyLevel The expected number of threads, rounded up to a power
+	 *                         of 2 to get the number of segments.
+	 */
+	@SuppressWarnings("unchecked")
+	public LRUCache(int capacity, int concurrencyLevel) {
+		int n = 1;
+		while (n < concurrencyLevel && n < capacity)
+			n <<= 1;
+
+		segments = (Segment<K, V>[]) new Segment<?, ?>[n];
+		for (int i = 0; i < n; i++)
+			segments[i] = new Segment<>((capacity + n - 1) / n, evictions);
+	}
+
+	private Segment<K, V> getSegment(Object key) {
+		int h = key.hashCode();
+		return segments[(h ^ h >>> 16) & (segments.length - 1)];
+	}
+
+	/**
+	 * @param key A key.
+	 *
+	 * @return Its value, or null if it is not cached.
+	 */
+	public V get(K key) {
+		Segment<K, V> s = getSegment(key);
+		V value;
+
+		synchronized (s) {
+			value = s.get(key);
+		}
+
+		if (value == null)
+			misses.increment();
+		else
+			hits.increment();
+
+		return value;
+	}
+
+	public void put(K key, V value) {
+		Segment<K, V> s = getSegment(key);
+		synchronized (s) {
+			s.put(key, value);
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for (Segment<K, V> s : segments)
+			synchronized (s) {
+				size += s.size();
+			}
+		return size;
+	}
+
+	public void clear() {
+		for (Segment<K, V> s : segments)
+			synchronized (s) {
+				s.clear();
+			}
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	public float getHitRate() {
+		long h = getHits(), n = h + getMisses();
+		return n == 0 ? 0 : h / (float) n;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d entries, %d hits, %d misses (%.2f%% hit rate), %d evictions", size(), getHits(),
+				getMisses(), getHitRate() * 100, getEvictions());
+	}
+
+}
@@ -0,0 +1,200 @@
+package toolkit;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A histogram of latencies in nanoseconds, with logarithmic buckets: each power
+ * of two is split into {@link #SUB_BUCKETS} buckets, hence percentiles have a
+ * relative error below 1 / SUB_BUCKETS (6.25%). Its memory is fixed (about 8
+ * KB), and recording a value costs a few instructions, without allocations.
+ *
+ * It is not synchronised: it must be written by one thread at a time, and
+ * readers in other threads (e.g., monitors) can see slightly stale counts.
+ *
+ * @author lcpz
+ */
+public class LatencyHistogram {
+
+	/* The number of buckets per power of two (a power of two) */
+	public static final int SUB_BUCKETS = 16;
+
+	private static final int SUB_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+
+	/* Values in [0, SUB_BUCKETS) have a bucket each; then, SUB_BUCKETS per power of two up to 2^63 */
+	private final long[] counts = new long[(64 - SUB_BITS) * SUB_BUCKETS];
+
+	private long count, sum, max;
+
+	/**
+	 * @param value A value, at least 0.
+	 *
+	 * @return The index of its bucket.
+	 */
+	static int getIndex(long value) {
+		if (value < SUB_BUCKETS)
+			return (int) value;
+
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * @param index The index of a bucket.
+	 *
+	 * @return The least value of the bucket.
+	 */
+	static long getLowerBound(int index) {
+		if (index < SUB_BUCKETS)
+			return index;
+
+		int exponent = index / SUB_BUCKETS + SUB_BITS - 1, sub = index % SUB_BUCKETS;
+		return (long) (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+	}
+
+	/**
+	 * @param index The index of a bucket.
+	 *
+	 * @return The greatest value of the bucket.
+	 */
+	static long getUpperBound(int index) {
+		return index + 1 == SUB_BUCKETS * (64 - SUB_BITS) ? Long.MAX_VALUE : getLowerBound(index + 1) - 1;
+	}
+
+	/**
+	 * Record a value.
+	 *
+	 * @param value A latency in nanoseconds; negative values count as 0.
+	 */
+	public void record(long value) {
+		if (value < 0)
+			value = 0;
+
+		counts[getIndex(value)]++;
+		count++;
+		sum += value;
+		if (value > max)
+			max = value;
+	}
+
+	/**
+	 * Add the values of another histogram to this one.
+	 *
+	 * @param h The other histogram.
+	 */
+	public void add(LatencyHistogram h) {
+		for (int i = 0; i < counts.length; i++)
+			counts[i] += h.counts[i];
+		count += h.count;
+		sum += h.sum;
+		max = Math.max(max, h.max);
+	}
+
+	/**
+	 * Write the values, e.g. to a checkpoint: only the buckets that are not empty.
+	 *
+	 * @param out The output.
+	 *
+	 * @throws IOException If the output cannot be written.
+	 */
+	public void write(DataOutput out) throws IOException {
+		int n = 0;
+		for (long c : counts)
+			if (c > 0)
+				n++;
+
+		out.writeLong(count);
+		out.writeLong(sum);
+		out.writeLong(max);
+		out.writeInt(n);
+		for (int i = 0; i < counts.length; i++)
+			if (counts[i] > 0) {
+				out.writeShort(i);
+				out.writeLong(counts[i]);
+			}
+	}
+
+	/**
+	 * Replace the values with those written by {@link #write(DataOutput)}.
+	 *
+	 * @param in The input.
+	 *
+	 * @throws IOException If the input cannot be read.
+	 */
+	public void read(DataInput in) throws IOException {
+		reset();
+		count = in.readLong();
+		sum = in.readLong();
+		max = in.readLong();
+		for (int n = in.readInt(); n > 0; n--) {
+			int i = in.readShort();
+			counts[i] = in.readLong();
+		}
+	}
+
+	public void reset() {
+		Arrays.fill(counts, 0);
+		count = sum = max = 0;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	public double getMean() {
+		return count > 0 ? sum / (double) count : 0;
+	}
+
+	/**
+	 * @param percentile A percentile, in [0, 100].
+	 *
+	 * @return The greatest value of the bucket of the percentile (at most
+	 *         {@link #getMax()}), or 0 if no values were recorded.
+	 */
+	public long getPercentile(double percentile) {
+		if (count == 0)
+			return 0;
+
+		/* the rank of the percentile, from 1 */
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank)
+				return Math.min(getUpperBound(i), max);
+		}
+		return max;
+	}
+
+	/**
+	 * @param value A latency in nanoseconds.
+	 *
+	 * @return The number of recorded values greater than value, at least: values
+	 *         in the bucket of value are not counted.
+	 */
+	public long getCountAbove(long value) {
+		long n = 0;
+		for (int i = getIndex(Math.max(0, value)) + 1; i < counts.length; i++)
+			n += counts[i];
+		return n;
+	}
+
+	/**
+	 * @return The number of values, and the 50th, 99th and 99.9th percentiles,
+	 *         and the maximum, in ms.
+	 */
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "n=%d p50=%.3f p99=%.3f p999=%.3f max=%.3f ms", count,
+				getPercentile(50) / 1e6, getPercentile(99) / 1e6, getPercentile(99.9) / 1e6, max / 1e6);
+	}
+
+}
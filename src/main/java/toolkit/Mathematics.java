@@ -28,6 +28,27 @@ public class Mathematics {
 		return s;
 	}
 
+	/*
+	 * Distance kernels from (x, y) to each point (xs[i], ys[i]). They are plain
+	 * counted loops over flat arrays, without branches, so that the JIT can
+	 * auto-vectorize them. distances can be longer than xs (e.g., a pooled buffer):
+	 * only its first xs.length elements are written.
+	 */
+
+	/* l_1 norm */
+	public static void getManhattanDistances(int x, int y, int[] xs, int[] ys, int[] distances) {
+		for (int i = 0; i < xs.length; i++)
+			distances[i] = Math.abs(xs[i] - x) + Math.abs(ys[i] - y);
+	}
+
+	/* l_2 norm, rounded up to the next integer */
+	public static void getEuclideanDistances(int x, int y, int[] xs, int[] ys, int[] distances) {
+		for (int i = 0; i < xs.length; i++) {
+			double dx = xs[i] - x, dy = ys[i] - y;
+			distances[i] = (int) Math.ceil(Math.sqrt(dx * dx + dy * dy));
+		}
+	}
+
 	/* get the normalisation of x in [min, max] */
 	public static float getZ(int x, int min, int max) {
 		return (x - min) / (float) (max - min);
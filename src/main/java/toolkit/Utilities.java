@@ -41,6 +41,33 @@ public class Utilities {
 		return b;
 	}
 
+	/**
+	 * Get the k-combination of {0, ..., n - 1} following c, in the same order as
+	 * {@link org.apache.commons.math3.util.Combinations} (i.e., colexicographic),
+	 * without allocating. The first one is {0, ..., k - 1}.
+	 *
+	 * @param c A k-combination, sorted in ascending order, overwritten with the
+	 *          next one.
+	 * @param n The number of elements.
+	 * @return Whether c was not the last combination.
+	 */
+	public static boolean nextCombination(int[] c, int n) {
+		int k = c.length, i = 0;
+
+		/* the first element that can be incremented */
+		while (i < k && c[i] + 1 == (i + 1 < k ? c[i + 1] : n))
+			i++;
+
+		if (i == k)
+			return false;
+
+		c[i]++;
+		for (int j = 0; j < i; j++)
+			c[j] = j;
+
+		return true;
+	}
+
 	public static int[][] to2D(int[] m, int rowDim) {
 		assert (m != null && rowDim > 0);
 
@@ -0,0 +1,55 @@
+package benchmark;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import model.GridProblem;
+
+/**
+ * The speed of the distance kernel of {@link GridProblem} (see
+ * {@link toolkit.Mathematics#getManhattanDistances(int, int, int[], int[], int[])}),
+ * against the scalar path of {@link model.CFSTP#getAgentTravelTimes(int, int, int, int[])}.
+ * It is run by <code>mvn test -Pregression</code>, with the other checks that
+ * depend on the machine.
+ */
+class DistanceKernelCheck {
+
+	static final int AGENTS = 100, TASKS = 50000, WORLD_DIM = 1000, SEED = 1;
+
+	/* the first rounds warm up the JIT compiler */
+	static final int ROUNDS = 5, WARMUP_ROUNDS = 1;
+
+	@Test
+	@DisplayName("Checking that the distance kernel is faster than the scalar path")
+	void check() {
+		GridProblem p = GridProblem.generate(AGENTS, TASKS, WORLD_DIM, SEED);
+		int[] kernel = new int[TASKS], scalar = new int[TASKS];
+		long kernelTime = 0, scalarTime = 0;
+
+		for (int r = 0; r < ROUNDS; r++)
+			for (int a = 0; a < AGENTS; a++) {
+				int x = p.getInitialAgentX()[a], y = p.getInitialAgentY()[a];
+
+				long t = System.nanoTime();
+				p.getAgentTravelTimes(a, x, y, kernel);
+				long t2 = System.nanoTime();
+				for (int v = 0; v < TASKS; v++)
+					scalar[v] = p.getAgentTravelTime(a, x, y, v);
+				long t3 = System.nanoTime();
+
+				Assertions.assertArrayEquals(scalar, kernel);
+				if (r >= WARMUP_ROUNDS) {
+					kernelTime += t2 - t;
+					scalarTime += t3 - t2;
+				}
+			}
+
+		int measured = ROUNDS - WARMUP_ROUNDS;
+		System.out.println(String.format("Travel times of %d agents to %d tasks: kernel %.2f ms, scalar %.2f ms",
+				AGENTS, TASKS, kernelTime / (measured * 1e6), scalarTime / (measured * 1e6)));
+
+		Assertions.assertTrue(kernelTime < scalarTime);
+	}
+
+}
@@ -0,0 +1,74 @@
+package benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import benchmark.RegressionGate.Comparison;
+import benchmark.ScalabilitySweep.Run;
+import model.InstanceGenerator;
+
+/**
+ * The performance regression gate, run by <code>mvn test -Pregression</code>
+ * (not by the default test run, since it takes minutes and depends on the
+ * machine): it runs a sweep, and compares it with results/baseline.csv (see
+ * {@link RegressionGate}).
+ *
+ * With <code>-Dcfstp.baseline.record=true</code>, it records the baseline
+ * instead, which must be done on the machine of the checks.
+ */
+class RegressionCheck {
+
+	static final File BASELINE = new File("results/baseline.csv");
+
+	static final String[] SOLVERS = { "EDF", "CFLA", "CFLA2", "CTS" };
+	static final int[] AGENTS = { 10, 20, 40 };
+	/* instances solved in a few ms are dominated by the noise of the JIT compiler and of the GC */
+	static final int[] TASKS = { 300 };
+	static final int WORLD_DIM = 50, INSTANCES = 10, WARMUP_INSTANCES = 3, SEED = 0;
+
+	static List<Run> sweep(int instances) {
+		return new ScalabilitySweep(SOLVERS, AGENTS, TASKS, new InstanceGenerator(WORLD_DIM), instances, SEED, 1).run();
+	}
+
+	@Test
+	@DisplayName("Checking performance regressions against the baseline")
+	void check() throws Exception {
+		/* warm up the JIT compiler, so that the first configurations are not slower */
+		sweep(WARMUP_INSTANCES);
+		List<Run> current = sweep(INSTANCES);
+
+		if (Boolean.getBoolean("cfstp.baseline.record")) {
+			try (Writer w = new OutputStreamWriter(new FileOutputStream(BASELINE), StandardCharsets.UTF_8)) {
+				ScalabilitySweep.writeCsv(current, w);
+			}
+			System.out.println(String.format("recorded %d runs in %s", current.size(), BASELINE));
+			return;
+		}
+
+		Assertions.assertTrue(BASELINE.exists(),
+				String.format("%s not found: record it with -Dcfstp.baseline.record=true", BASELINE));
+
+		List<Run> baseline;
+		try (Reader r = new InputStreamReader(new FileInputStream(BASELINE), StandardCharsets.UTF_8)) {
+			baseline = ScalabilitySweep.readCsv(r);
+		}
+
+		List<Comparison> comparisons = new RegressionGate().compare(baseline, current);
+		String diff = RegressionGate.format(comparisons);
+		System.out.print(diff);
+
+		Assertions.assertFalse(RegressionGate.hasRegressions(comparisons), "performance regressions:\n" + diff);
+	}
+
+}
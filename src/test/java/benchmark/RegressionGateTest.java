@@ -0,0 +1,77 @@
+package benchmark;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import benchmark.RegressionGate.Comparison;
+import benchmark.ScalabilitySweep.Run;
+
+class RegressionGateTest {
+
+	static final int INSTANCES = 30;
+
+	/* Runs with noisy times around millis, and completion rates around completed */
+	static List<Run> runs(String solver, double millis, double completed, long seed) {
+		Random r = new Random(seed);
+		List<Run> runs = new ArrayList<>();
+		for (int k = 0; k < INSTANCES; k++)
+			runs.add(new Run(solver, 10, 100, k, (float) (completed + r.nextGaussian() * 0.01), 10, 20, 300,
+					(long) (millis * 1e6 * (1 + r.nextDouble() * 0.2))));
+		return runs;
+	}
+
+	@Test
+	@DisplayName("Testing RegressionGate on slowdowns and completion losses")
+	void test1() {
+		RegressionGate gate = new RegressionGate();
+
+		List<Run> baseline = new ArrayList<>(), current = new ArrayList<>();
+		baseline.addAll(runs("CFLA", 100, 0.8, 1));
+		baseline.addAll(runs("CFLA2", 100, 0.8, 2));
+		baseline.addAll(runs("EDF", 10, 0.6, 3));
+		baseline.addAll(runs("CTS", 1, 0.5, 4));
+
+		current.addAll(runs("CFLA", 110, 0.8, 5)); // within the tolerance
+		current.addAll(runs("CFLA2", 200, 0.8, 6)); // 2x slower
+		current.addAll(runs("EDF", 10, 0.5, 7)); // 10 points less
+
+		List<Comparison> comparisons = gate.compare(baseline, current);
+		System.out.print(RegressionGate.format(comparisons));
+
+		Assertions.assertEquals(4, comparisons.size());
+		Assertions.assertFalse(comparisons.get(0).isRegression());
+		Assertions.assertTrue(comparisons.get(1).isSlower());
+		Assertions.assertFalse(comparisons.get(1).isLessCompleted());
+		Assertions.assertTrue(comparisons.get(2).isLessCompleted());
+		Assertions.assertFalse(comparisons.get(2).isSlower());
+		Assertions.assertTrue(comparisons.get(3).isMissing());
+		Assertions.assertTrue(RegressionGate.hasRegressions(comparisons));
+
+		/* the same distributions, with other noise */
+		Assertions.assertFalse(RegressionGate.hasRegressions(gate.compare(runs("CTS", 1, 0.5, 8), runs("CTS", 1, 0.5, 9))));
+	}
+
+	@Test
+	@DisplayName("Testing sweep CSV round trip")
+	void test2() throws Exception {
+		List<Run> runs = runs("CTS", 1.5, 0.5, 1);
+		StringWriter w = new StringWriter();
+		ScalabilitySweep.writeCsv(runs, w);
+
+		List<Run> read = ScalabilitySweep.readCsv(new StringReader(w.toString()));
+		Assertions.assertEquals(runs.size(), read.size());
+		for (int i = 0; i < runs.size(); i++) {
+			Assertions.assertEquals(runs.get(i).getSeed(), read.get(i).getSeed());
+			Assertions.assertEquals(runs.get(i).getCompletedTaskPercentage(), read.get(i).getCompletedTaskPercentage(), 1e-4);
+			Assertions.assertEquals(runs.get(i).getMillis(), read.get(i).getMillis(), 1e-3);
+		}
+	}
+
+}
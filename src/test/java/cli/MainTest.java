@@ -0,0 +1,102 @@
+package cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import model.GridProblem;
+
+class MainTest {
+
+	static final int AGENTS = 5, TASKS = 20, SEED = 7;
+
+	static String run(int expectedStatus, String... args) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		Assertions.assertEquals(expectedStatus, Main.run(args, new PrintStream(bytes, true)));
+		return bytes.toString();
+	}
+
+	@Test
+	@DisplayName("Testing generate and solve")
+	void test1(@TempDir File dir) throws Exception {
+		File file = new File(dir, "instance.txt");
+		String agents = String.valueOf(AGENTS), tasks = String.valueOf(TASKS), seed = String.valueOf(SEED);
+
+		run(Main.OK, "generate", "--agents", agents, "--tasks", tasks, "--seed", seed, "--output", file.getPath());
+
+		/* same seed, same instance */
+		Assertions.assertEquals(run(Main.OK, "generate", "--agents", agents, "--tasks", tasks, "--seed", seed),
+				new String(java.nio.file.Files.readAllBytes(file.toPath())));
+
+		GridProblem problem, expected = GridProblem.generate(AGENTS, TASKS, Main.DEFAULT_WORLD_DIM, SEED);
+		try (Reader r = new FileReader(file)) {
+			problem = GridProblem.read(r);
+		}
+
+		Assertions.assertArrayEquals(expected.getInitialAgentX(), problem.getInitialAgentX());
+		Assertions.assertArrayEquals(expected.getInitialAgentY(), problem.getInitialAgentY());
+		Assertions.assertArrayEquals(expected.getTaskX(), problem.getTaskX());
+		Assertions.assertArrayEquals(expected.getTaskY(), problem.getTaskY());
+		Assertions.assertArrayEquals(expected.getDeadlines(), problem.getDeadlines());
+		Assertions.assertArrayEquals(expected.getWorkloads(), problem.getWorkloads());
+
+		for (String solver : new String[] { "EDF", "CFLA", "CFLA2", "CTS" }) {
+			String output = run(Main.OK, "solve", "--solver", solver, "--schedule", file.getPath());
+			System.out.print(output);
+			Assertions.assertTrue(output.startsWith(solver + ": completed"));
+		}
+
+		run(Main.ERROR, "solve", "--solver", "EDF", new File(dir, "missing.txt").getPath());
+	}
+
+	@Test
+	@DisplayName("Testing sweep and argument validation")
+	void test2() {
+		String output = run(Main.OK, "sweep", "--solvers", "EDF,CFLA2", "--agents", "2,4", "--tasks", "10",
+				"--repetitions", "2");
+		System.out.print(output);
+
+		/* header, then a line per solver and parameter combination */
+		Assertions.assertEquals(1 + 2 * 2, output.split(System.lineSeparator()).length);
+
+		for (String[] args : Arrays.asList(new String[0], new String[] { "unknown" },
+				new String[] { "generate", "--agents", "5" }, new String[] { "generate", "--agents", "x", "--tasks", "1" },
+				new String[] { "solve", "--solver", "EDF" }, new String[] { "sweep", "--solvers", "XYZ", "--agents", "2",
+						"--tasks", "2" }))
+			run(Main.USAGE, args);
+	}
+
+	@Test
+	@DisplayName("Testing sweep output files")
+	void test3(@TempDir File dir) throws Exception {
+		String prefix = new File(dir, "sweep").getPath();
+		run(Main.OK, "sweep", "--solvers", "EDF,CTS", "--agents", "2,4", "--tasks", "10", "--repetitions", "3",
+				"--jobs", "2", "--output", prefix);
+
+		/* header, then a line per run, in the order of the configurations */
+		List<String> csv = Files.readAllLines(new File(prefix + ".csv").toPath());
+		Assertions.assertEquals(1 + 2 * 2 * 3, csv.size());
+		Assertions.assertTrue(csv.get(1).startsWith("EDF,2,10,0,"));
+		Assertions.assertTrue(csv.get(csv.size() - 1).startsWith("CTS,4,10,2,"));
+
+		String text = new String(Files.readAllBytes(new File(prefix + ".txt").toPath()), StandardCharsets.UTF_8);
+		Assertions.assertTrue(text.startsWith("[3 random CFSTP instances, 10 tasks, 50 world_dim]"));
+		Assertions.assertTrue(text.contains("[4 agents]"));
+
+		String json = new String(Files.readAllBytes(new File(prefix + ".json").toPath()), StandardCharsets.UTF_8);
+		Assertions.assertTrue(json.contains("\"ci\": "));
+		System.out.print(text);
+	}
+
+}
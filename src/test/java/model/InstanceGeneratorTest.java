@@ -0,0 +1,73 @@
+package model;
+
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import model.InstanceGenerator.Layout;
+
+class InstanceGeneratorTest {
+
+	/* more than one chunk of tasks, fewer of agents */
+	static final int AGENTS = 100, TASKS = 3 * InstanceGenerator.CHUNK_SIZE + 7, WORLD_DIM = 50, SEED = 42;
+
+	private static String toString(GridProblem p) {
+		StringWriter w = new StringWriter();
+		GridProblem.write(p, w);
+		return w.toString();
+	}
+
+	@Test
+	@DisplayName("Testing InstanceGenerator reproducibility across threads")
+	void test1() {
+		for (Layout layout : Layout.values()) {
+			String expected = toString(new InstanceGenerator(WORLD_DIM, layout, 4, 1).generate(AGENTS, TASKS, SEED));
+
+			for (int threads : new int[] { 2, 3, 8 })
+				Assertions.assertEquals(expected,
+						toString(new InstanceGenerator(WORLD_DIM, layout, 4, threads).generate(AGENTS, TASKS, SEED)));
+
+			Assertions.assertNotEquals(expected,
+					toString(new InstanceGenerator(WORLD_DIM, layout, 4, 2).generate(AGENTS, TASKS, SEED + 1)));
+		}
+	}
+
+	@Test
+	@DisplayName("Testing InstanceGenerator distributions")
+	void test2() {
+		GridProblem p = new InstanceGenerator(WORLD_DIM, Layout.CLUSTERED, 1, 2).generate(AGENTS, TASKS, SEED);
+
+		for (int v = 0; v < TASKS; v++) {
+			Assertions.assertTrue(p.getTaskX()[v] >= 0 && p.getTaskX()[v] < WORLD_DIM);
+			Assertions.assertTrue(p.getTaskY()[v] >= 0 && p.getTaskY()[v] < WORLD_DIM);
+			Assertions.assertTrue(p.getDeadlines()[v] >= GridProblem.MIN_DEADLINE
+					&& p.getDeadlines()[v] <= GridProblem.MAX_DEADLINE);
+			Assertions.assertTrue(p.getWorkloads()[v] >= GridProblem.MIN_WORKLOAD
+					&& p.getWorkloads()[v] <= GridProblem.MAX_WORKLOAD);
+		}
+
+		/* one cluster: tasks are closer to each other than uniform ones */
+		GridProblem u = new InstanceGenerator(WORLD_DIM).generate(AGENTS, TASKS, SEED);
+		Assertions.assertTrue(getSpread(p) < getSpread(u) / 2);
+	}
+
+	/* The mean distance of the tasks from their centroid */
+	private static double getSpread(GridProblem p) {
+		double x = 0, y = 0, d = 0;
+		int n = p.getTasks().length;
+
+		for (int v = 0; v < n; v++) {
+			x += p.getTaskX()[v];
+			y += p.getTaskY()[v];
+		}
+		x /= n;
+		y /= n;
+
+		for (int v = 0; v < n; v++)
+			d += Math.abs(p.getTaskX()[v] - x) + Math.abs(p.getTaskY()[v] - y);
+		return d / n;
+	}
+
+}
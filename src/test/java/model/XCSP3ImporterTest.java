@@ -0,0 +1,99 @@
+package model;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class XCSP3ImporterTest {
+
+	static final int AGENTS = 20, TASKS = 300, WORLD_DIM = 50, SEED = 3;
+
+	/* An instance in the encoding of XCSP3Importer, with tasks in reverse order */
+	static void write(CFSTP p, Writer w) throws IOException {
+		int n = p.getAgents().length, m = p.getTasks().length;
+
+		w.write("<?xml version=\"1.0\"?>\n<instance format=\"XCSP3\" type=\"COP\">\n");
+		w.write(String.format("  <variables>\n    <array id=\"x\" size=\"[%d]\"> 0..%d </array>\n  </variables>\n", n,
+				m - 1));
+		w.write("  <constraints>\n    <extension id=\"agents\">\n      <list> a ax ay </list>\n      <supports>");
+		for (int a = 0; a < n; a++)
+			w.write("(" + a + "," + p.getInitialAgentX()[a] + "," + p.getInitialAgentY()[a] + ")");
+		w.write("</supports>\n    </extension>\n    <block>\n      <extension id=\"tasks\">\n");
+		w.write("        <list> t tx ty td tw </list>\n        <supports>\n");
+		for (int v = m - 1; v >= 0; v--)
+			w.write("(" + v + ", " + p.getTaskX()[v] + "," + p.getTaskY()[v] + " ," + p.getDeadlines()[v] + ","
+					+ p.getWorkloads()[v] + ")\n");
+		w.write("        </supports>\n      </extension>\n    </block>\n  </constraints>\n");
+		w.write("  <objectives>\n    <maximize> sum(x[]) </maximize>\n  </objectives>\n</instance>\n");
+	}
+
+	static GridProblem read(String xml) throws IOException {
+		return XCSP3Importer.read(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	@DisplayName("Testing XCSP3Importer")
+	void test1(@TempDir File dir) throws Exception {
+		GridProblem expected = GridProblem.generate(AGENTS, TASKS, WORLD_DIM, SEED);
+		File file = new File(dir, "instance.xml.gz");
+		try (Writer w = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file)),
+				StandardCharsets.UTF_8)) {
+			write(expected, w);
+		}
+
+		GridProblem problem = XCSP3Importer.read(file);
+		Assertions.assertArrayEquals(expected.getInitialAgentX(), problem.getInitialAgentX());
+		Assertions.assertArrayEquals(expected.getInitialAgentY(), problem.getInitialAgentY());
+		Assertions.assertArrayEquals(expected.getTaskX(), problem.getTaskX());
+		Assertions.assertArrayEquals(expected.getTaskY(), problem.getTaskY());
+		Assertions.assertArrayEquals(expected.getDeadlines(), problem.getDeadlines());
+		Assertions.assertArrayEquals(expected.getWorkloads(), problem.getWorkloads());
+	}
+
+	@Test
+	@DisplayName("Testing XCSP3Importer errors")
+	void test2() {
+		String agents = "<extension id=\"agents\"><supports>(0,1,2)(1,3,4)</supports></extension>";
+		String tasks = "<extension id=\"tasks\"><supports>%s</supports></extension>";
+		String instance = "<instance format=\"XCSP3\"><constraints>%s%s</constraints></instance>";
+
+		try {
+			GridProblem p = read(String.format(instance, agents, String.format(tasks, "(0,5,5,100,20)")));
+			Assertions.assertEquals(2, p.getAgents().length);
+			Assertions.assertEquals(1, p.getTasks().length);
+		} catch (IOException e) {
+			Assertions.fail(e);
+		}
+
+		String[] invalid = { "<instance format=\"XCSP2\"/>", String.format(instance, agents, ""),
+				String.format(instance, agents, String.format(tasks, "(0,5,5,100)")),
+				String.format(instance, agents, String.format(tasks, "(0,5,5,100,20,1)")),
+				String.format(instance, agents, String.format(tasks, "(0,5,5 100,20)")),
+				String.format(instance, agents, String.format(tasks, "(0,5,,100,20)")),
+				String.format(instance, agents, String.format(tasks, "(0,*,5,100,20)")),
+				String.format(instance, agents, String.format(tasks, "(1,5,5,100,20)")),
+				String.format(instance, agents, String.format(tasks, "(0,5,5,100,20)(0,5,5,100,20)")),
+				String.format(instance, agents, String.format(tasks, "(0,5,5,100,20")),
+				"<!DOCTYPE instance [<!ENTITY e SYSTEM \"file:///etc/passwd\">]>"
+						+ String.format(instance, agents, String.format(tasks, "(0,5,5,100,&e;)")) };
+
+		for (String xml : invalid)
+			try {
+				read(xml);
+				Assertions.fail("accepted: " + xml);
+			} catch (IOException e) {
+				System.out.println(e.getMessage());
+			}
+	}
+
+}
@@ -0,0 +1,83 @@
+package profiling;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import jdk.jfr.Recording;
+import model.CFSTP;
+import solvers.CFLA;
+import solvers.CTS;
+import solvers.EDF;
+import solvers.Solver;
+
+class RecordingAnalyzerTest {
+
+	static final int AGENTS = 10, TASKS = 50, WORLD_DIM = 30, SEED = 1;
+
+	@Test
+	@DisplayName("Testing the JFR events of the solvers and their summary")
+	void test1(@TempDir File dir) throws Exception {
+		Random r = new Random(SEED);
+		int[] agents = new int[AGENTS], tasks = new int[TASKS], agentX = new int[AGENTS], agentY = new int[AGENTS],
+				taskX = new int[TASKS], taskY = new int[TASKS], deadlines = new int[TASKS], workloads = new int[TASKS];
+
+		for (int a = 0; a < AGENTS; a++) {
+			agents[a] = a;
+			agentX[a] = r.nextInt(WORLD_DIM);
+			agentY[a] = r.nextInt(WORLD_DIM);
+		}
+
+		for (int v = 0; v < TASKS; v++) {
+			tasks[v] = v;
+			taskX[v] = r.nextInt(WORLD_DIM);
+			taskY[v] = r.nextInt(WORLD_DIM);
+			deadlines[v] = 5 + r.nextInt(100);
+			workloads[v] = 10 + r.nextInt(41);
+		}
+
+		CFSTP problem = new CFSTP(agents, tasks, agentX, agentY, taskX, taskY, deadlines, workloads) {
+			@Override
+			public int getAgentTravelTime(int agentId, int[] agentLocation, int[] taskLocation) {
+				return Math.abs(taskLocation[0] - agentLocation[0]) + Math.abs(taskLocation[1] - agentLocation[1]);
+			}
+
+			@Override
+			public float getCoalitionValue(int task, int[] coalition) {
+				return coalition.length * 1.5f;
+			}
+		};
+
+		File file = new File(dir, "solvers.jfr");
+
+		try (Recording recording = new Recording()) {
+			for (String event : new String[] { "TimeStep", "ECF", "LookAhead", "Allocation", "TaskCompletion" })
+				recording.enable(RecordingAnalyzer.PREFIX + event).withThreshold(java.time.Duration.ZERO);
+			recording.start();
+
+			for (Solver s : new Solver[] { new CFLA(problem, true), new EDF(problem), new CTS(problem) })
+				s.solve();
+
+			recording.stop();
+			recording.dump(file.toPath());
+		}
+
+		Map<String, Map<String, RecordingAnalyzer.Summary>> summaries = RecordingAnalyzer.analyze(file.toPath());
+
+		for (String phase : new String[] { "TimeStep", "ECF", "LookAhead", "Allocation" })
+			Assertions.assertTrue(summaries.get("CFLA").get(phase).getCount() > 0);
+
+		Assertions.assertTrue(summaries.get("EDF").get("ECF").getCount() > 0);
+		Assertions.assertTrue(summaries.get("CTS").get("TaskCompletion").getCount() > 0);
+		Assertions.assertTrue(summaries.get("CTS").get("TaskCompletion").getCount() <= summaries.get("CTS")
+				.get("Allocation").getCount());
+
+		System.out.print(RecordingAnalyzer.format(summaries));
+	}
+
+}
@@ -0,0 +1,131 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import exceptions.ServiceException;
+import model.CFSTP;
+import model.GridProblem;
+
+class SolverServiceTest {
+
+	static final int WORLD_DIM = 50, REQUESTS = 16;
+
+	static final long WAIT = 10; // ms
+
+	@Test
+	@DisplayName("Testing concurrent and batched requests")
+	void test1() throws Exception {
+		SolverService service = new SolverService(0, 2);
+		service.start();
+
+		final SolverClient client = new SolverClient(service.getPort());
+		ExecutorService clients = Executors.newFixedThreadPool(REQUESTS);
+
+		try {
+			List<Future<SolverClient.Response>> responses = new ArrayList<>();
+			for (int i = 0; i < REQUESTS; i++) {
+				final CFSTP problem = GridProblem.generate(5, 20, WORLD_DIM, i);
+				final String solverId = i % 2 == 0 ? "CFLA2" : "EDF";
+				responses.add(clients.submit(new Callable<SolverClient.Response>() {
+					@Override
+					public SolverClient.Response call() throws Exception {
+						return client.solve(problem, solverId, 0, true);
+					}
+				}));
+			}
+
+			for (int i = 0; i < REQUESTS; i++) {
+				SolverClient.Response r = responses.get(i).get();
+				Assertions.assertEquals(i % 2 == 0 ? "CFLA2" : "EDF", r.getSolverId());
+				Assertions.assertFalse(r.isStopped());
+				Assertions.assertTrue(r.getResults().getCompletedTaskPercentage() > 0);
+				Assertions.assertFalse(r.getSchedule().isEmpty());
+				Assertions.assertTrue(r.getBatch() >= 1 && r.getBatch() <= SolverService.DEFAULT_BATCH_SIZE);
+			}
+
+			Assertions.assertEquals(REQUESTS, service.getNumberOfSolved());
+			Assertions.assertTrue(service.getNumberOfBatches() <= REQUESTS);
+			System.out.println(String.format("%d requests in %d batches", REQUESTS, service.getNumberOfBatches()));
+
+			try {
+				client.solve(GridProblem.generate(2, 2, WORLD_DIM, 0), "XYZ", 0, false);
+				Assertions.fail("unknown solver accepted");
+			} catch (ServiceException e) {
+				Assertions.assertEquals(400, e.getStatus());
+			}
+		} finally {
+			clients.shutdown();
+			service.stop();
+		}
+	}
+
+	@Test
+	@DisplayName("Testing backpressure and timeouts")
+	void test2() throws Exception {
+		/* one worker, one queued request, no batching */
+		SolverService service = new SolverService(0, 1, 1, 1, 0, SolverService.DEFAULT_TIMEOUT);
+		service.start();
+
+		final SolverClient client = new SolverClient(service.getPort());
+		ExecutorService clients = Executors.newFixedThreadPool(2);
+
+		try {
+			/* the exact solver does not end on this instance before being stopped (on seed 3, the heuristics may reach its bound) */
+			final CFSTP large = GridProblem.generate(8, 40, WORLD_DIM, 4);
+			Future<SolverClient.Response> running = clients.submit(new Callable<SolverClient.Response>() {
+				@Override
+				public SolverClient.Response call() throws Exception {
+					return client.solve(large, "BNB", 3000, false);
+				}
+			});
+
+			while (service.getQueueSize() > 0 || service.getNumberOfBatches() == 0)
+				Thread.sleep(WAIT);
+
+			final CFSTP small = GridProblem.generate(2, 5, WORLD_DIM, 2);
+			Future<SolverClient.Response> queued = clients.submit(new Callable<SolverClient.Response>() {
+				@Override
+				public SolverClient.Response call() throws Exception {
+					return client.solve(small, "EDF", 500, false);
+				}
+			});
+
+			while (service.getQueueSize() == 0)
+				Thread.sleep(WAIT);
+
+			try {
+				client.solve(small, "EDF", 0, false);
+				Assertions.fail("request accepted with a full queue");
+			} catch (ServiceException e) {
+				Assertions.assertEquals(503, e.getStatus());
+			}
+
+			try {
+				queued.get();
+				Assertions.fail("queued request not timed out");
+			} catch (java.util.concurrent.ExecutionException e) {
+				Assertions.assertEquals(504, ((ServiceException) e.getCause()).getStatus());
+			}
+
+			SolverClient.Response r = running.get();
+			Assertions.assertTrue(r.isStopped());
+			Assertions.assertTrue(r.getResults().getCompletedTaskPercentage() > 0);
+
+			Assertions.assertEquals(1, service.getNumberOfRejected());
+			Assertions.assertEquals(2, service.getNumberOfTimeouts());
+		} finally {
+			clients.shutdown();
+			service.stop();
+		}
+	}
+
+}
@@ -1,17 +1,41 @@
 package solvers;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
-import org.apache.commons.math3.distribution.UniformIntegerDistribution;
-import org.apache.commons.math3.distribution.UniformRealDistribution;
+import org.apache.commons.lang3.ArrayUtils;
 import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.io.TempDir;
 
+import distributed.LocalCluster;
+import exceptions.IncompatibleCheckpointException;
+import model.Allocation;
 import model.CFSTP;
+import model.ChangeEvent;
+import model.FeasibleAllocation;
+import model.GridProblem;
+import model.InstanceGenerator;
+import model.InstanceGenerator.Layout;
+import model.MemoizedCFSTP;
 import model.Results;
+import model.Subproblem;
+import toolkit.LatencyHistogram;
+import toolkit.Mathematics;
 
 /**
  * Experimental setup of (Ramchurn et al., 2010).
@@ -28,9 +52,14 @@ class SolversTest {
 	static final int TASKS = 300;
 	static final int WORLD_DIM = 50;
 
-	class MyProblem extends CFSTP {
+	/* The seed of the first instance; -Dcfstp.seed=S to change it */
+	static final long SEED = Long.getLong("cfstp.seed", 1);
+
+	static final int GENERATOR_THREADS = 2;
+
+	static int numberOfSetups;
 
-		UniformRealDistribution unif = new UniformRealDistribution(1, 2);
+	class MyProblem extends CFSTP {
 
 		public MyProblem(int[] agents, int[] tasks, int[][] initialAgentLocations, int[][] taskLocations,
 				int[][] demands) {
@@ -43,16 +72,47 @@ class SolversTest {
 			return Math.abs(taskLocation[0] - agentLocation[0]) + Math.abs(taskLocation[1] - agentLocation[1]);
 		}
 
+		@Override
+		public int getAgentTravelTime(int agentId, int agentX, int agentY, int task) {
+			return Math.abs(taskX[task] - agentX) + Math.abs(taskY[task] - agentY);
+		}
+
+		@Override
+		public void getAgentTravelTimes(int agentId, int agentX, int agentY, int[] travelTimes) {
+			Mathematics.getManhattanDistances(agentX, agentY, taskX, taskY, travelTimes);
+		}
+
 		@Override
 		public float getCoalitionValue(int task, int[] coalition) {
-			return (float) (coalition.length * unif.sample());
+			/* u(C) = |C| * U(1, 2); ThreadLocalRandom, since solvers can run in parallel */
+			return (float) (coalition.length * ThreadLocalRandom.current().nextDouble(1, 2));
 		}
 
 	}
 
 	static CFSTP problem;
 
-	static String[] solvers = new String[] { "CFLA", "CFLA2", "CTS" };
+	static String[] solvers = new String[] { "CFLA", "CFLA2", "CFLA2H", "CFLA2B", "CFLA2L", "CFLA2Batch", "EDF", "EDFBatch", "CTS", "Portfolio", "Decomposition" };
+
+	static final long PORTFOLIO_TIME_BUDGET = 60000; // ms
+	static final long PORTFOLIO_STOP_DELAY = 2000; // ms
+
+	static final int DECOMPOSITION_GRID_DIM = 2; // regions per side
+
+	static final int HORIZON = 100; // time steps
+
+	static final int BEAM_DEPTH = 2, BEAM_WIDTH = 8;
+
+	static final int CHECKPOINT_INTERVAL = 20; // time steps
+
+	static final int MEMOIZATION_CAPACITY = 1 << 16; // coalition values
+
+	static final int SMALL_PROBLEM_AGENTS = 6, SMALL_PROBLEM_TASKS = 16, SMALL_PROBLEM_SEED = 1;
+	static final int SMALL_PROBLEM_MAX_DEADLINE = 30; // the tighter, the faster the exact solver
+
+	static final int CONCURRENT_CTS_THREADS = 4;
+
+	static final int DISTRIBUTED_CTS_OWNERS = 2;
 
 	// solver: avg, min, max
 	static float[][] completedTaskPercentage = new float[solvers.length][3];
@@ -61,8 +121,13 @@ class SolversTest {
 	static float[][] timesteps = new float[solvers.length][3];
 	static long[][] computationalTime = new long[solvers.length][3]; // ms
 
+	/* decision times of the time steps, across repetitions, and the per-step SLA */
+	static LatencyHistogram[] stepLatencies = new LatencyHistogram[solvers.length];
+	static final long STEP_SLA = 50; // ms
+
 	static {
 		for (int i = 0; i < solvers.length; i++) {
+			stepLatencies[i] = new LatencyHistogram();
 			/* initialise minimum values */
 			completedTaskPercentage[i][1] = 1;
 			travelTime[i][1] = Float.MAX_VALUE;
@@ -74,30 +139,15 @@ class SolversTest {
 
 	@BeforeEach
 	void setup() {
-		Random r = new Random();
 		int i;
 
-		/* 0. basic data structures */
-		int[] agents = new int[AGENTS];
-		int[] tasks = new int[TASKS];
-
-		for (i = 0; i < AGENTS; i++)
-			agents[i] = i;
-
-		for (i = 0; i < TASKS; i++)
-			tasks[i] = i;
-
-		/* 1a. random task positions and initial agent positions */
-		int[][] taskLocations = new int[TASKS][2];
-		for (i = 0; i < TASKS; i++) {
-			taskLocations[i][0] = r.nextInt(WORLD_DIM);
-			taskLocations[i][1] = r.nextInt(WORLD_DIM);
-		}
-		int[][] initialAgentLocations = new int[AGENTS][2];
-		for (i = 0; i < AGENTS; i++) {
-			initialAgentLocations[i][0] = r.nextInt(WORLD_DIM);
-			initialAgentLocations[i][1] = r.nextInt(WORLD_DIM);
-		}
+		/* 0-1a. agents, tasks and positions: a new instance per test, the same across runs */
+		GridProblem g = new InstanceGenerator(WORLD_DIM, Layout.UNIFORM, 1, GENERATOR_THREADS).generate(AGENTS, TASKS,
+				SEED + numberOfSetups++);
+		int[] agents = g.getAgents();
+		int[] tasks = g.getTasks();
+		int[][] taskLocations = g.getTaskLocations();
+		int[][] initialAgentLocations = g.getInitialAgentLocations();
 
 		/* 1b. print positions */
 		if (PRINT_PROBLEM) {
@@ -109,14 +159,8 @@ class SolversTest {
 						initialAgentLocations[i][0], initialAgentLocations[i][1]));
 		}
 
-		/* 2a. generate deadlines and workloads */
-		UniformIntegerDistribution unifD = new UniformIntegerDistribution(5, 600);
-		UniformIntegerDistribution unifW = new UniformIntegerDistribution(10, 50);
-		int[][] demands = new int[TASKS][2];
-		for (i = 0; i < TASKS; i++) {
-			demands[i][0] = unifD.sample();
-			demands[i][1] = unifW.sample();
-		}
+		/* 2a. deadlines and workloads */
+		int[][] demands = g.getDemands();
 
 		/* 2b. print demands */
 		if (PRINT_PROBLEM)
@@ -145,9 +189,30 @@ class SolversTest {
 			case "CFLA2":
 				s = new CFLA(problem, true);
 				break;
+			case "CFLA2H":
+				s = new CFLA(problem, true, HORIZON);
+				break;
+			case "CFLA2Batch":
+				s = new CFLA(problem, true, 0, true);
+				break;
+			case "EDFBatch":
+				s = new EDF(problem, true);
+				break;
+			case "CFLA2L":
+				s = new LazyCFLA(problem, true);
+				break;
+			case "CFLA2B":
+				s = new BeamCFLA(problem, true, BEAM_DEPTH, BEAM_WIDTH);
+				break;
 			case "CTS":
 				s = new CTS(problem);
 				break;
+			case "Portfolio":
+				s = new Portfolio(problem, PORTFOLIO_TIME_BUDGET);
+				break;
+			case "Decomposition":
+				s = new Decomposition(problem, DECOMPOSITION_GRID_DIM, "CFLA2");
+				break;
 			default:
 				throw new Exception(String.format("%s is not a valid algorithm identifier", solvers[i]));
 			}
@@ -175,7 +240,614 @@ class SolversTest {
 			computationalTime[i][0] += t;
 			computationalTime[i][1] = Math.min(t, computationalTime[i][1]);
 			computationalTime[i][2] = Math.max(t, computationalTime[i][2]);
+
+			Assertions.assertTrue(s.getStepLatencies().getCount() > 0);
+			stepLatencies[i].add(s.getStepLatencies());
+		}
+	}
+
+	/* the current instance, with deterministic coalition values */
+	CFSTP getDeterministicProblem() {
+		return getDeterministicProblem(problem.getAgents(), problem.getTasks(), problem.getInitialAgentLocations(),
+				problem.getTaskLocations(), problem.getDemands());
+	}
+
+	/* an instance with deterministic coalition values: u(C) = 1.5 |C| */
+	CFSTP getDeterministicProblem(int[] agents, int[] tasks, int[][] agentLocations, int[][] taskLocations,
+			int[][] demands) {
+		return new MyProblem(agents, tasks, agentLocations, taskLocations, demands) {
+			@Override
+			public float getCoalitionValue(int task, int[] coalition) {
+				return coalition.length * 1.5f;
+			}
+		};
+	}
+
+	@Test
+	@DisplayName("Testing that LazyCFLA allocates as CFLA")
+	void test2() {
+		CFSTP p = getDeterministicProblem();
+
+		/* with a rolling horizon, the window is in order of deadline, not of index */
+		for (int horizon : new int[] { 0, HORIZON / 2 })
+			for (boolean improved : new boolean[] { false, true }) {
+				CFLA exhaustive = new CFLA(p, improved, horizon);
+				LazyCFLA lazy = new LazyCFLA(p, improved, horizon);
+				exhaustive.solve();
+				lazy.solve();
+
+				Assertions.assertEquals(exhaustive.getSchedule().toString(), lazy.getSchedule().toString());
+				Assertions.assertTrue(lazy.getNumberOfECFCalls() <= exhaustive.getNumberOfECFCalls());
+
+				System.out.println(String.format("%s (horizon %d): %d ECF calls, lazy: %d", improved ? "CFLA2" : "CFLA",
+						horizon, exhaustive.getNumberOfECFCalls(), lazy.getNumberOfECFCalls()));
+			}
+	}
+
+	@Test
+	@DisplayName("Testing that pooled solvers allocate as new ones")
+	void test3() {
+		CFSTP p = getDeterministicProblem();
+
+		/* a smaller problem: the first half of the tasks */
+		int[] half = new int[TASKS / 2];
+		for (int v = 0; v < half.length; v++)
+			half[v] = v;
+		CFSTP sub = new Subproblem(p, half, p.getAgents());
+
+		SolverPool pool = new SolverPool();
+
+		for (String id : new String[] { "EDF", "CFLA2", "CTS" }) {
+			Solver pooled = pool.get(id, p);
+			pooled.solve();
+
+			for (CFSTP q : new CFSTP[] { sub, p }) {
+				Solver fresh = Portfolio.newSolver(id, q);
+				fresh.solve();
+
+				Assertions.assertSame(pooled, pool.get(id, q));
+				pooled.solve();
+
+				Assertions.assertEquals(fresh.getSchedule().toString(), pooled.getSchedule().toString());
+				Assertions.assertEquals(fresh.getResults().getCompletedTaskPercentage(),
+						pooled.getResults().getCompletedTaskPercentage());
+				Assertions.assertEquals(fresh.getResults().getAvgCompletionTime(),
+						pooled.getResults().getAvgCompletionTime());
+			}
+		}
+
+		pool.clear();
+	}
+
+	@Test
+	@DisplayName("Testing that solvers resumed from a checkpoint allocate as uninterrupted ones")
+	void test4(@TempDir File dir) throws Exception {
+		CFSTP p = getDeterministicProblem();
+
+		for (String id : new String[] { "EDF", "CFLA2", "CTS" }) {
+			File file = new File(dir, id + ".ckpt");
+
+			/* the last checkpoint is at the beginning of a time step in the middle of the run */
+			Solver uninterrupted = Portfolio.newSolver(id, p);
+			uninterrupted.setCheckpoint(file, CHECKPOINT_INTERVAL);
+
+			/* an agent released, and an event due, after the last checkpoint */
+			int[] releaseTimes = new int[AGENTS];
+			releaseTimes[1] = p.getMaxTaskDeadline();
+			uninterrupted.setReleaseTimes(releaseTimes);
+			uninterrupted.addChangeEvent(ChangeEvent.agentFailure(p.getMaxTaskDeadline(), 2));
+
+			uninterrupted.solve();
+			Assertions.assertTrue(file.exists());
+
+			Solver resumed = Portfolio.newSolver(id, p);
+			resumed.restore(file);
+			Assertions.assertTrue(resumed.getCurrentTime() > 0);
+			Assertions.assertTrue(resumed.hasPendingChangeEvents());
+			Assertions.assertArrayEquals(releaseTimes, resumed.releaseTimes);
+			resumed.solve();
+
+			Assertions.assertEquals(uninterrupted.getStepLatencies().getCount(), resumed.getStepLatencies().getCount());
+
+			Assertions.assertEquals(uninterrupted.getSchedule().toString(), resumed.getSchedule().toString());
+			Assertions.assertEquals(uninterrupted.getResults().getCompletedTaskPercentage(),
+					resumed.getResults().getCompletedTaskPercentage());
+			Assertions.assertEquals(uninterrupted.getResults().getAvgTravelTime(),
+					resumed.getResults().getAvgTravelTime());
+			Assertions.assertEquals(uninterrupted.getResults().getAvgCompletionTime(),
+					resumed.getResults().getAvgCompletionTime());
+
+			final Solver other = Portfolio.newSolver(id.equals("CTS") ? "EDF" : "CTS", p);
+			Assertions.assertThrows(IncompatibleCheckpointException.class, new Executable() {
+				public void execute() throws Throwable {
+					other.restore(file);
+				}
+			});
+		}
+
+		/* solvers that run others concurrently reject checkpoints up front */
+		final Solver portfolio = new Portfolio(p, PORTFOLIO_TIME_BUDGET);
+		Assertions.assertFalse(portfolio.supportsCheckpoints());
+		Assertions.assertThrows(UnsupportedOperationException.class, new Executable() {
+			public void execute() throws Throwable {
+				portfolio.setCheckpoint(new File(dir, "Portfolio.ckpt"), CHECKPOINT_INTERVAL);
+			}
+		});
+	}
+
+	@Test
+	@DisplayName("Testing re-planning after task insertion, cancellation and agent failure")
+	void test5() {
+		/* shared: insertions do not change it */
+		CFSTP p = getDeterministicProblem();
+
+		for (String id : new String[] { "EDF", "CFLA2", "CTS" }) {
+			Solver s = Portfolio.newSolver(id, p);
+
+			s.addChangeEvent(ChangeEvent.taskCancellation(0, 0));
+			s.addChangeEvent(ChangeEvent.agentFailure(15, 0));
+			s.addChangeEvent(ChangeEvent.taskInsertion(30, p.getInitialAgentX()[1], p.getInitialAgentY()[1],
+					p.getMaxTaskDeadline(), 10));
+			s.solve();
+
+			Assertions.assertEquals(TASKS, p.getTasks().length);
+			Assertions.assertEquals(TASKS + 1, s.tasks.length);
+			Assertions.assertTrue(s.isFailedAgent[0]);
+			Assertions.assertFalse(s.isCompletedTask(0));
+
+			for (Allocation allocation : s.getSchedule()) {
+				Assertions.assertNotEquals(0, allocation.getTask());
+				if (allocation instanceof FeasibleAllocation && ((FeasibleAllocation) allocation).getAllocationTime() >= 15)
+					Assertions.assertFalse(ArrayUtils.contains(allocation.getAgents(), 0));
+			}
+
+			System.out.println(String.format("%s with changes: %.2f%% completed tasks", id,
+					s.getResults().getCompletedTaskPercentage() * 100));
+
+			/* cancelling a completed task (here, after the last time step) is ignored */
+			Solver u = Portfolio.newSolver(id, p);
+			u.solve();
+			int v = 0;
+			while (!u.isCompletedTask(v))
+				v++;
+
+			int time = u.getCurrentTime() + 1;
+			Assertions.assertTrue(time <= p.getMaxTaskDeadline());
+
+			Solver c = Portfolio.newSolver(id, p);
+			c.addChangeEvent(ChangeEvent.taskCancellation(time, v));
+			c.solve();
+
+			Assertions.assertTrue(c.isCompletedTask(v));
+			Assertions.assertEquals(u.getSchedule().toString(), c.getSchedule().toString());
+			Assertions.assertEquals(u.getResults().getCompletedTaskPercentage(),
+					c.getResults().getCompletedTaskPercentage());
 		}
+
+		/* solvers that run others concurrently reject changes up front */
+		final Solver portfolio = new Portfolio(p, PORTFOLIO_TIME_BUDGET);
+		Assertions.assertFalse(portfolio.supportsChangeEvents());
+		Assertions.assertThrows(UnsupportedOperationException.class, new Executable() {
+			public void execute() throws Throwable {
+				portfolio.addChangeEvent(ChangeEvent.taskCancellation(0, 0));
+			}
+		});
+	}
+
+	@Test
+	@DisplayName("Testing that memoized coalition values give the same allocations")
+	void test6() {
+		CFSTP p = getDeterministicProblem();
+		MemoizedCFSTP memoized = new MemoizedCFSTP(p, MEMOIZATION_CAPACITY);
+
+		Solver direct = new CFLA(p, true), cached = new CFLA(memoized, true);
+
+		long t = System.nanoTime();
+		direct.solve();
+		long t2 = System.nanoTime();
+		cached.solve();
+		long t3 = System.nanoTime();
+
+		Assertions.assertEquals(direct.getSchedule().toString(), cached.getSchedule().toString());
+		Assertions.assertTrue(memoized.getCache().getHits() > 0);
+
+		System.out.println(String.format("CFLA2: %d ms, memoized: %d ms (%s)", (t2 - t) / 1000000,
+				(t3 - t2) / 1000000, memoized.getCache()));
+	}
+
+	@Test
+	@DisplayName("Testing the reachability bound and early termination")
+	void test7() {
+		for (String id : new String[] { "EDF", "CFLA2", "CTS" }) {
+			CFSTP p = getDeterministicProblem();
+			Solver s = Portfolio.newSolver(id, p);
+
+			int bound = s.getAllocableTasksBound();
+			s.solve();
+
+			int completed = 0;
+			for (int v = 0; v < p.getTasks().length; v++)
+				if (s.isCompletedTask(v))
+					completed++;
+
+			Assertions.assertTrue(completed <= bound);
+
+			/* solve() stops with busy agents only at the last time step, or when no task can be allocated */
+			Assertions.assertTrue(s.allAgentsAreAvailable() || s.getCurrentTime() >= p.getMaxTaskDeadline()
+					|| s.getAllocableTasksBound() == 0);
+
+			/* the cached check agrees with the bound */
+			Assertions.assertEquals(s.getAllocableTasksBound() > 0, s.hasAllocableTasks());
+
+			System.out.println(String.format("%s: %d tasks completed (bound: %d), stopped at %d", id, completed,
+					bound, s.getCurrentTime()));
+		}
+	}
+
+	@Test
+	@DisplayName("Testing the exact solver against the heuristics on a small problem")
+	void test8() {
+		Random r = new Random(SMALL_PROBLEM_SEED);
+		int[] agents = new int[SMALL_PROBLEM_AGENTS], tasks = new int[SMALL_PROBLEM_TASKS];
+		int[][] agentLocations = new int[agents.length][2], taskLocations = new int[tasks.length][2],
+				demands = new int[tasks.length][2];
+
+		for (int a = 0; a < agents.length; a++) {
+			agents[a] = a;
+			agentLocations[a] = new int[] { r.nextInt(WORLD_DIM / 2), r.nextInt(WORLD_DIM / 2) };
+		}
+
+		for (int v = 0; v < tasks.length; v++) {
+			tasks[v] = v;
+			taskLocations[v] = new int[] { r.nextInt(WORLD_DIM / 2), r.nextInt(WORLD_DIM / 2) };
+			demands[v] = new int[] { 5 + r.nextInt(SMALL_PROBLEM_MAX_DEADLINE - 4), 10 + r.nextInt(41) };
+		}
+
+		CFSTP p = getDeterministicProblem(agents, tasks, agentLocations, taskLocations, demands);
+
+		BranchAndBound exact = new BranchAndBound(p);
+		exact.solve();
+
+		Assertions.assertTrue(exact.isOptimal());
+
+		for (String id : new String[] { "EDF", "CFLA", "CFLA2" }) {
+			Solver s = Portfolio.newSolver(id, p);
+			s.solve();
+			Assertions.assertTrue(exact.getGap(s.getResults()) >= 0);
+		}
+
+		System.out.println(exact.benchmark("EDF", "CFLA", "CFLA2", "CTS"));
+
+		/* stopped before solving: the heuristics of the lower bound return after one time step, and nothing is searched */
+		BranchAndBound stopped = new BranchAndBound(p);
+		stopped.stop();
+		stopped.solve();
+		Assertions.assertFalse(stopped.isOptimal());
+		Assertions.assertEquals(0, stopped.getNumberOfNodes());
+		Assertions.assertTrue(stopped.getResults().getCompletedTaskPercentage() <= exact.getResults()
+				.getCompletedTaskPercentage());
+	}
+
+	@Test
+	@DisplayName("Testing the concurrent simulation of CTS")
+	void test9() {
+		/* deterministic coalition values, to compare schedules */
+		CFSTP p = getDeterministicProblem();
+
+		CTS cts = new CTS(p);
+		cts.solve();
+
+		/* one thread: the agents decide in the order of CTS */
+		ConcurrentCTS s = new ConcurrentCTS(p, 1);
+		s.solve();
+		Assertions.assertEquals(cts.getSchedule().toString(), s.getSchedule().toString());
+		Assertions.assertEquals(0, s.getNumberOfConflicts());
+
+		s = new ConcurrentCTS(p, CONCURRENT_CTS_THREADS);
+		s.solve();
+
+		int completed = 0;
+		for (int v : p.getTasks())
+			if (s.isCompletedTask(v))
+				completed++;
+
+		Assertions.assertTrue(completed > 0);
+		Assertions.assertEquals(completed / (float) TASKS, s.getResults().getCompletedTaskPercentage());
+
+		System.out.println(String.format("CTS: %.2f%%, ConcurrentCTS (%d threads): %.2f%%, %d decisions, %d conflicts, %d contended locks",
+				cts.getResults().getCompletedTaskPercentage() * 100, CONCURRENT_CTS_THREADS,
+				s.getResults().getCompletedTaskPercentage() * 100, s.getNumberOfDecisions(), s.getNumberOfConflicts(),
+				s.getNumberOfContendedLocks()));
+	}
+
+	@Test
+	@DisplayName("DistributedCTS, with task owners in child JVMs")
+	void test10() throws IOException {
+		GridProblem p = GridProblem.generate(20, 300, WORLD_DIM, 42);
+
+		try (LocalCluster cluster = new LocalCluster(DISTRIBUTED_CTS_OWNERS)) {
+			DistributedCTS s = new DistributedCTS(p, cluster.getAddresses());
+			s.solve();
+
+			int completed = 0;
+			for (int v : p.getTasks())
+				if (s.isCompletedTask(v))
+					completed++;
+
+			Assertions.assertTrue(completed > 0);
+			Assertions.assertEquals(completed / (float) p.getTasks().length,
+					s.getResults().getCompletedTaskPercentage());
+			Assertions.assertTrue(s.getMessagesPerStep() >= 2 * DISTRIBUTED_CTS_OWNERS);
+
+			/* every allocation is feasible: agents arrive by the deadline */
+			for (Allocation a : s.getSchedule())
+				Assertions.assertTrue(((FeasibleAllocation) a).getArrivalTimes()[0] <= p.getDeadlines()[a.getTask()]);
+
+			System.out.println(String.format("DistributedCTS (%d owners): %.2f%%, %d time steps, %.1f messages/step, %.1f bytes/step",
+					DISTRIBUTED_CTS_OWNERS, s.getResults().getCompletedTaskPercentage() * 100, s.getNumberOfSteps(),
+					s.getMessagesPerStep(), s.getBytesPerStep()));
+		}
+	}
+
+	@Test
+	@DisplayName("Testing the step decision times and their periodic export")
+	void test11() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Solver s = new CFLA(problem);
+		s.setLatencyExport(new PrintStream(out, true), 0); // at every time step
+		s.solve();
+
+		LatencyHistogram h = s.getStepLatencies();
+		String[] lines = out.toString().split(System.lineSeparator());
+		Assertions.assertTrue(h.getCount() > 0);
+		Assertions.assertEquals(h.getCount(), lines.length);
+		for (String line : lines)
+			Assertions.assertTrue(line.startsWith("CFLA t=") && line.contains(" p99="));
+		Assertions.assertTrue(h.getPercentile(50) <= h.getPercentile(99) && h.getPercentile(99) <= h.getMax());
+
+		s.reset(problem);
+		Assertions.assertEquals(0, s.getStepLatencies().getCount());
+
+		/* those of a portfolio are those of its best solver, also when solve() is called again */
+		Portfolio portfolio = new Portfolio(problem, PORTFOLIO_TIME_BUDGET, "EDF", "CTS");
+		for (int i = 0; i < 2; i++) {
+			portfolio.solve();
+			Assertions.assertEquals(portfolio.best.getStepLatencies().getCount(),
+					portfolio.getStepLatencies().getCount());
+		}
+
+		System.out.println(String.format("CFLA: %s, %d steps over %d ms", h, h.getCountAbove(STEP_SLA * 1000000),
+				STEP_SLA));
+	}
+
+	@Test
+	@DisplayName("Testing that solvers share the travel times of a problem until agents move")
+	void test12() {
+		CFSTP p = getDeterministicProblem();
+		Solver s1 = new CFLA(p, true), s2 = new CTS(p);
+
+		for (int a = 0; a < AGENTS; a++)
+			Assertions.assertSame(s1.getAgentTravelTimes(a), s2.getAgentTravelTimes(a));
+
+		s1.solve();
+
+		/* moved agents have rows of their own, and the shared ones are untouched */
+		for (int a = 0; a < AGENTS; a++) {
+			int[] travelTimes = s1.getAgentTravelTimes(a), initialTravelTimes = s2.getAgentTravelTimes(a);
+			for (int v = 0; v < TASKS; v++) {
+				Assertions.assertEquals(p.getAgentTravelTime(a, s1.agentX[a], s1.agentY[a], v), travelTimes[v]);
+				Assertions.assertEquals(p.getAgentTravelTime(a, p.getInitialAgentX()[a], p.getInitialAgentY()[a], v),
+						initialTravelTimes[v]);
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("Testing the batch mode of CFLA and EDF")
+	void test13() {
+		CFSTP p = getDeterministicProblem();
+		CFLA[][] pairs = new CFLA[][] { { new CFLA(p, true), new CFLA(p, true, 0, true) },
+				{ new EDF(p), new EDF(p, true) } };
+
+		for (CFLA[] pair : pairs) {
+			CFLA s = pair[0], batch = pair[1];
+			s.solve();
+			batch.solve();
+
+			/* the coalitions allocated at the same time step (at least two, once) are disjoint */
+			List<Allocation> schedule = batch.getSchedule();
+			boolean multiple = false;
+			for (int i = 0; i < schedule.size(); i++)
+				for (int j = i + 1; j < schedule.size(); j++) {
+					Allocation x = schedule.get(i), y = schedule.get(j);
+					if (batch.allocationTimes[x.getTask()] == batch.allocationTimes[y.getTask()]) {
+						multiple = true;
+						for (int a : x.getAgents())
+							Assertions.assertFalse(ArrayUtils.contains(y.getAgents(), a));
+					}
+				}
+			Assertions.assertTrue(multiple);
+
+			long steps = s.getStepLatencies().getCount(), batchSteps = batch.getStepLatencies().getCount();
+			Assertions.assertTrue(batchSteps <= steps);
+
+			System.out.println(String.format("%s: %d time steps, %d in batch mode", s.getClass().getSimpleName(),
+					steps, batchSteps));
+		}
+	}
+
+	@Test
+	@DisplayName("Testing the rolling horizon of CFLA")
+	void test14() {
+		CFSTP p = getDeterministicProblem();
+		CFLA s = new CFLA(p, true);
+		s.solve();
+
+		/* a horizon that covers all deadlines changes nothing */
+		CFLA full = new CFLA(p, true, p.getMaxTaskDeadline());
+		full.solve();
+		Assertions.assertEquals(s.getSchedule().toString(), full.getSchedule().toString());
+
+		/* otherwise, tasks are allocated only within the horizon */
+		int horizon = HORIZON / 2;
+		CFLA small = new CFLA(p, true, horizon);
+		small.solve();
+		Assertions.assertFalse(small.getSchedule().isEmpty());
+		for (Allocation allocation : small.getSchedule()) {
+			int v = allocation.getTask(), time = small.allocationTimes[v];
+			Assertions.assertTrue(time <= p.getDeadlines()[v] && p.getDeadlines()[v] <= time + horizon);
+		}
+	}
+
+	@Test
+	@DisplayName("Testing that BeamCFLA with depth 1 allocates as CFLA")
+	void test15() {
+		CFSTP p = getDeterministicProblem();
+
+		for (boolean improved : new boolean[] { false, true }) {
+			CFLA s = new CFLA(p, improved);
+			BeamCFLA beam = new BeamCFLA(p, improved, 1, BEAM_WIDTH);
+			s.solve();
+			beam.solve();
+
+			Assertions.assertEquals(s.getSchedule().toString(), beam.getSchedule().toString());
+		}
+	}
+
+	@Test
+	@DisplayName("Testing that the merged schedule of Decomposition has no overlapping allocations")
+	void test16() {
+		CFSTP p = getDeterministicProblem();
+		Decomposition s = new Decomposition(p, DECOMPOSITION_GRID_DIM + 1, "CFLA2");
+		s.solve();
+
+		/* the allocation time of each task, from the solvers of the regions and of the repair pass */
+		final int[] allocationTimes = new int[TASKS];
+		for (Solver r : s.regionSolvers)
+			if (r != null) {
+				int[] parentTasks = ((Subproblem) r.problem).getParentTasks();
+				for (Allocation allocation : r.getSchedule())
+					allocationTimes[parentTasks[allocation.getTask()]] = ((CFLA) r).allocationTimes[allocation.getTask()];
+			}
+
+		List<List<Allocation>> agentSchedules = assertValidSchedule(p, s.getSchedule(), allocationTimes);
+
+		/* the repair pass also allocates agents that completed tasks in their regions */
+		Solver repair = s.regionSolvers[s.regionSolvers.length - 1];
+		boolean reused = false;
+		for (Allocation allocation : repair.getSchedule())
+			for (int a : ((Subproblem) repair.problem).toParentAgents(allocation.getAgents()))
+				reused |= agentSchedules.get(a).size() > 1;
+		Assertions.assertTrue(reused);
+	}
+
+	@Test
+	@DisplayName("Testing that Portfolio completes as many tasks as its best solver, also when stopped")
+	void test17() {
+		CFSTP p = getDeterministicProblem();
+
+		/* coalition values are deterministic, hence the solvers allocate as when alone */
+		Portfolio portfolio = new Portfolio(p, PORTFOLIO_TIME_BUDGET);
+		portfolio.solve();
+		for (String id : Portfolio.DEFAULT_SOLVERS) {
+			Solver s = Portfolio.newSolver(id, p);
+			s.solve();
+			Assertions.assertTrue(portfolio.getResults().getCompletedTaskPercentage() >= s.getResults()
+					.getCompletedTaskPercentage());
+		}
+
+		/* stopped from another thread, while the exact solver is still searching */
+		final Portfolio stopped = new Portfolio(p, PORTFOLIO_TIME_BUDGET, "CFLA2", "BNB");
+		Thread stopper = new Thread() {
+			public void run() {
+				try {
+					Thread.sleep(PORTFOLIO_STOP_DELAY);
+					stopped.stop();
+				} catch (InterruptedException e) {
+				}
+			}
+		};
+		stopper.setDaemon(true);
+		stopper.start();
+
+		long t = System.nanoTime();
+		stopped.solve();
+		t = (System.nanoTime() - t) / 1000000;
+
+		Assertions.assertTrue(t < PORTFOLIO_TIME_BUDGET);
+		Assertions.assertTrue(stopped.getResults().getCompletedTaskPercentage() > 0);
+		assertValidSchedule(p, stopped.getSchedule(), ((CFLA) stopped.best).allocationTimes);
+
+		System.out.println(String.format("Portfolio: %s, stopped after %d ms by %s", nf(portfolio.getResults()
+				.getCompletedTaskPercentage()), t, stopped.getBestSolverId()));
+	}
+
+	@Test
+	@DisplayName("Testing that solve() continues the run of a stopped solver")
+	void test18() {
+		CFSTP p = getDeterministicProblem();
+		Solver[] solvers = { new CFLA(p, true), new EDF(p), new CTS(p) };
+		Solver[] resumed = { new CFLA(p, true), new EDF(p), new CTS(p) };
+
+		for (int i = 0; i < solvers.length; i++) {
+			solvers[i].solve();
+
+			/* stopped before the first call, hence it returns after one time step */
+			resumed[i].stop();
+			resumed[i].solve();
+			Assertions.assertTrue(resumed[i].isStopped());
+			Assertions.assertEquals(1, resumed[i].getStepLatencies().getCount());
+
+			resumed[i].solve();
+			Assertions.assertFalse(resumed[i].isStopped());
+
+			Results r = solvers[i].getResults(), q = resumed[i].getResults();
+			Assertions.assertEquals(solvers[i].getSchedule().toString(), resumed[i].getSchedule().toString());
+			Assertions.assertEquals(r.getAvgTravelTime(), q.getAvgTravelTime());
+			Assertions.assertEquals(r.getAvgCompletionTime(), q.getAvgCompletionTime());
+			Assertions.assertEquals(r.getCompletedTaskPercentage(), q.getCompletedTaskPercentage());
+			Assertions.assertEquals(solvers[i].getStepLatencies().getCount(), resumed[i].getStepLatencies().getCount());
+		}
+	}
+
+	/**
+	 * Check that a schedule completes each task at most once, by its deadline, and
+	 * that agents are allocated again only after completing their previous task.
+	 *
+	 * @param p               The problem.
+	 * @param schedule        A schedule of p.
+	 * @param allocationTimes The allocation time of each task in schedule.
+	 *
+	 * @return The allocations of each agent, in order of allocation.
+	 */
+	static List<List<Allocation>> assertValidSchedule(CFSTP p, List<Allocation> schedule,
+			final int[] allocationTimes) {
+		List<List<Allocation>> agentSchedules = new ArrayList<>();
+		for (int a = 0; a < p.getAgents().length; a++)
+			agentSchedules.add(new ArrayList<Allocation>());
+
+		boolean[] isAllocatedTask = new boolean[p.getTasks().length];
+		for (Allocation allocation : schedule) {
+			int v = allocation.getTask();
+			Assertions.assertFalse(isAllocatedTask[v]);
+			isAllocatedTask[v] = true;
+			Assertions.assertTrue(allocation.getCompletionTime() <= p.getDeadlines()[v]);
+			for (int a : allocation.getAgents())
+				agentSchedules.get(a).add(allocation);
+		}
+
+		for (List<Allocation> agentSchedule : agentSchedules) {
+			Collections.sort(agentSchedule, new Comparator<Allocation>() {
+				public int compare(Allocation x, Allocation y) {
+					return Integer.compare(allocationTimes[x.getTask()], allocationTimes[y.getTask()]);
+				}
+			});
+			for (int i = 1; i < agentSchedule.size(); i++)
+				Assertions.assertTrue(
+						allocationTimes[agentSchedule.get(i).getTask()] > agentSchedule.get(i - 1).getCompletionTime());
+		}
+
+		return agentSchedules;
 	}
 
 	@AfterAll
@@ -219,6 +891,12 @@ class SolversTest {
 			System.out.println(
 			String.format("%6s = (%s, %s, %s, %s, %s)", solvers[i], s1, s2, s3, s4, s5));
 		}
+
+		/* the averages above hide the worst time steps */
+		System.out.println(String.format("\nstep decision times (SLA: %d ms per step)\n", STEP_SLA));
+		for (int i = 0; i < solvers.length; i++)
+			System.out.println(String.format("%6s = (%s, %d steps over SLA)", solvers[i], stepLatencies[i],
+					stepLatencies[i].getCountAbove(STEP_SLA * 1000000)));
 	}
 
 	private static String nf(float f) {
@@ -0,0 +1,53 @@
+package toolkit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CoalitionTest {
+
+	@Test
+	@DisplayName("Testing Coalition set operations, with 1 and more words")
+	void test1() {
+		for (int n : new int[] { 20, 64, 130 }) {
+			Coalition c1 = Coalition.of(n, new int[] { 0, 3, n - 1 });
+			Coalition c2 = Coalition.of(n, new int[] { 3, n / 2 });
+
+			Assertions.assertEquals(3, c1.size());
+			Assertions.assertTrue(c1.contains(n - 1));
+			Assertions.assertFalse(c1.contains(n / 2));
+			Assertions.assertTrue(c1.intersects(c2));
+
+			Coalition union = new Coalition(n);
+			union.set(c1);
+			union.or(c2);
+			Assertions.assertArrayEquals(new int[] { 0, 3, n / 2, n - 1 }, union.toArray());
+
+			Coalition intersection = Coalition.of(n, c1.toArray());
+			intersection.and(c2);
+			Assertions.assertArrayEquals(new int[] { 3 }, intersection.toArray());
+
+			union.andNot(c1);
+			Assertions.assertEquals(Coalition.of(n, new int[] { n / 2 }), union);
+
+			union.remove(n / 2);
+			Assertions.assertTrue(union.isEmpty());
+		}
+	}
+
+	@Test
+	@DisplayName("Testing Coalition iteration")
+	void test2() {
+		int[] agents = new int[] { 1, 63, 64, 65, 127, 128, 199 };
+		Coalition c = Coalition.of(200, agents);
+
+		int i = 0;
+		for (int a = c.next(0); a >= 0; a = c.next(a + 1))
+			Assertions.assertEquals(agents[i++], a);
+
+		Assertions.assertEquals(agents.length, i);
+		Assertions.assertEquals(-1, c.next(200));
+		Assertions.assertEquals(127, c.next(66));
+	}
+
+}
@@ -0,0 +1,31 @@
+package toolkit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class LRUCacheTest {
+
+	@Test
+	@DisplayName("Testing LRUCache eviction and statistics")
+	void test1() {
+		/* 1 segment, hence exact LRU */
+		LRUCache<Integer, String> cache = new LRUCache<>(2, 1);
+
+		cache.put(1, "a");
+		cache.put(2, "b");
+		Assertions.assertEquals("a", cache.get(1)); // 2 is now the least recently used
+		cache.put(3, "c");
+
+		Assertions.assertNull(cache.get(2));
+		Assertions.assertEquals("a", cache.get(1));
+		Assertions.assertEquals("c", cache.get(3));
+
+		Assertions.assertEquals(2, cache.size());
+		Assertions.assertEquals(3, cache.getHits());
+		Assertions.assertEquals(1, cache.getMisses());
+		Assertions.assertEquals(1, cache.getEvictions());
+		System.out.println(cache);
+	}
+
+}
@@ -0,0 +1,89 @@
+package toolkit;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+	@Test
+	@DisplayName("Testing LatencyHistogram buckets")
+	void test1() {
+		/* buckets are contiguous, and contain their bounds; the last one ends at Long.MAX_VALUE */
+		int last = LatencyHistogram.getIndex(Long.MAX_VALUE);
+		Assertions.assertEquals(Long.MAX_VALUE, LatencyHistogram.getUpperBound(last));
+		for (int i = 0; i < last; i++) {
+			long lower = LatencyHistogram.getLowerBound(i), upper = LatencyHistogram.getUpperBound(i);
+			Assertions.assertEquals(i, LatencyHistogram.getIndex(lower));
+			Assertions.assertEquals(i, LatencyHistogram.getIndex(upper));
+			Assertions.assertEquals(upper + 1, LatencyHistogram.getLowerBound(i + 1));
+			/* relative width below 1 / SUB_BUCKETS */
+			Assertions.assertTrue(upper - lower <= lower / LatencyHistogram.SUB_BUCKETS);
+		}
+
+		LatencyHistogram h = new LatencyHistogram();
+		h.record(Long.MAX_VALUE);
+		h.record(-1);
+		Assertions.assertEquals(Long.MAX_VALUE, h.getMax());
+		Assertions.assertEquals(0, h.getPercentile(50));
+		Assertions.assertEquals(Long.MAX_VALUE, h.getPercentile(100));
+	}
+
+	@Test
+	@DisplayName("Testing LatencyHistogram percentiles against exact ones")
+	void test2() throws IOException {
+		SplittableRandom random = new SplittableRandom(42);
+		long[] values = new long[100000];
+		LatencyHistogram h = new LatencyHistogram(), h1 = new LatencyHistogram(), h2 = new LatencyHistogram();
+
+		/* log-uniform between 1 us and 1 s */
+		for (int i = 0; i < values.length; i++) {
+			values[i] = (long) Math.pow(10, 3 + 6 * random.nextDouble());
+			h.record(values[i]);
+			(i % 2 == 0 ? h1 : h2).record(values[i]);
+		}
+		Arrays.sort(values);
+
+		for (double p : new double[] { 50, 90, 99, 99.9, 100 }) {
+			long exact = values[(int) Math.ceil(p / 100 * values.length) - 1];
+			long approximate = h.getPercentile(p);
+			Assertions.assertTrue(approximate >= exact && approximate <= exact * (1 + 1.0 / LatencyHistogram.SUB_BUCKETS));
+		}
+		Assertions.assertEquals(values[values.length - 1], h.getMax());
+		int above = 0;
+		for (long v : values)
+			if (v > 1000000)
+				above++;
+		Assertions.assertTrue(h.getCountAbove(1000000) <= above);
+		Assertions.assertTrue(h.getCountAbove(1000000) >= above * 0.95);
+
+		/* merging the halves gives the whole */
+		h1.add(h2);
+		Assertions.assertEquals(h.toString(), h1.toString());
+		Assertions.assertEquals(h.getMean(), h1.getMean(), 1e-6);
+
+		/* as written to, and read from, a checkpoint */
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		h.write(new DataOutputStream(bytes));
+		LatencyHistogram read = new LatencyHistogram();
+		read.record(1);
+		read.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		Assertions.assertEquals(h.toString(), read.toString());
+		Assertions.assertEquals(h.getMean(), read.getMean(), 1e-6);
+		Assertions.assertEquals(h.getCountAbove(1000000), read.getCountAbove(1000000));
+
+		h.reset();
+		Assertions.assertEquals(0, h.getCount());
+		Assertions.assertEquals(0, h.getPercentile(99));
+		System.out.println(h1);
+	}
+
+}
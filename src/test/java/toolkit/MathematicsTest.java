@@ -3,9 +3,12 @@ package toolkit;
 import java.util.Arrays;
 
 import org.apache.commons.math3.util.Combinations;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import model.GridProblem;
+
 class MathematicsTest {
 
 	static int n = 20;
@@ -26,4 +29,32 @@ class MathematicsTest {
 				System.out.println(Arrays.toString(s));
 	}
 
+	@Test
+	@DisplayName("Testing Mathematics#getManhattanDistances and Mathematics#getEuclideanDistances")
+	void test3() {
+		int[] xs = new int[] { 0, 3, -4, 7 }, ys = new int[] { 0, 4, 3, 1 }, d = new int[xs.length];
+
+		Mathematics.getManhattanDistances(0, 0, xs, ys, d);
+		Assertions.assertArrayEquals(new int[] { 0, 7, 7, 8 }, d);
+
+		Mathematics.getEuclideanDistances(0, 0, xs, ys, d);
+		Assertions.assertArrayEquals(new int[] { 0, 5, 5, 8 }, d);
+	}
+
+	@Test
+	@DisplayName("Comparing the distance kernel with the scalar path of CFSTP#getAgentTravelTimes")
+	void test4() {
+		GridProblem p = GridProblem.generate(10, 1000, 100, 1);
+		int[] kernel = new int[p.getTasks().length], scalar = new int[kernel.length];
+
+		for (int a = 0; a < p.getAgents().length; a++) {
+			int x = p.getInitialAgentX()[a], y = p.getInitialAgentY()[a];
+			p.getAgentTravelTimes(a, x, y, kernel);
+			/* the default of CFSTP#getAgentTravelTimes */
+			for (int v = 0; v < scalar.length; v++)
+				scalar[v] = p.getAgentTravelTime(a, x, y, v);
+			Assertions.assertArrayEquals(scalar, kernel);
+		}
+	}
+
 }
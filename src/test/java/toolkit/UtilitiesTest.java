@@ -1,8 +1,11 @@
 package toolkit;
 
 import java.util.Arrays;
+import java.util.Iterator;
 
 import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.math3.util.Combinations;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
@@ -29,4 +32,23 @@ class UtilitiesTest {
 		toStdout(Utilities.to2D(m, DIM - 1));
 	}
 
+	@Test
+	@DisplayName("Testing Utilities#nextCombination against Combinations")
+	void test3() {
+		for (int n = 1; n <= 8; n++)
+			for (int k = 1; k <= n; k++) {
+				int[] c = new int[k];
+				for (int i = 0; i < k; i++)
+					c[i] = i;
+
+				Iterator<int[]> it = new Combinations(n, k).iterator();
+				boolean hasNext = true;
+				while (hasNext) {
+					Assertions.assertArrayEquals(it.next(), c);
+					hasNext = Utilities.nextCombination(c, n);
+				}
+				Assertions.assertFalse(it.hasNext());
+			}
+	}
+
 }